@@ -0,0 +1,53 @@
+package pr6.ini;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pr6.model.SyntheticNetwork;
+
+/**
+ * Measures loading and storing the events of a network with {@link Ini}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IniBenchmark {
+
+    @Param({"1000", "100000"})
+    public int vehicles;
+    private Ini ini;
+    private byte[] text;
+
+    @Setup
+    public void setUp() throws IOException {
+        ini = SyntheticNetwork.events(vehicles);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ini.store(out);
+        text = out.toByteArray();
+    }
+
+    @Benchmark
+    public Ini load() throws IOException {
+        return new Ini(new ByteArrayInputStream(text));
+    }
+
+    @Benchmark
+    public void store() throws IOException {
+        ini.store(SyntheticNetwork.DISCARD);
+    }
+}
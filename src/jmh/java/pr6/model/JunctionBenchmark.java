@@ -0,0 +1,74 @@
+package pr6.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Junction#advance()} for every kind of junction with some
+ * incoming roads full of vehicles waiting. Every advance moves one vehicle to
+ * the next road, so the queues are filled again before every iteration, which
+ * runs as many advances as vehicles are waiting in one road.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = JunctionBenchmark.QUEUE)
+@Measurement(iterations = 20, batchSize = JunctionBenchmark.QUEUE)
+@Fork(1)
+public class JunctionBenchmark {
+
+    static final int QUEUE = 1000;
+    private static final int INCOMING_ROADS = 4;
+    @Param({"default", "rr", "mc"})
+    public String type;
+    private Junction junction;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        if ("rr".equals(type)) {
+            junction = new RoundRobinJunction("j", 1, 3);
+        } else if ("mc".equals(type)) {
+            junction = new MostCrowdedJunction("j");
+        } else {
+            junction = new Junction("j");
+        }
+        Junction destination = new Junction("dest");
+        Road outgoing = new Road("out", Integer.MAX_VALUE, 50, junction, destination);
+        junction.addOutGoingRoad(outgoing, destination);
+        VehicleTable table = new VehicleTable(INCOMING_ROADS * QUEUE);
+        for (int r = 0; r < INCOMING_ROADS; r++) {
+            Junction source = new Junction("src" + r);
+            Road incoming = new Road("in" + r, 10, 50, source, junction);
+            source.addOutGoingRoad(incoming, junction);
+            junction.addIncomingRoad(incoming);
+            List<Junction> itinerary = new ArrayList<>();
+            itinerary.add(source);
+            itinerary.add(junction);
+            itinerary.add(destination);
+            for (int i = 0; i < QUEUE; i++) {
+                new Vehicle(table, "v" + r + "_" + i, 10, itinerary);
+            }
+            // every vehicle reaches the end of the road and waits
+            incoming.advance();
+        }
+    }
+
+    @Benchmark
+    public Junction advance() {
+        junction.advance();
+        return junction;
+    }
+}
@@ -0,0 +1,87 @@
+package pr6.model;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pr6.ini.IniStreamWriter;
+
+/**
+ * Measures the reports of a whole network: generating them with
+ * {@link SimulatedObject#generateReport(int)}, storing the sections, and
+ * streaming them with {@link SimulatedObject#writeReport} as the simulator
+ * does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportBenchmark {
+
+    @Param({"1000", "100000"})
+    public int vehicles;
+    private RoadMap roadMap;
+    private IniStreamWriter writer;
+
+    @Setup
+    public void setUp() {
+        roadMap = SyntheticNetwork.roadMap(SyntheticNetwork.events(vehicles), 3);
+        writer = new IniStreamWriter(SyntheticNetwork.DISCARD);
+    }
+
+    @Benchmark
+    public void generateReport(Blackhole bh) {
+        roadMap.getJunctions().forEach((Junction j) -> bh.consume(j.generateReport(3)));
+        roadMap.getRoads().forEach((Road r) -> bh.consume(r.generateReport(3)));
+        roadMap.getVehicles().forEach((Vehicle v) -> bh.consume(v.generateReport(3)));
+    }
+
+    @Benchmark
+    public void storeReport() throws IOException {
+        for (Junction j : roadMap.getJunctions()) {
+            write(j);
+        }
+        for (Road r : roadMap.getRoads()) {
+            write(r);
+        }
+        for (Vehicle v : roadMap.getVehicles()) {
+            write(v);
+        }
+    }
+
+    @Benchmark
+    public void streamReport() throws IOException {
+        for (Junction j : roadMap.getJunctions()) {
+            stream(j);
+        }
+        for (Road r : roadMap.getRoads()) {
+            stream(r);
+        }
+        for (Vehicle v : roadMap.getVehicles()) {
+            stream(v);
+        }
+        writer.flush();
+    }
+
+    private void stream(SimulatedObject simObject) {
+        simObject.writeReport(3, writer);
+        writer.separator();
+    }
+
+    private void write(SimulatedObject simObject) throws IOException {
+        simObject.generateReport(3).store(SyntheticNetwork.DISCARD);
+        SyntheticNetwork.DISCARD.write('\n');
+    }
+}
@@ -0,0 +1,73 @@
+package pr6.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Road#advance()} for every kind of road with some vehicles on
+ * it. The road is long enough for the vehicles not to reach its end.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoadBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int vehicles;
+    @Param({"road", "lanes", "dirt"})
+    public String type;
+    private Road road;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Junction source = new Junction("j1");
+        Junction destination = new Junction("j2");
+        int length = Integer.MAX_VALUE;
+        if ("lanes".equals(type)) {
+            road = new LaneRoad("r1", length, 50, source, destination, 2);
+        } else if ("dirt".equals(type)) {
+            road = new DirtRoad("r1", length, 50, source, destination);
+        } else {
+            road = new Road("r1", length, 50, source, destination);
+        }
+        source.addOutGoingRoad(road, destination);
+        destination.addIncomingRoad(road);
+        List<Junction> itinerary = new ArrayList<>();
+        itinerary.add(source);
+        itinerary.add(destination);
+        VehicleTable table = new VehicleTable(vehicles);
+        for (int i = 0; i < vehicles; i++) {
+            if (i % 3 == 1) {
+                new Car(table, "v" + i, 10 + i % 25, itinerary, 10, 0.1, 3, i);
+            } else {
+                new Vehicle(table, "v" + i, 10 + i % 25, itinerary);
+            }
+            // spreads the vehicles along the road
+            if (i % 10 == 0) {
+                road.advance();
+            }
+        }
+    }
+
+    @Benchmark
+    public Road advance() {
+        road.advance();
+        return road;
+    }
+}
@@ -0,0 +1,64 @@
+package pr6.model;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pr6.ini.Ini;
+
+/**
+ * Measures whole ticks of the simulator on networks from a thousand to a
+ * million vehicles, with and without reports. The network is created again
+ * before every iteration, which runs a few ticks while the vehicles are still
+ * moving.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = SimulatorBenchmark.TICKS)
+@Measurement(iterations = 5, batchSize = SimulatorBenchmark.TICKS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SimulatorBenchmark {
+
+    static final int TICKS = 5;
+    @Param({"1000", "100000", "1000000"})
+    public int vehicles;
+    @Param({"1", "4"})
+    public int parallelism;
+    @Param({"false", "true"})
+    public boolean reports;
+    private Ini events;
+    private TrafficSimulator simulator;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        events = SyntheticNetwork.events(vehicles);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        simulator = SyntheticNetwork.simulator(events, parallelism,
+                reports ? SyntheticNetwork.DISCARD : null);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        simulator.setParallelism(1);
+    }
+
+    @Benchmark
+    public TrafficSimulator tick() {
+        simulator.run(1);
+        return simulator;
+    }
+}
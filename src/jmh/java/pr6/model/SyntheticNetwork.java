@@ -0,0 +1,155 @@
+package pr6.model;
+
+import java.io.OutputStream;
+import pr6.control.Controller;
+import pr6.events.Event;
+import pr6.ini.Ini;
+import pr6.ini.IniSection;
+import pr6.util.SymbolTable;
+
+/**
+ * Generates road networks of any size for the benchmarks. Junctions form a
+ * ring where every junction is connected to the next one and to the one after
+ * it, with every kind of junction, road and vehicle.
+ */
+public class SyntheticNetwork {
+
+    /**
+     * Output stream discarding everything written to it
+     */
+    public static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+    private static final int VEHICLES_PER_JUNCTION = 20;
+    private static final int ITINERARY_LENGTH = 5;
+
+    /**
+     * Generates the events creating a network with the given number of
+     * vehicles. There is a junction every few vehicles, and the vehicles are
+     * created during the first ticks.
+     *
+     * @param vehicles Number of vehicles
+     * @return events of the network
+     */
+    public static Ini events(int vehicles) {
+        Ini ini = new Ini();
+        int junctions = Math.max(8, vehicles / VEHICLES_PER_JUNCTION);
+        for (int i = 0; i < junctions; i++) {
+            IniSection sec = new IniSection("new_junction");
+            sec.setValue("time", 0);
+            sec.setValue("id", "j" + i);
+            if (i % 3 == 1) {
+                sec.setValue("type", "rr");
+                sec.setValue("min_time_slice", 1);
+                sec.setValue("max_time_slice", 3);
+            } else if (i % 3 == 2) {
+                sec.setValue("type", "mc");
+            }
+            ini.addSection(sec);
+        }
+        for (int i = 0; i < junctions; i++) {
+            for (int step = 1; step <= 2; step++) {
+                IniSection sec = new IniSection("new_road");
+                sec.setValue("time", 0);
+                sec.setValue("id", "r" + i + "_" + step);
+                sec.setValue("src", "j" + i);
+                sec.setValue("dest", "j" + (i + step) % junctions);
+                sec.setValue("max_speed", 20 + (i % 3) * 10);
+                sec.setValue("length", 50 + (i % 7) * 20);
+                if (i % 3 == 1) {
+                    sec.setValue("type", "lanes");
+                    sec.setValue("lanes", 2);
+                } else if (i % 3 == 2) {
+                    sec.setValue("type", "dirt");
+                }
+                ini.addSection(sec);
+            }
+        }
+        for (int i = 0; i < vehicles; i++) {
+            IniSection sec = new IniSection("new_vehicle");
+            sec.setValue("time", i % 5);
+            sec.setValue("id", "v" + i);
+            sec.setValue("max_speed", 10 + i % 25);
+            int junction = (int) ((i * 7L) % junctions);
+            StringBuilder itinerary = new StringBuilder("j").append(junction);
+            for (int k = 1; k < ITINERARY_LENGTH; k++) {
+                junction = (junction + 1 + (i + k) % 2) % junctions;
+                itinerary.append(",j").append(junction);
+            }
+            sec.setValue("itinerary", itinerary);
+            if (i % 3 == 1) {
+                sec.setValue("type", "car");
+                sec.setValue("resistance", 10);
+                sec.setValue("fault_probability", 0.1);
+                sec.setValue("max_fault_duration", 3);
+                sec.setValue("seed", i);
+            } else if (i % 3 == 2) {
+                sec.setValue("type", "bike");
+            }
+            ini.addSection(sec);
+        }
+        return ini;
+    }
+
+    /**
+     * Creates a simulator with the given events and runs it until every event
+     * has been executed.
+     *
+     * @param events
+     * @param parallelism Number of threads
+     * @param output Output of the reports, null to write no reports
+     * @return the simulator
+     */
+    public static TrafficSimulator simulator(Ini events, int parallelism,
+            OutputStream output) {
+        TrafficSimulator simulator = new TrafficSimulator(null);
+        simulator.setParallelism(parallelism);
+        for (IniSection sec : events.getSections()) {
+            simulator.addEvent(parse(sec, simulator.getIds()));
+        }
+        simulator.run(ITINERARY_LENGTH);
+        simulator.setOutputStream(output);
+        return simulator;
+    }
+
+    /**
+     * Creates a road map with the given events and advances its roads and
+     * junctions some ticks, without a simulator.
+     *
+     * @param events
+     * @param ticks Number of ticks to advance
+     * @return the road map
+     */
+    public static RoadMap roadMap(Ini events, int ticks) {
+        RoadMap roadMap = new RoadMap();
+        for (IniSection sec : events.getSections()) {
+            parse(sec, roadMap.getIds()).execute(roadMap);
+        }
+        for (int t = 0; t < ticks; t++) {
+            roadMap.getRoads().forEach((Road r) -> r.advance());
+            roadMap.getJunctions().forEach((Junction j) -> j.advance());
+        }
+        return roadMap;
+    }
+
+    /**
+     * Parses an event with the builders of the controller.
+     *
+     * @param sec
+     * @param ids Ids of the simulated objects
+     * @return the event
+     */
+    private static Event parse(IniSection sec, SymbolTable ids) {
+        Event event = Controller.eventBuilders.parse(sec, ids);
+        if (event != null) {
+            return event;
+        }
+        throw new IllegalArgumentException("Not an event: " + sec.getTag());
+    }
+}
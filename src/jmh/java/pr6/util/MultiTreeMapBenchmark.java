@@ -0,0 +1,79 @@
+package pr6.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the operations of {@link MultiTreeMap} the simulator uses to keep
+ * its events: adding values, getting the values of a key and going through
+ * every value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiTreeMapBenchmark {
+
+    @Param({"1000", "100000"})
+    public int values;
+    /**
+     * Number of values with the same key
+     */
+    @Param({"1", "100"})
+    public int valuesPerKey;
+    private MultiTreeMap<Integer, Integer> map;
+
+    @Setup
+    public void setUp() {
+        map = fill();
+    }
+
+    private MultiTreeMap<Integer, Integer> fill() {
+        MultiTreeMap<Integer, Integer> m = new MultiTreeMap<>((a, b) -> a - b);
+        for (int i = 0; i < values; i++) {
+            m.putValue(i / valuesPerKey, i);
+        }
+        return m;
+    }
+
+    @Benchmark
+    public MultiTreeMap<Integer, Integer> putValue() {
+        return fill();
+    }
+
+    @Benchmark
+    public void getOrDefault(Blackhole bh) {
+        for (int key = 0; key <= values / valuesPerKey; key++) {
+            ArrayList<Integer> list = map.getOrDefault(key, null);
+            bh.consume(list);
+        }
+    }
+
+    @Benchmark
+    public void valuesList(Blackhole bh) {
+        for (Integer v : map.valuesList()) {
+            bh.consume(v);
+        }
+    }
+
+    @Benchmark
+    public void valuesListGet(Blackhole bh) {
+        for (int i = 0; i < map.valuesList().size(); i += 97) {
+            bh.consume(map.valuesList().get(i));
+        }
+    }
+}
@@ -1,17 +1,26 @@
 package pr6.control;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import pr6.events.*;
 import pr6.exception.SimulatorError;
 import pr6.ini.Ini;
 import pr6.ini.IniError;
 import pr6.ini.IniSection;
+import pr6.model.Car;
+import pr6.model.ReportFilter;
 import pr6.model.SimulatedObject;
 import pr6.model.TrafficSimulator;
+import pr6.util.SymbolTable;
 
 /**
  * Simulates the steps of the traffic simulator.
@@ -28,9 +37,13 @@ public class Controller {
      * Period of time in which the traffic simulator will be running
      */
     private int time;
+    /**
+     * Number of sections parsed by each task, at least
+     */
+    private static final int MIN_SECTIONS_PER_TASK = 256;
 
     /**
-     * List of Traffic Simulator's events. The order matters.
+     * List of Traffic Simulator's events.
      */
     public static Event.Builder[] availableEventBuilders = {
         new LaneRoadEvent.Builder(),
@@ -45,6 +58,13 @@ public class Controller {
         new VehicleEvent.Builder()
     };
 
+    /**
+     * Builders of the events by tag and type: the available ones and the
+     * ones registered through the {@link java.util.ServiceLoader}.
+     */
+    public static final EventBuilderRegistry eventBuilders
+            = EventBuilderRegistry.load(availableEventBuilders);
+
     /**
      * Class constructor specifying time and output.
      *
@@ -70,17 +90,12 @@ public class Controller {
      * Parses the event that will be created.
      *
      * @param sec Information about the event created
+     * @param ids Ids of the simulated objects
      * @return New event created, null if not
      * @see Event
      */
-    private static Event parse(IniSection sec) {
-        int i = 0;
-        Event newEvent = null;
-        while (newEvent == null && i < availableEventBuilders.length) {
-            newEvent = availableEventBuilders[i].parse(sec);
-            i++;
-        }
-        return newEvent;
+    private static Event parse(IniSection sec, SymbolTable ids) {
+        return eventBuilders.parse(sec, ids);
     }
 
     /**
@@ -91,21 +106,147 @@ public class Controller {
      * @throws IniError ini file cannot be created from stream provided
      */
     public void loadEvents(InputStream input) throws IOException, IniError {
-        Ini ini = new Ini(input);
-        ini.getSections().forEach((IniSection sec) -> {
-            try {
-                Event newEvent = parse(sec);
-                if (newEvent == null) {
-                    throw new SimulatorError("The section with tag " + sec.getTag()
-                            + " is not a valid event");
+        loadEvents(new Ini(input));
+    }
+
+    /**
+     * Loads the events of an INI structure. When running on several threads
+     * the sections are parsed in parallel, in the pool of the simulator.
+     *
+     * @param ini
+     * @throws IniError ini file cannot be created from stream provided
+     */
+    private void loadEvents(Ini ini) throws IniError {
+        List<IniSection> sections = ini.getSections();
+        SymbolTable ids = trafficSim.getIds();
+        ForkJoinPool pool = trafficSim.getPool();
+        if (pool == null || sections.size() <= MIN_SECTIONS_PER_TASK) {
+            sections.forEach((IniSection sec) -> {
+                trafficSim.addEvent(parseEvent(sec, ids));
+            });
+            return;
+        }
+        Event[] events = new Event[sections.size()];
+        RuntimeException error = parseEvents(pool, sections, ids, events);
+        for (Event e : events) {
+            if (e == null) {
+                throw error;
+            }
+            trafficSim.addEvent(e);
+        }
+    }
+
+    /**
+     * Parses the events of some sections in parallel. The sections are split
+     * in chunks of consecutive sections and every chunk is parsed up to its
+     * first wrong section. The events are added to the simulator afterwards
+     * in the order of the sections up to the first wrong one, whose error is
+     * thrown, so the result is the same as when parsing on a single thread.
+     * Every chunk interns its ids in a table of its own, and the tables are
+     * added to the ids of the simulated objects in the order of the chunks,
+     * so the handles of the ids are also the ones given on a single thread.
+     *
+     * @param pool Pool of the simulator
+     * @param sections
+     * @param ids Ids of the simulated objects
+     * @param events Returns the events of the sections, null from the first
+     * wrong section of every chunk
+     * @return Error of the first wrong section, null if there is none
+     */
+    private RuntimeException parseEvents(ForkJoinPool pool,
+            List<IniSection> sections, SymbolTable ids, Event[] events) {
+        int chunkSize = Math.max(MIN_SECTIONS_PER_TASK,
+                sections.size() / (4 * pool.getParallelism()));
+        List<Callable<RuntimeException>> tasks = new ArrayList<>();
+        List<SymbolTable> chunkIds = new ArrayList<>();
+        for (int from = 0; from < sections.size(); from += chunkSize) {
+            int first = from;
+            int last = Math.min(sections.size(), from + chunkSize);
+            SymbolTable table = new SymbolTable();
+            chunkIds.add(table);
+            tasks.add(() -> {
+                for (int i = first; i < last; i++) {
+                    try {
+                        events[i] = parseEvent(sections.get(i), table);
+                    } catch (RuntimeException e) {
+                        return e;
+                    }
+                }
+                return null;
+            });
+        }
+        try {
+            List<Future<RuntimeException>> results = pool.invokeAll(tasks);
+            for (int c = 0; c < results.size(); c++) {
+                SymbolTable table = chunkIds.get(c);
+                for (int handle = 0; handle < table.size(); handle++) {
+                    ids.intern(table.symbol(handle));
                 }
-                trafficSim.addEvent(newEvent);
-            } catch (NullPointerException e) {
-                throw new SimulatorError("The event was not correctly defined", e);
-            } catch (NumberFormatException e) {
-                throw new SimulatorError("A numeric field is not correctly filled out", e);
+                RuntimeException e = results.get(c).get();
+                if (e != null) {
+                    return e;
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SimulatorError("Interrupted while parsing the events", e);
+        } catch (ExecutionException e) {
+            throw new SimulatorError("Error while parsing the events", e.getCause());
+        }
+    }
+
+    /**
+     * Parses the event of a section.
+     *
+     * @param sec Information about the event
+     * @param ids Ids of the simulated objects, where the ids of the event are
+     * interned
+     * @return New event
+     * @throws SimulatorError if the section is not a valid event
+     */
+    static Event parseEvent(IniSection sec, SymbolTable ids) throws SimulatorError {
+        try {
+            Event newEvent = parse(sec, ids);
+            if (newEvent == null) {
+                throw new SimulatorError("The section with tag " + sec.getTag()
+                        + " is not a valid event");
             }
-        });
+            return newEvent;
+        } catch (NullPointerException e) {
+            throw new SimulatorError("The event was not correctly defined", e);
+        } catch (NumberFormatException e) {
+            throw new SimulatorError("A numeric field is not correctly filled out", e);
+        }
+    }
+
+    /**
+     * Loads the events of a file as the simulation reaches their time, so
+     * that only the events of the next ticks are kept in memory. Events are
+     * expected to be sorted by time; from the first one out of order the rest
+     * are sorted in temporary files. The events are checked as they are read,
+     * so the errors of the file may be thrown while running.
+     * {@link #closeEvents()} must be called after running, to delete the
+     * temporary files if the simulation stops before the last event.
+     *
+     * @param input File name
+     * @throws IOException If an input or output exception occurred
+     * @throws SimulatorError if a section is not a valid event
+     * @see TrafficSimulator#setEventSource(pr6.model.EventSource)
+     */
+    public void streamEvents(String input) throws IOException, SimulatorError {
+        trafficSim.setEventSource(new StreamingEventLoader(Paths.get(input),
+                trafficSim.getIds()));
+    }
+
+    /**
+     * Stops streaming the events of a file, closing it and deleting its
+     * temporary files.
+     *
+     * @throws SimulatorError if the file can not be closed
+     */
+    public void closeEvents() {
+        trafficSim.setEventSource(null);
     }
 
     /**
@@ -116,7 +257,7 @@ public class Controller {
      */
     public void run(String input, int timeLimit) {
         try {
-            loadEvents(new FileInputStream(input));
+            loadEvents(new Ini(input));
         } catch (IOException | SimulatorError e) {
             throw new SimulatorError("Error while loading events from file "
                     + input, e);
@@ -138,6 +279,14 @@ public class Controller {
         }
     }
 
+    /**
+     * @return Ids of the simulated objects
+     * @see TrafficSimulator#getIds()
+     */
+    public SymbolTable getIds() {
+        return trafficSim.getIds();
+    }
+
     /**
      * @return the default time value of the simulation
      */
@@ -154,6 +303,25 @@ public class Controller {
         trafficSim.addSimulatorListener(newListener);
     }
 
+    /**
+     * Adds a new listener which is notified on a thread of its own.
+     *
+     * @param newListener
+     */
+    public void addAsyncSimulatorListener(TrafficSimulator.TrafficSimulatorListener newListener) {
+        trafficSim.addAsyncSimulatorListener(newListener);
+    }
+
+    /**
+     * Sets how often the listeners are notified of the advances.
+     *
+     * @param ticksInterval Number of ticks between notifications
+     * @param millisInterval Milliseconds between notifications
+     */
+    public void setNotificationInterval(int ticksInterval, long millisInterval) {
+        trafficSim.setNotificationInterval(ticksInterval, millisInterval);
+    }
+
     /**
      * Changes the output strem.
      *
@@ -163,6 +331,125 @@ public class Controller {
         trafficSim.setOutputStream(output);
     }
 
+    /**
+     * Changes the output to a channel with a buffer of the given size.
+     *
+     * @param channel
+     * @param bufferSize Number of bytes of the buffer
+     */
+    public void setOutputChannel(WritableByteChannel channel, int bufferSize) {
+        trafficSim.setOutputChannel(channel, bufferSize);
+    }
+
+    /**
+     * Sets the format of the reports.
+     *
+     * @param format
+     * @param keyframeInterval Number of ticks between keyframes of the binary
+     * format
+     */
+    public void setReportFormat(TrafficSimulator.ReportFormat format,
+            int keyframeInterval) {
+        trafficSim.setReportFormat(format, keyframeInterval);
+    }
+
+    /**
+     * Sets the delta mode, in which only the objects which changed are
+     * written.
+     *
+     * @param keyframeInterval Number of ticks between full reports, 0 to
+     * write every report every tick
+     */
+    public void setDeltaReports(int keyframeInterval) {
+        trafficSim.setDeltaReports(keyframeInterval);
+    }
+
+    /**
+     * Sets the ticks and objects whose reports are written.
+     *
+     * @param filter Ticks and objects reported, null to report everything
+     */
+    public void setReportFilter(ReportFilter filter) {
+        trafficSim.setReportFilter(filter);
+    }
+
+    /**
+     * Writes the pending reports and the end of the output, and stops writing
+     * reports.
+     */
+    public void closeOutput() {
+        trafficSim.closeOutput();
+    }
+
+    /**
+     * Sets the number of buffers of reports which can be waiting to be written
+     * by a thread of its own, 0 to write them on the simulation thread.
+     *
+     * @param buffers
+     */
+    public void setAsyncReports(int buffers) {
+        trafficSim.setAsyncReports(buffers);
+    }
+
+    /**
+     * Sets whether the reports are compressed in the gzip format, on the
+     * report writer thread.
+     *
+     * @param compress
+     * @param level From 0 to 9, or -1 for the default level
+     */
+    public void setCompressedReports(boolean compress, int level) {
+        trafficSim.setCompressedReports(compress, level);
+    }
+
+    /**
+     * Sets the output of the index of the reports of the current output.
+     *
+     * @param index Output of the index, null to stop indexing the reports
+     */
+    public void setReportIndex(OutputStream index) {
+        trafficSim.setReportIndex(index);
+    }
+
+    /**
+     * Sets whether the reports are written at the end of every tick or only
+     * when the buffer is full.
+     *
+     * @param flush
+     */
+    public void setFlushEveryTick(boolean flush) {
+        trafficSim.setFlushEveryTick(flush);
+    }
+
+    /**
+     * Sets the number of threads used to parse the events and to advance the
+     * simulation.
+     *
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+        trafficSim.setParallelism(parallelism);
+    }
+
+    /**
+     * Sets how the ticks without traffic nor events are simulated.
+     *
+     * @param mode
+     */
+    public void setFastForward(TrafficSimulator.FastForward mode) {
+        trafficSim.setFastForward(mode);
+    }
+
+    /**
+     * Sets the kind of random number generator of the cars which do not
+     * choose one in their event.
+     *
+     * @param mode
+     */
+    public void setRandomMode(Car.RandomMode mode) {
+        trafficSim.setRandomMode(mode);
+    }
+
     /**
      * Resets the simulator.
      */
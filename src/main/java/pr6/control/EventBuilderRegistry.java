@@ -0,0 +1,106 @@
+package pr6.control;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import pr6.events.Event;
+import pr6.ini.IniSection;
+import pr6.util.SymbolTable;
+
+/**
+ * Finds the builder of the event of a section by its tag and the value of its
+ * key "type", instead of trying every builder in turn.
+ *
+ * A section is parsed by the builder of its tag and type, if there is one,
+ * then by the builder of its tag for any type, and at last by the builders
+ * without a tag, in the order in which they were registered. A builder
+ * registered for the same tag and type as another one replaces it.
+ *
+ * Builders can be added without changing the simulator by listing them in a
+ * provider-configuration file {@code META-INF/services/pr6.events.Event$Builder}
+ * on the class path, as described by {@link ServiceLoader}.
+ *
+ * The registry is not synchronized; builders have to be registered before
+ * sections are parsed.
+ */
+public class EventBuilderRegistry {
+
+    /**
+     * Builders by tag and then by type, the ones for any type with a null
+     * type
+     */
+    private final Map<String, Map<String, Event.Builder>> builders = new HashMap<>();
+    /**
+     * Builders without a tag, tried with every section
+     */
+    private final List<Event.Builder> others = new ArrayList<>();
+
+    /**
+     * Creates a registry with the given builders followed by the ones found
+     * by the {@link ServiceLoader}.
+     *
+     * @param builders
+     * @return the registry
+     */
+    public static EventBuilderRegistry load(Event.Builder... builders) {
+        EventBuilderRegistry registry = new EventBuilderRegistry();
+        for (Event.Builder builder : builders) {
+            registry.register(builder);
+        }
+        for (Event.Builder builder : ServiceLoader.load(Event.Builder.class)) {
+            registry.register(builder);
+        }
+        return registry;
+    }
+
+    /**
+     * Adds a builder, which replaces the one of its tag and type.
+     *
+     * @param builder
+     * @return this registry
+     * @see Event.Builder#getTag()
+     * @see Event.Builder#getType()
+     */
+    public EventBuilderRegistry register(Event.Builder builder) {
+        String tag = builder.getTag();
+        if (tag == null) {
+            others.add(builder);
+        } else {
+            builders.computeIfAbsent(tag, t -> new HashMap<>())
+                    .put(builder.getType(), builder);
+        }
+        return this;
+    }
+
+    /**
+     * Parses the event of a section.
+     *
+     * @param sec Information about the event
+     * @param ids Ids of the simulated objects, where the ids of the event are
+     * interned
+     * @return New event, null if no builder parses the section
+     */
+    public Event parse(IniSection sec, SymbolTable ids) {
+        Event event = null;
+        Map<String, Event.Builder> types = builders.get(sec.getTag());
+        if (types != null) {
+            String type = sec.getValue("type");
+            Event.Builder builder = types.get(type);
+            if (builder != null) {
+                event = builder.parse(sec, ids);
+            }
+            if (event == null && type != null) {
+                builder = types.get(null);
+                if (builder != null) {
+                    event = builder.parse(sec, ids);
+                }
+            }
+        }
+        for (int i = 0; event == null && i < others.size(); i++) {
+            event = others.get(i).parse(sec, ids);
+        }
+        return event;
+    }
+}
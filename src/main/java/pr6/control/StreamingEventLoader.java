@@ -0,0 +1,340 @@
+package pr6.control;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import pr6.events.Event;
+import pr6.exception.SimulatorError;
+import pr6.ini.IniSection;
+import pr6.ini.IniSectionReader;
+import pr6.ini.IniStreamWriter;
+import pr6.model.EventSource;
+import pr6.util.SymbolTable;
+
+/**
+ * Source of the events of a file, read as the simulation reaches their time.
+ *
+ * The file is read once, assuming that its events are sorted by time, and
+ * every event is checked when it is read. A window of a fixed number of
+ * events is read ahead of the simulation, so that an event out of order is
+ * found before the events of the window are simulated. From the first event
+ * out of order, the window and the rest of the file are sorted in runs of
+ * that number of sections written to temporary files, which are merged as the
+ * events are read; events of the same time keep the order of the file. Events
+ * earlier than the ones already simulated can not be streamed and are an
+ * error.
+ */
+class StreamingEventLoader implements EventSource {
+
+    /**
+     * Number of sections read ahead and sorted in memory at a time
+     */
+    private static final int RUN_SIZE = 1 << 16;
+    private final int runSize;
+    /**
+     * Ids of the simulated objects, where the ids of the events are interned
+     */
+    private final SymbolTable ids;
+    /**
+     * The file while it is read as sorted, null once read or sorted
+     */
+    private FileChannel input;
+    private IniSectionReader reader;
+    /**
+     * Sections and events read ahead while the file is sorted
+     */
+    private final ArrayDeque<IniSection> aheadSections = new ArrayDeque<>();
+    private final ArrayDeque<Event> ahead = new ArrayDeque<>();
+    /**
+     * Time of the last event read from the file while it is sorted
+     */
+    private int lastRead = Integer.MIN_VALUE;
+    /**
+     * Time of the last event given to the simulator
+     */
+    private int lastGiven = Integer.MIN_VALUE;
+    private final List<FileChannel> channels = new ArrayList<>();
+    private final List<Path> temporaryFiles = new ArrayList<>();
+    /**
+     * Next event of every run, by time and then by run, once the file is
+     * sorted
+     */
+    private final PriorityQueue<Run> runs = new PriorityQueue<>((a, b)
+            -> (a.event.getScheduleTime() != b.event.getScheduleTime())
+            ? Integer.compare(a.event.getScheduleTime(), b.event.getScheduleTime())
+            : Integer.compare(a.index, b.index));
+
+    /**
+     * Class constructor specifying the file of the events and the ids of the
+     * simulated objects.
+     *
+     * @param file
+     * @param ids
+     * @throws IOException
+     * @throws SimulatorError if a section of the first window is not a valid
+     * event
+     */
+    StreamingEventLoader(Path file, SymbolTable ids) throws IOException, SimulatorError {
+        this(file, ids, RUN_SIZE);
+    }
+
+    /**
+     * Class constructor specifying the file of the events, the ids of the
+     * simulated objects and the number of sections read ahead and sorted in
+     * memory at a time.
+     *
+     * @param file
+     * @param ids
+     * @param runSize
+     * @throws IOException
+     * @throws SimulatorError if a section of the first window is not a valid
+     * event
+     */
+    StreamingEventLoader(Path file, SymbolTable ids, int runSize)
+            throws IOException, SimulatorError {
+        this.runSize = runSize;
+        this.ids = ids;
+        try {
+            input = FileChannel.open(file, StandardOpenOption.READ);
+            reader = new IniSectionReader(input);
+            readAhead();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the events of the file until the window is full, and sorts the
+     * rest of the file if an event is out of order.
+     *
+     * @throws IOException
+     * @throws SimulatorError if a section is not a valid event, or if an
+     * event is earlier than the ones already simulated
+     */
+    private void readAhead() throws IOException, SimulatorError {
+        while (reader != null && ahead.size() < runSize) {
+            IniSection section = reader.next();
+            if (section == null) {
+                closeInput();
+                return;
+            }
+            Event event = Controller.parseEvent(section, ids);
+            if (event.getScheduleTime() < lastRead) {
+                sortRuns(section, event);
+                return;
+            }
+            aheadSections.add(section);
+            ahead.add(event);
+            lastRead = event.getScheduleTime();
+        }
+    }
+
+    /**
+     * Writes the sections read ahead and the rest of the file in sorted runs
+     * to temporary files.
+     *
+     * @param outOfOrder First section out of order
+     * @param event Event of that section
+     * @throws IOException
+     * @throws SimulatorError if a section is not a valid event, or if an
+     * event is earlier than the ones already simulated
+     */
+    private void sortRuns(IniSection outOfOrder, Event event)
+            throws IOException, SimulatorError {
+        List<IniSection> sections = new ArrayList<>(aheadSections);
+        List<Integer> times = new ArrayList<>();
+        for (Event e : ahead) {
+            times.add(e.getScheduleTime());
+        }
+        sections.add(outOfOrder);
+        times.add(event.getScheduleTime());
+        aheadSections.clear();
+        ahead.clear();
+        int first = Integer.MAX_VALUE;
+        IniSection section;
+        do {
+            section = reader.next();
+            if (section != null) {
+                sections.add(section);
+                times.add(Controller.parseEvent(section, ids).getScheduleTime());
+            }
+            if (sections.size() >= runSize
+                    || (section == null && !sections.isEmpty())) {
+                first = Math.min(first, Collections.min(times));
+                writeRun(sections, times);
+                sections.clear();
+                times.clear();
+            }
+        } while (section != null);
+        closeInput();
+        if (first < lastGiven) {
+            throw new SimulatorError("The event of time " + first + " is out of"
+                    + " order after events of time " + lastGiven + " which have"
+                    + " already been simulated");
+        }
+    }
+    /**
+     * Sorts a run of sections by time and writes it to a temporary file.
+     *
+     * @param sections
+     * @param times Times of the events of the sections
+     * @throws IOException
+     */
+    private void writeRun(List<IniSection> sections, List<Integer> times)
+            throws IOException {
+        List<Integer> order = new ArrayList<>(sections.size());
+        for (int i = 0; i < sections.size(); i++) {
+            order.add(i);
+        }
+        // the sort is stable, so events of the same time keep their order
+        order.sort((a, b) -> Integer.compare(times.get(a), times.get(b)));
+        Path run = Files.createTempFile("events", ".ini");
+        temporaryFiles.add(run);
+        try (OutputStream out = Files.newOutputStream(run)) {
+            IniStreamWriter writer = new IniStreamWriter(out);
+            for (int i : order) {
+                IniSection section = sections.get(i);
+                writer.beginSection(section.getTag());
+                for (String key : section.getKeys()) {
+                    writer.key(key).append(section.getValue(key));
+                }
+                writer.endSection();
+                writer.separator();
+                if (writer.size() >= 1 << 16) {
+                    writer.flush();
+                }
+            }
+            writer.finish();
+        }
+        addRun(run);
+    }
+
+    /**
+     * Starts reading a file of sorted events.
+     *
+     * @param file
+     * @throws IOException
+     */
+    private void addRun(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channels.add(channel);
+        Run run = new Run(new IniSectionReader(channel), channels.size());
+        if (run.advance()) {
+            runs.add(run);
+        }
+    }
+
+    @Override
+    public Integer nextTime() throws IOException {
+        readAhead();
+        if (!ahead.isEmpty()) {
+            return ahead.peek().getScheduleTime();
+        }
+        return runs.isEmpty() ? null : runs.peek().event.getScheduleTime();
+    }
+
+    @Override
+    public Event next() throws IOException {
+        readAhead();
+        Event event;
+        if (!ahead.isEmpty()) {
+            aheadSections.poll();
+            event = ahead.poll();
+        } else {
+            Run run = runs.poll();
+            event = run.event;
+            if (run.advance()) {
+                runs.add(run);
+            }
+        }
+        lastGiven = event.getScheduleTime();
+        if (ahead.isEmpty() && reader == null && runs.isEmpty()) {
+            close();
+        }
+        return event;
+    }
+
+    /**
+     * Closes the file of the events once it has been read.
+     *
+     * @throws IOException
+     */
+    private void closeInput() throws IOException {
+        reader = null;
+        if (input != null) {
+            FileChannel channel = input;
+            input = null;
+            channel.close();
+        }
+    }
+
+    /**
+     * Closes the files and deletes the temporary ones.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        try {
+            closeInput();
+        } catch (IOException e) {
+            error = e;
+        }
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                error = (error == null) ? e : error;
+            }
+        }
+        channels.clear();
+        for (Path file : temporaryFiles) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                error = (error == null) ? e : error;
+            }
+        }
+        temporaryFiles.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Sorted events of a file and the next of them.
+     */
+    private final class Run {
+
+        private final IniSectionReader reader;
+        private final int index;
+        private Event event = null;
+
+        Run(IniSectionReader reader, int index) {
+            this.reader = reader;
+            this.index = index;
+        }
+
+        /**
+         * Reads the next event.
+         *
+         * @return false if there are no more events
+         * @throws IOException
+         */
+        boolean advance() throws IOException {
+            IniSection section = reader.next();
+            event = (section == null) ? null : Controller.parseEvent(section, ids);
+            return event != null;
+        }
+    }
+}
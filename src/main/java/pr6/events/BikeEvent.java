@@ -4,6 +4,7 @@ import pr6.exception.SimulatorError;
 import pr6.ini.IniSection;
 import pr6.model.Bike;
 import pr6.model.RoadMap;
+import pr6.util.SymbolTable;
 
 /**
  * Creates a new bike.
@@ -25,7 +26,7 @@ public class BikeEvent extends VehicleEvent {
     @Override
     public void execute(RoadMap roadmap) {
         try {
-            roadmap.addVehicle(new Bike(id, maxSpeed,
+            roadmap.addVehicle(new Bike(roadmap.getVehicleTable(), id, maxSpeed,
                     roadmap.getItinerary(itinerary)));
         } catch (SimulatorError e) {
             throw e;
@@ -39,15 +40,30 @@ public class BikeEvent extends VehicleEvent {
      */
     public static class Builder implements Event.Builder {
 
+        @Override
+        public String getTag() {
+            return "new_vehicle";
+        }
+
+        @Override
+        public String getType() {
+            return "bike";
+        }
+
         @Override
         public Event parse(IniSection sec) {
+            return parse(sec, new SymbolTable());
+        }
+
+        @Override
+        public Event parse(IniSection sec, SymbolTable ids) {
             if (!"new_vehicle".equals(sec.getTag())
                     || !"bike".equals(sec.getValue("type"))) {
                 return null;
             }
             return new BikeEvent(
-                    parseInt(sec, "time", 0), parseString(sec, "id"),
-                    parseStringList(sec, "itinerary"), parseInt(sec, "max_speed", 1)
+                    parseInt(sec, "time", 0), parseString(sec, "id", ids),
+                    parseStringList(sec, "itinerary", ids), parseInt(sec, "max_speed", 1)
             );
         }
     }
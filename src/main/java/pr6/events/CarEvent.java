@@ -4,6 +4,7 @@ import pr6.exception.SimulatorError;
 import pr6.ini.IniSection;
 import pr6.model.Car;
 import pr6.model.RoadMap;
+import pr6.util.SymbolTable;
 
 /**
  * Creates a new car.
@@ -23,6 +24,10 @@ public class CarEvent extends VehicleEvent {
      * Seed for random number generator
      */
     private final long seed;
+    /**
+     * Kind of random number generator, null for the one of the road map
+     */
+    private final Car.RandomMode randomMode;
 
     /**
      * Class constructor specifying time, id, itinerary, maximum speed,
@@ -40,18 +45,45 @@ public class CarEvent extends VehicleEvent {
     public CarEvent(int time, String id, String[] itinerary, int maxSpeed,
             int resistance, double faultProbability, int maxFaultDuration,
             long seed) {
+        this(time, id, itinerary, maxSpeed, resistance, faultProbability,
+                maxFaultDuration, seed, null);
+    }
+
+    /**
+     * Class constructor specifying time, id, itinerary, maximum speed,
+     * resistance, probability of breaking, maximum duration if broken, seed
+     * and kind of random number generator.
+     *
+     * @param time When the event occurs
+     * @param id
+     * @param itinerary
+     * @param maxSpeed
+     * @param resistance
+     * @param faultProbability Probability of breaking
+     * @param maxFaultDuration Maximum duration if broken
+     * @param seed Seed for random number generator
+     * @param randomMode Kind of random number generator, null for the one of
+     * the road map
+     * @see pr6.model.RoadMap#getRandomMode()
+     */
+    public CarEvent(int time, String id, String[] itinerary, int maxSpeed,
+            int resistance, double faultProbability, int maxFaultDuration,
+            long seed, Car.RandomMode randomMode) {
         super(time, id, maxSpeed, itinerary);
         this.maxFaultDuration = maxFaultDuration;
         this.resistance = resistance;
         this.faultProbability = faultProbability;
         this.seed = seed;
+        this.randomMode = randomMode;
     }
 
     @Override
     public void execute(RoadMap roadmap) {
         try {
-            roadmap.addVehicle(new Car(id, maxSpeed, roadmap.getItinerary(itinerary),
-                    resistance, faultProbability, maxFaultDuration, seed));
+            roadmap.addVehicle(new Car(roadmap.getVehicleTable(), id, maxSpeed,
+                    roadmap.getItinerary(itinerary), resistance, faultProbability,
+                    maxFaultDuration, seed, (randomMode == null)
+                    ? roadmap.getRandomMode() : randomMode));
         } catch (SimulatorError e) {
             throw e;
         }
@@ -64,20 +96,56 @@ public class CarEvent extends VehicleEvent {
      */
     public static class Builder implements Event.Builder {
 
+        @Override
+        public String getTag() {
+            return "new_vehicle";
+        }
+
+        @Override
+        public String getType() {
+            return "car";
+        }
+
         @Override
         public Event parse(IniSection sec) {
+            return parse(sec, new SymbolTable());
+        }
+
+        @Override
+        public Event parse(IniSection sec, SymbolTable ids) {
             if (!"new_vehicle".equals(sec.getTag())
                     || !"car".equals(sec.getValue("type"))) {
                 return null;
             }
             return new CarEvent(
-                    parseInt(sec, "time", 0), parseString(sec, "id"),
-                    parseStringList(sec, "itinerary"),
+                    parseInt(sec, "time", 0), parseString(sec, "id", ids),
+                    parseStringList(sec, "itinerary", ids),
                     parseInt(sec, "max_speed", 1), parseInt(sec, "resistance", 1),
                     parseDouble(sec, "fault_probability", 0, 1),
                     parseInt(sec, "max_fault_duration", 0),
-                    parseLongOrMills(sec, "seed")
+                    parseLongOrMills(sec, "seed"),
+                    parseRandomMode(sec, "rng")
             );
         }
+
+        /**
+         * Parses the kind of random number generator: "random" or "counter".
+         *
+         * @param sec Information about the event
+         * @param key Identification word
+         * @return Valid value, null if there is none, for the kind of the
+         * road map
+         */
+        private Car.RandomMode parseRandomMode(IniSection sec, String key) {
+            String v = sec.getValue(key);
+            if (v == null) {
+                return null;
+            } else if ("random".equals(v)) {
+                return Car.RandomMode.RANDOM;
+            } else if ("counter".equals(v)) {
+                return Car.RandomMode.COUNTER;
+            }
+            throw new IllegalArgumentException(v + " is not a valid " + key);
+        }
     }
 }
@@ -3,6 +3,7 @@ package pr6.events;
 import pr6.ini.IniSection;
 import pr6.model.DirtRoad;
 import pr6.model.RoadMap;
+import pr6.util.SymbolTable;
 
 /**
  * Creates a new dirt road.
@@ -42,15 +43,30 @@ public class DirtRoadEvent extends RoadEvent {
      */
     public static class Builder implements Event.Builder {
 
+        @Override
+        public String getTag() {
+            return "new_road";
+        }
+
+        @Override
+        public String getType() {
+            return "dirt";
+        }
+
         @Override
         public Event parse(IniSection sec) {
+            return parse(sec, new SymbolTable());
+        }
+
+        @Override
+        public Event parse(IniSection sec, SymbolTable ids) {
             if (!"new_road".equals(sec.getTag())
                     || !"dirt".equals(sec.getValue("type"))) {
                 return null;
             }
             return new DirtRoadEvent(
-                    parseInt(sec, "time", 0), parseString(sec, "id"),
-                    parseString(sec, "src"), parseString(sec, "dest"),
+                    parseInt(sec, "time", 0), parseString(sec, "id", ids),
+                    parseString(sec, "src", ids), parseString(sec, "dest", ids),
                     parseInt(sec, "max_speed", 1), parseInt(sec, "length", 1)
             );
         }
@@ -3,6 +3,7 @@ package pr6.events;
 import java.util.Map;
 import pr6.ini.IniSection;
 import pr6.model.RoadMap;
+import pr6.util.SymbolTable;
 import pr6.view.Describable;
 
 /**
@@ -60,6 +61,47 @@ public abstract class Event implements Comparable<Event>, Describable {
          */
         public abstract Event parse(IniSection ini);
 
+        /**
+         * Parses an Event given an IniSection, interning its ids in the ids of
+         * the simulated objects of the simulator. By default the event is
+         * parsed by {@link #parse(IniSection)} and the id of the section, if
+         * any, is interned afterwards.
+         *
+         * @param ini Information about the event
+         * @param ids Ids of the simulated objects of the simulator
+         * @return parsed event
+         * @see pr6.model.RoadMap#getIds()
+         */
+        default Event parse(IniSection ini, SymbolTable ids) {
+            Event event = parse(ini);
+            String id = ini.getValue("id");
+            if (event != null && id != null && Ids.isValid(id)) {
+                ids.intern(id);
+            }
+            return event;
+        }
+
+        /**
+         * Returns the tag of the sections parsed, so that the builder is only
+         * tried with them.
+         *
+         * @return tag of the sections, null if the builder has to be tried
+         * with every section not parsed by another builder
+         */
+        default String getTag() {
+            return null;
+        }
+
+        /**
+         * Returns the value of the key "type" of the sections parsed.
+         *
+         * @return type of the sections, null if the builder parses the
+         * sections of its tag of any type without a builder of its own
+         */
+        default String getType() {
+            return null;
+        }
+
         /**
          * Parses an identification.
          *
@@ -69,7 +111,7 @@ public abstract class Event implements Comparable<Event>, Describable {
          */
         default String parseString(IniSection sec, String key) {
             String v = sec.getValue(key);
-            if (!v.matches("[a-zA-Z0-9_]+")) {
+            if (!Ids.isValid(v)) {
                 throw new IllegalArgumentException(
                         (v.isEmpty()) ? "Not " + key + " provided"
                         : v + " is not a valid " + key);
@@ -77,6 +119,18 @@ public abstract class Event implements Comparable<Event>, Describable {
             return v;
         }
 
+        /**
+         * Parses an identification.
+         *
+         * @param sec Information about the event
+         * @param key Identification value
+         * @param ids Ids of the simulated objects
+         * @return valid id, interned in the ids of the simulated objects
+         */
+        default String parseString(IniSection sec, String key, SymbolTable ids) {
+            return ids.internString(parseString(sec, key));
+        }
+
         /**
          * Parses an integer value.
          *
@@ -106,16 +160,34 @@ public abstract class Event implements Comparable<Event>, Describable {
          * @return List of correct identification words
          */
         default String[] parseStringList(IniSection sec, String key) {
-            String[] v = sec.getValue(key).split("[, ]+");
-            for (String c : v) {
-                if (!c.matches("[a-zA-Z0-9_]+")) {
-                    throw new IllegalArgumentException(c + " is not a valid id"
+            String[] v = Ids.split(sec.getValue(key));
+            for (String id : v) {
+                if (!Ids.isValid(id)) {
+                    throw new IllegalArgumentException(id + " is not a valid id"
                             + " in the list " + key);
                 }
             }
             return v;
         }
 
+        /**
+         * Parses a list of strings.
+         *
+         * @param sec Information about the event
+         * @param key Identification word
+         * @param ids Ids of the simulated objects
+         * @return List of correct identification words, interned in the ids
+         * of the simulated objects
+         */
+        default String[] parseStringList(IniSection sec, String key,
+                SymbolTable ids) {
+            String[] v = parseStringList(sec, key);
+            for (int i = 0; i < v.length; i++) {
+                v[i] = ids.internString(v[i]);
+            }
+            return v;
+        }
+
         /**
          * Parses a double value.
          *
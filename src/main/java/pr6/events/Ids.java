@@ -0,0 +1,70 @@
+package pr6.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks and splits the ids of the events without regular expressions.
+ */
+final class Ids {
+
+    private Ids() {
+    }
+
+    /**
+     * Checks an id as the pattern "[a-zA-Z0-9_]+" would.
+     *
+     * @param id
+     * @return true if the id is valid
+     */
+    static boolean isValid(String id) {
+        int length = id.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                    || (c >= '0' && c <= '9') || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits a list of ids as {@code list.split("[, ]+")} would: a separator
+     * at the beginning gives an empty first id, and the empty ids at the end
+     * are removed.
+     *
+     * @param list
+     * @return ids of the list
+     */
+    static String[] split(String list) {
+        List<String> ids = new ArrayList<>();
+        int length = list.length();
+        int start = 0;
+        int i = 0;
+        while (i < length) {
+            char c = list.charAt(i);
+            if (c == ',' || c == ' ') {
+                ids.add(list.substring(start, i));
+                while (i < length && (list.charAt(i) == ',' || list.charAt(i) == ' ')) {
+                    i++;
+                }
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        if (ids.isEmpty()) {
+            return new String[]{list};
+        }
+        ids.add(list.substring(start));
+        int size = ids.size();
+        while (size > 0 && ids.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return ids.subList(0, size).toArray(new String[size]);
+    }
+}
@@ -4,6 +4,7 @@ import java.util.Map;
 import pr6.ini.IniSection;
 import pr6.model.Junction;
 import pr6.model.RoadMap;
+import pr6.util.SymbolTable;
 
 /**
  * Creates a new junction.
@@ -41,12 +42,22 @@ public class JunctionEvent extends Event {
      */
     public static class Builder implements Event.Builder {
 
+        @Override
+        public String getTag() {
+            return "new_junction";
+        }
+
         @Override
         public Event parse(IniSection sec) {
+            return parse(sec, new SymbolTable());
+        }
+
+        @Override
+        public Event parse(IniSection sec, SymbolTable ids) {
             if (!"new_junction".equals(sec.getTag())) {
                 return null;
             }
-            return new JunctionEvent(parseInt(sec, "time", 0), parseString(sec, "id"));
+            return new JunctionEvent(parseInt(sec, "time", 0), parseString(sec, "id", ids));
         }
     }
 }
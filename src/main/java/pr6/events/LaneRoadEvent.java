@@ -3,6 +3,7 @@ package pr6.events;
 import pr6.ini.IniSection;
 import pr6.model.LaneRoad;
 import pr6.model.RoadMap;
+import pr6.util.SymbolTable;
 
 /**
  * Creates a new lane road.
@@ -47,15 +48,30 @@ public class LaneRoadEvent extends RoadEvent {
      */
     public static class Builder implements Event.Builder {
 
+        @Override
+        public String getTag() {
+            return "new_road";
+        }
+
+        @Override
+        public String getType() {
+            return "lanes";
+        }
+
         @Override
         public Event parse(IniSection sec) {
+            return parse(sec, new SymbolTable());
+        }
+
+        @Override
+        public Event parse(IniSection sec, SymbolTable ids) {
             if (!"new_road".equals(sec.getTag())
                     || !"lanes".equals(sec.getValue("type"))) {
                 return null;
             }
             return new LaneRoadEvent(
-                    parseInt(sec, "time", 0), parseString(sec, "id"),
-                    parseString(sec, "src"), parseString(sec, "dest"),
+                    parseInt(sec, "time", 0), parseString(sec, "id", ids),
+                    parseString(sec, "src", ids), parseString(sec, "dest", ids),
                     parseInt(sec, "max_speed", 1), parseInt(sec, "length", 1),
                     parseInt(sec, "lanes", 1));
         }
@@ -3,6 +3,7 @@ package pr6.events;
 import pr6.ini.IniSection;
 import pr6.model.RoadMap;
 import pr6.model.MostCrowdedJunction;
+import pr6.util.SymbolTable;
 
 /**
  * Creates a new most crowded junction.
@@ -31,14 +32,29 @@ public class MostCrowdedJunctionEvent extends JunctionEvent {
      */
     public static class Builder implements Event.Builder {
 
+        @Override
+        public String getTag() {
+            return "new_junction";
+        }
+
+        @Override
+        public String getType() {
+            return "mc";
+        }
+
         @Override
         public Event parse(IniSection sec) {
+            return parse(sec, new SymbolTable());
+        }
+
+        @Override
+        public Event parse(IniSection sec, SymbolTable ids) {
             if (!"new_junction".equals(sec.getTag())
                     || !"mc".equals(sec.getValue("type"))) {
                 return null;
             }
             return new MostCrowdedJunctionEvent(parseInt(sec, "time", 0),
-                    parseString(sec, "id"));
+                    parseString(sec, "id", ids));
         }
     }
 }
@@ -4,6 +4,7 @@ import java.util.Map;
 import pr6.ini.IniSection;
 import pr6.model.Road;
 import pr6.model.RoadMap;
+import pr6.util.SymbolTable;
 
 /**
  * Creates a new road.
@@ -61,14 +62,24 @@ public class RoadEvent extends Event {
 
     public static class Builder implements Event.Builder {
 
+        @Override
+        public String getTag() {
+            return "new_road";
+        }
+
         @Override
         public Event parse(IniSection sec) {
+            return parse(sec, new SymbolTable());
+        }
+
+        @Override
+        public Event parse(IniSection sec, SymbolTable ids) {
             if (!"new_road".equals(sec.getTag())) {
                 return null;
             }
             return new RoadEvent(
-                    parseInt(sec, "time", 0), parseString(sec, "id"),
-                    parseString(sec, "src"), parseString(sec, "dest"),
+                    parseInt(sec, "time", 0), parseString(sec, "id", ids),
+                    parseString(sec, "src", ids), parseString(sec, "dest", ids),
                     parseInt(sec, "max_speed", 1), parseInt(sec, "length", 1)
             );
         }
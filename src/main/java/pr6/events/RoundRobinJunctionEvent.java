@@ -3,6 +3,7 @@ package pr6.events;
 import pr6.ini.IniSection;
 import pr6.model.RoadMap;
 import pr6.model.RoundRobinJunction;
+import pr6.util.SymbolTable;
 
 /**
  * Creates a new round robin junction.
@@ -40,14 +41,29 @@ public class RoundRobinJunctionEvent extends JunctionEvent {
      */
     public static class Builder implements Event.Builder {
 
+        @Override
+        public String getTag() {
+            return "new_junction";
+        }
+
+        @Override
+        public String getType() {
+            return "rr";
+        }
+
         @Override
         public Event parse(IniSection sec) {
+            return parse(sec, new SymbolTable());
+        }
+
+        @Override
+        public Event parse(IniSection sec, SymbolTable ids) {
             if (!"new_junction".equals(sec.getTag())
                     || !"rr".equals(sec.getValue("type"))) {
                 return null;
             }
             return new RoundRobinJunctionEvent(
-                    parseInt(sec, "time", 0), parseString(sec, "id"),
+                    parseInt(sec, "time", 0), parseString(sec, "id", ids),
                     parseInt(sec, "min_time_slice", 1),
                     parseInt(sec, "max_time_slice", 1));
         }
@@ -5,6 +5,7 @@ import pr6.exception.SimulatorError;
 import pr6.ini.IniSection;
 import pr6.model.RoadMap;
 import pr6.model.Vehicle;
+import pr6.util.SymbolTable;
 
 /**
  * Creates a new vehicle.
@@ -33,7 +34,7 @@ public class VehicleEvent extends Event {
     @Override
     public void execute(RoadMap roadmap) {
         try {
-            roadmap.addVehicle(new Vehicle(id, maxSpeed,
+            roadmap.addVehicle(new Vehicle(roadmap.getVehicleTable(), id, maxSpeed,
                     roadmap.getItinerary(itinerary)));
         } catch (SimulatorError e) {
             throw e;
@@ -53,14 +54,24 @@ public class VehicleEvent extends Event {
      */
     public static class Builder implements Event.Builder {
 
+        @Override
+        public String getTag() {
+            return "new_vehicle";
+        }
+
         @Override
         public Event parse(IniSection sec) {
+            return parse(sec, new SymbolTable());
+        }
+
+        @Override
+        public Event parse(IniSection sec, SymbolTable ids) {
             if (!"new_vehicle".equals(sec.getTag())) {
                 return null;
             }
             return new VehicleEvent(
-                    parseInt(sec, "time", 0), parseString(sec, "id"),
-                    parseInt(sec, "max_speed", 1), parseStringList(sec, "itinerary")
+                    parseInt(sec, "time", 0), parseString(sec, "id", ids),
+                    parseInt(sec, "max_speed", 1), parseStringList(sec, "itinerary", ids)
             );
         }
     }
@@ -3,6 +3,7 @@ package pr6.events;
 import java.util.Map;
 import pr6.ini.IniSection;
 import pr6.model.RoadMap;
+import pr6.util.SymbolTable;
 
 /**
  * Breaks down an existing vehicle.
@@ -49,13 +50,23 @@ public class VehicleFaultyEvent extends Event {
      */
     public static class Builder implements Event.Builder {
 
+        @Override
+        public String getTag() {
+            return "make_vehicle_faulty";
+        }
+
         @Override
         public Event parse(IniSection sec) {
+            return parse(sec, new SymbolTable());
+        }
+
+        @Override
+        public Event parse(IniSection sec, SymbolTable ids) {
             if (!"make_vehicle_faulty".equals(sec.getTag())) {
                 return null;
             }
             return new VehicleFaultyEvent(
-                    parseInt(sec, "time", 0), parseStringList(sec, "vehicles"),
+                    parseInt(sec, "time", 0), parseStringList(sec, "vehicles", ids),
                     parseInt(sec, "duration", 1)
             );
         }
@@ -0,0 +1,242 @@
+package pr6.ini;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Constants and encodings shared by {@link BinaryReportWriter} and
+ * {@link BinaryReportReader}.
+ *
+ * A binary report starts with {@link #MAGIC} and {@link #VERSION}, followed by
+ * one block per tick and a footer:
+ * <pre>
+ * block   = (BLOCK | KEYFRAME) time length symbols shapes records
+ *           records-column symbols-column ints-column
+ * footer  = FOOTER count (time offset)*count
+ * trailer = footer-offset (8 bytes) MAGIC
+ * </pre>
+ * Every number is an unsigned varint, except the offset of the footer.
+ * Strings are kept in a dictionary and sections are described by shapes: the
+ * tag, the keys and the characters of a section, with a placeholder for every
+ * string and integer appended. Blocks only contain the strings and shapes they
+ * introduce, the shape of every section and the values of its placeholders,
+ * stored as the difference with the value in the same position of the
+ * previous block. Keyframes start a new dictionary and do not depend on the
+ * previous blocks, so a report can be read from any of them; the footer lists
+ * their times and offsets.
+ */
+final class BinaryReportFormat {
+
+    static final byte[] MAGIC = {'P', 'R', '6', 'R'};
+    static final int VERSION = 1;
+    /**
+     * Tags of the blocks
+     */
+    static final int FOOTER = 0;
+    static final int BLOCK = 1;
+    static final int KEYFRAME = 2;
+    /**
+     * Records of a block: a separator, a comment, or a section whose shape is
+     * the record minus SECTION
+     */
+    static final int SEPARATOR = 0;
+    static final int COMMENT = 1;
+    static final int SECTION = 2;
+    /**
+     * Operations of a shape
+     */
+    static final int OP_BEGIN = 1;
+    static final int OP_KEY = 2;
+    static final int OP_STRING = 3;
+    static final int OP_CHAR = 4;
+    static final int OP_INT = 5;
+    static final int OP_END = 6;
+    /**
+     * Size of the trailer at the end of the report
+     */
+    static final int TRAILER_SIZE = 8 + MAGIC.length;
+
+    private BinaryReportFormat() {
+    }
+
+    /**
+     * @param i
+     * @return the integer mapped to an unsigned one, so that small values
+     * have short varints whatever their sign
+     */
+    static int zigzag(int i) {
+        return (i << 1) ^ (i >> 31);
+    }
+
+    /**
+     * @param i
+     * @return the integer mapped by {@link #zigzag(int)}
+     */
+    static int unzigzag(int i) {
+        return (i >>> 1) ^ -(i & 1);
+    }
+
+    /**
+     * Reads an unsigned varint from a stream.
+     *
+     * @param in
+     * @return the number read
+     * @throws IOException if the stream ends before the number
+     */
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated binary report");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if (b < 0x80) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed binary report");
+    }
+
+    /**
+     * Growing array of bytes where the parts of a block are encoded.
+     */
+    static final class Bytes {
+
+        private byte[] data;
+        private int size = 0;
+
+        Bytes(int capacity) {
+            data = new byte[Math.max(16, capacity)];
+        }
+
+        private void ensureCapacity(int bytes) {
+            if (size + bytes > data.length) {
+                data = Arrays.copyOf(data, Math.max(2 * data.length, size + bytes));
+            }
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            data[size++] = (byte) b;
+        }
+
+        void writeVarInt(int i) {
+            writeVarLong(i & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long l) {
+            ensureCapacity(10);
+            while ((l & ~0x7FL) != 0) {
+                data[size++] = (byte) ((l & 0x7F) | 0x80);
+                l >>>= 7;
+            }
+            data[size++] = (byte) l;
+        }
+
+        void writeLong(long l) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                data[size++] = (byte) (l >>> shift);
+            }
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, data, size, length);
+            size += length;
+        }
+
+        /**
+         * Writes the length of some bytes followed by them.
+         *
+         * @param other
+         */
+        void writeBlob(Bytes other) {
+            writeVarInt(other.size);
+            write(other.data, 0, other.size);
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(data, 0, size);
+        }
+
+        byte[] data() {
+            return data;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Reads the parts of a block from an array of bytes.
+     */
+    static final class Cursor {
+
+        private final byte[] data;
+        private int position;
+        private final int limit;
+
+        Cursor(byte[] data, int position, int limit) {
+            this.data = data;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (position >= limit) {
+                    throw new EOFException("Truncated binary report");
+                }
+                int b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed binary report");
+        }
+
+        /**
+         * Reads the length of some bytes and returns a cursor over them.
+         *
+         * @return cursor over the bytes
+         * @throws IOException if the block ends before them
+         */
+        Cursor readBlob() throws IOException {
+            int length = readVarInt();
+            if (length < 0 || length > limit - position) {
+                throw new EOFException("Truncated binary report");
+            }
+            Cursor blob = new Cursor(data, position, position + length);
+            position += length;
+            return blob;
+        }
+
+        byte[] data() {
+            return data;
+        }
+
+        int position() {
+            return position;
+        }
+
+        int limit() {
+            return limit;
+        }
+
+        boolean hasRemaining() {
+            return position < limit;
+        }
+    }
+}
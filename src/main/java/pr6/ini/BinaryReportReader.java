@@ -0,0 +1,425 @@
+package pr6.ini;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import static pr6.ini.BinaryReportFormat.*;
+
+/**
+ * Reads the reports written by a {@link BinaryReportWriter} and writes them
+ * to another report writer, one block at a time.
+ *
+ * @see BinaryReportFormat
+ */
+public class BinaryReportReader {
+
+    /**
+     * Number of bytes of text kept before flushing it when converting
+     */
+    private static final int CONVERT_BUFFER_SIZE = 1 << 16;
+    private final InputStream in;
+    private final List<String> symbols = new ArrayList<>();
+    private final List<byte[]> shapes = new ArrayList<>();
+    private int[] symbolValues = new int[256];
+    private int[] previousSymbols = new int[256];
+    private int previousSymbolCount = 0;
+    private int[] intValues = new int[256];
+    private int[] previousInts = new int[256];
+    private int previousIntCount = 0;
+    /**
+     * Number of values of the current block and next ones to be replayed
+     */
+    private int symbolCount = 0;
+    private int intCount = 0;
+    private int nextSymbol = 0;
+    private int nextInt = 0;
+    /**
+     * false until a keyframe is read, when starting in the middle of a report
+     */
+    private boolean synced;
+    /**
+     * true if the stream had no report at all
+     */
+    private boolean empty = false;
+    private int time = 0;
+
+    /**
+     * Class constructor specifying the input stream, which must be at the
+     * beginning of a binary report. An empty stream is an empty report.
+     *
+     * @param in
+     * @throws IOException if the stream is not a binary report
+     */
+    public BinaryReportReader(InputStream in) throws IOException {
+        this.in = in;
+        this.synced = true;
+        byte[] header = new byte[MAGIC.length + 1];
+        for (int i = 0; i < header.length; i++) {
+            int b = in.read();
+            if (b < 0 && i == 0) {
+                empty = true;
+                return;
+            } else if (b < 0) {
+                throw new IOException("Not a binary report");
+            }
+            header[i] = (byte) b;
+        }
+        if (!Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC)) {
+            throw new IOException("Not a binary report");
+        }
+        if (header[MAGIC.length] != VERSION) {
+            throw new IOException("Unsupported binary report version: "
+                    + header[MAGIC.length]);
+        }
+    }
+
+    /**
+     * Class constructor for a stream at the beginning of a keyframe.
+     *
+     * @param in
+     * @param synced false if the stream is not at the beginning of the report
+     */
+    private BinaryReportReader(InputStream in, boolean synced) {
+        this.in = in;
+        this.synced = synced;
+    }
+
+    /**
+     * Reads the index of the keyframes of a binary report.
+     *
+     * @param channel
+     * @return offsets of the keyframes by time
+     * @throws IOException if the channel is not a complete binary report
+     */
+    public static NavigableMap<Integer, Long> readIndex(SeekableByteChannel channel)
+            throws IOException {
+        long size = channel.size();
+        if (size < MAGIC.length + 1 + TRAILER_SIZE) {
+            throw new IOException("Not a complete binary report");
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        channel.position(size - TRAILER_SIZE);
+        while (trailer.hasRemaining()) {
+            if (channel.read(trailer) < 0) {
+                throw new EOFException("Truncated binary report");
+            }
+        }
+        trailer.flip();
+        long footer = trailer.getLong();
+        byte[] magic = new byte[MAGIC.length];
+        trailer.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || footer < 0 || footer >= size) {
+            throw new IOException("Not a complete binary report");
+        }
+        channel.position(footer);
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+        if (in.read() != FOOTER) {
+            throw new IOException("Malformed binary report");
+        }
+        NavigableMap<Integer, Long> index = new TreeMap<>();
+        long count = readVarLong(in);
+        for (long i = 0; i < count; i++) {
+            int keyframeTime = (int) readVarLong(in);
+            index.putIfAbsent(keyframeTime, readVarLong(in));
+        }
+        return index;
+    }
+
+    /**
+     * Creates a reader starting at the last keyframe whose time is lower or
+     * equal to the given one, so that the blocks of that time are read after
+     * skipping a few blocks at most.
+     *
+     * @param channel
+     * @param time
+     * @return the reader
+     * @throws IOException if the channel is not a complete binary report
+     */
+    public static BinaryReportReader openAt(SeekableByteChannel channel, int time)
+            throws IOException {
+        Map.Entry<Integer, Long> keyframe = readIndex(channel).floorEntry(time);
+        if (keyframe == null) {
+            channel.position(0);
+            return new BinaryReportReader(
+                    new BufferedInputStream(Channels.newInputStream(channel)));
+        }
+        channel.position(keyframe.getValue());
+        return new BinaryReportReader(
+                new BufferedInputStream(Channels.newInputStream(channel)), false);
+    }
+
+    /**
+     * Checks whether a stream starts with a binary report, without consuming
+     * it.
+     *
+     * @param in Stream supporting mark and reset
+     * @return true if it is a binary report
+     * @throws IOException
+     */
+    public static boolean isBinaryReport(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        try {
+            for (byte b : MAGIC) {
+                if (in.read() != b) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Converts a binary report to the text the simulator would have written.
+     *
+     * @param in Binary report
+     * @param out Output of the text
+     * @throws IOException
+     */
+    public static void toIni(InputStream in, OutputStream out) throws IOException {
+        new BinaryReportReader(new BufferedInputStream(in))
+                .copyTo(new IniStreamWriter(out));
+    }
+
+    /**
+     * @return Time of the last block read
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+     * Reads every block left and writes them to the given writer, which is
+     * flushed every so often and at the end.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void copyTo(ReportWriter out) throws IOException {
+        while (next(out)) {
+            if (out.size() >= CONVERT_BUFFER_SIZE) {
+                out.flush();
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the next block and writes its reports to the given writer.
+     *
+     * @param out Writer receiving the reports, null to skip them
+     * @return false if there are no blocks left
+     * @throws IOException if the report is malformed
+     */
+    public boolean next(ReportWriter out) throws IOException {
+        if (empty) {
+            return false;
+        }
+        int tag = in.read();
+        if (tag < 0 || tag == FOOTER) {
+            return false;
+        }
+        if (tag != BLOCK && tag != KEYFRAME) {
+            throw new IOException("Malformed binary report");
+        }
+        time = (int) readVarLong(in);
+        long length = readVarLong(in);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Malformed binary report");
+        }
+        byte[] data = new byte[(int) length];
+        for (int read = 0; read < length;) {
+            int n = in.read(data, read, (int) length - read);
+            if (n < 0) {
+                throw new EOFException("Truncated binary report");
+            }
+            read += n;
+        }
+        if (tag == KEYFRAME) {
+            synced = true;
+            symbols.clear();
+            shapes.clear();
+            previousSymbolCount = 0;
+            previousIntCount = 0;
+        } else if (!synced) {
+            throw new IOException("Binary report does not start at a keyframe");
+        }
+        readBlock(new Cursor(data, 0, data.length), out);
+        return true;
+    }
+
+    /**
+     * Decodes a block and replays it on the writer.
+     *
+     * @param block
+     * @param out
+     * @throws IOException
+     */
+    private void readBlock(Cursor block, ReportWriter out) throws IOException {
+        for (int n = block.readVarInt(); n > 0; n--) {
+            Cursor s = block.readBlob();
+            symbols.add(new String(s.data(), s.position(), s.limit() - s.position(),
+                    StandardCharsets.UTF_8));
+        }
+        for (int n = block.readVarInt(); n > 0; n--) {
+            Cursor s = block.readBlob();
+            shapes.add(Arrays.copyOfRange(s.data(), s.position(), s.limit()));
+        }
+        int recordCount = block.readVarInt();
+        Cursor records = block.readBlob();
+        symbolCount = decodeSymbols(block.readBlob());
+        intCount = decodeInts(block.readBlob());
+        if (out != null) {
+            out.beginTick(time);
+            replay(records, recordCount, out);
+        }
+        int[] swap = previousSymbols;
+        previousSymbols = symbolValues;
+        symbolValues = swap;
+        previousSymbolCount = symbolCount;
+        swap = previousInts;
+        previousInts = intValues;
+        intValues = swap;
+        previousIntCount = intCount;
+    }
+
+    /**
+     * Decodes the column of strings of a block.
+     *
+     * @param column
+     * @return number of strings
+     * @throws IOException
+     */
+    private int decodeSymbols(Cursor column) throws IOException {
+        int count = 0;
+        while (column.hasRemaining()) {
+            if (count == symbolValues.length) {
+                symbolValues = Arrays.copyOf(symbolValues, 2 * count);
+            }
+            int previous = count < previousSymbolCount ? previousSymbols[count] : 0;
+            int symbol = previous + unzigzag(column.readVarInt());
+            if (symbol < 0 || symbol >= symbols.size()) {
+                throw new IOException("Malformed binary report");
+            }
+            symbolValues[count++] = symbol;
+        }
+        return count;
+    }
+
+    /**
+     * Decodes the column of integers of a block.
+     *
+     * @param column
+     * @return number of integers
+     * @throws IOException
+     */
+    private int decodeInts(Cursor column) throws IOException {
+        int count = 0;
+        while (column.hasRemaining()) {
+            if (count == intValues.length) {
+                intValues = Arrays.copyOf(intValues, 2 * count);
+            }
+            int previous = count < previousIntCount ? previousInts[count] : 0;
+            intValues[count++] = previous + unzigzag(column.readVarInt());
+        }
+        return count;
+    }
+
+    /**
+     * Writes the records of a block with their values.
+     *
+     * @param records
+     * @param recordCount
+     * @param out
+     * @throws IOException
+     */
+    private void replay(Cursor records, int recordCount, ReportWriter out)
+            throws IOException {
+        nextSymbol = 0;
+        nextInt = 0;
+        for (int r = 0; r < recordCount; r++) {
+            int record = records.readVarInt();
+            if (record == SEPARATOR) {
+                out.separator();
+            } else if (record == COMMENT) {
+                out.comment(nextString());
+            } else if (record - SECTION < shapes.size()) {
+                byte[] shape = shapes.get(record - SECTION);
+                Cursor ops = new Cursor(shape, 0, shape.length);
+                while (ops.hasRemaining()) {
+                    switch (ops.readVarInt()) {
+                        case OP_BEGIN:
+                            out.beginSection(symbol(ops.readVarInt()));
+                            break;
+                        case OP_KEY:
+                            out.key(symbol(ops.readVarInt()));
+                            break;
+                        case OP_STRING:
+                            out.append(nextString());
+                            break;
+                        case OP_CHAR:
+                            out.append((char) ops.readVarInt());
+                            break;
+                        case OP_INT:
+                            out.append(nextInt());
+                            break;
+                        case OP_END:
+                            out.endSection();
+                            break;
+                        default:
+                            throw new IOException("Malformed binary report");
+                    }
+                }
+            } else {
+                throw new IOException("Malformed binary report");
+            }
+        }
+    }
+
+    /**
+     * @return the next string of the column of strings
+     * @throws IOException if there is none
+     */
+    private String nextString() throws IOException {
+        if (nextSymbol >= symbolCount) {
+            throw new IOException("Malformed binary report");
+        }
+        return symbols.get(symbolValues[nextSymbol++]);
+    }
+
+    /**
+     * @return the next integer of the column of integers
+     * @throws IOException if there is none
+     */
+    private int nextInt() throws IOException {
+        if (nextInt >= intCount) {
+            throw new IOException("Malformed binary report");
+        }
+        return intValues[nextInt++];
+    }
+
+    /**
+     * @param symbol
+     * @return the string with the given number
+     * @throws IOException if there is none
+     */
+    private String symbol(int symbol) throws IOException {
+        if (symbol < 0 || symbol >= symbols.size()) {
+            throw new IOException("Malformed binary report");
+        }
+        return symbols.get(symbol);
+    }
+}
@@ -0,0 +1,340 @@
+package pr6.ini;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import static pr6.ini.BinaryReportFormat.*;
+
+/**
+ * Report writer which writes the reports in a compact binary format instead
+ * of text. Every tick is written as a block of columns: the shapes of the
+ * sections, the strings and the integers appended to them. Strings are
+ * written once and then referenced by number, and numbers are written as the
+ * difference with the ones of the previous tick, which for most of the
+ * objects is small or zero.
+ *
+ * {@link BinaryReportReader} reads the reports back and writes them to any
+ * other report writer, so that an {@link IniStreamWriter} gets exactly the
+ * same text it would have got from the simulator.
+ *
+ * @see BinaryReportFormat
+ */
+public class BinaryReportWriter implements ReportWriter {
+
+    /**
+     * Number of blocks between keyframes, by default
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 64;
+    private final OutputStream out;
+    private final int keyframeInterval;
+    /**
+     * Blocks encoded and not written yet
+     */
+    private final Bytes pending;
+    /**
+     * Number of bytes written to the output
+     */
+    private long written = 0;
+    /**
+     * Dictionaries of strings and shapes since the last keyframe
+     */
+    private final Map<String, Integer> symbols = new HashMap<>();
+    private final Map<String, Integer> shapes = new HashMap<>();
+    /**
+     * Parts of the current block
+     */
+    private final Bytes newSymbols = new Bytes(256);
+    private int newSymbolCount = 0;
+    private final Bytes newShapes = new Bytes(256);
+    private int newShapeCount = 0;
+    private final Bytes records = new Bytes(1024);
+    private int recordCount = 0;
+    private final Bytes symbolColumn = new Bytes(1024);
+    private final Bytes intColumn = new Bytes(1024);
+    private final Bytes body = new Bytes(1024);
+    /**
+     * Shape of the current section
+     */
+    private final Bytes shape = new Bytes(64);
+    /**
+     * Values of the current and the previous block, by position
+     */
+    private int[] symbolValues = new int[256];
+    private int[] previousSymbols = new int[256];
+    private int symbolCount = 0;
+    private int previousSymbolCount = 0;
+    private int[] intValues = new int[256];
+    private int[] previousInts = new int[256];
+    private int intCount = 0;
+    private int previousIntCount = 0;
+    private boolean blockOpen = false;
+    private boolean keyframe = false;
+    private int blocks = 0;
+    private int time = 0;
+    /**
+     * Times and offsets of the keyframes
+     */
+    private final Bytes index = new Bytes(256);
+    private int keyframeCount = 0;
+
+    /**
+     * Class constructor specifying the output stream.
+     *
+     * @param out
+     */
+    public BinaryReportWriter(OutputStream out) {
+        this(out, 1 << 16, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Class constructor specifying the output stream, the initial size of the
+     * buffer and the number of blocks between keyframes.
+     *
+     * @param out
+     * @param capacity
+     * @param keyframeInterval
+     */
+    public BinaryReportWriter(OutputStream out, int capacity, int keyframeInterval) {
+        this.out = out;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.pending = new Bytes(capacity);
+    }
+
+    /**
+     * Starts a block if there is none, which is a keyframe every so many
+     * blocks.
+     */
+    private void openBlock() {
+        if (!blockOpen) {
+            if (blocks == 0) {
+                pending.write(MAGIC, 0, MAGIC.length);
+                pending.writeByte(VERSION);
+            }
+            blockOpen = true;
+            keyframe = blocks % keyframeInterval == 0;
+            if (keyframe) {
+                symbols.clear();
+                shapes.clear();
+                previousSymbolCount = 0;
+                previousIntCount = 0;
+            }
+        }
+    }
+
+    /**
+     * Encodes the current block, if any, and adds it to the pending bytes.
+     */
+    private void closeBlock() {
+        if (!blockOpen) {
+            return;
+        }
+        if (keyframe) {
+            index.writeVarInt(time);
+            index.writeVarLong(written + pending.size());
+            keyframeCount++;
+        }
+        body.clear();
+        body.writeVarInt(newSymbolCount);
+        body.write(newSymbols.data(), 0, newSymbols.size());
+        body.writeVarInt(newShapeCount);
+        body.write(newShapes.data(), 0, newShapes.size());
+        body.writeVarInt(recordCount);
+        body.writeBlob(records);
+        body.writeBlob(symbolColumn);
+        body.writeBlob(intColumn);
+        pending.writeByte(keyframe ? KEYFRAME : BLOCK);
+        pending.writeVarInt(time);
+        pending.writeBlob(body);
+
+        newSymbols.clear();
+        newSymbolCount = 0;
+        newShapes.clear();
+        newShapeCount = 0;
+        records.clear();
+        recordCount = 0;
+        symbolColumn.clear();
+        intColumn.clear();
+        int[] swap = previousSymbols;
+        previousSymbols = symbolValues;
+        symbolValues = swap;
+        previousSymbolCount = symbolCount;
+        symbolCount = 0;
+        swap = previousInts;
+        previousInts = intValues;
+        intValues = swap;
+        previousIntCount = intCount;
+        intCount = 0;
+        blockOpen = false;
+        blocks++;
+    }
+
+    /**
+     * @param s
+     * @return number of the string in the dictionary, which is added to the
+     * block if it is new
+     */
+    private int intern(String s) {
+        Integer symbol = symbols.get(s);
+        if (symbol == null) {
+            symbol = symbols.size();
+            symbols.put(s, symbol);
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            newSymbols.writeVarInt(bytes.length);
+            newSymbols.write(bytes, 0, bytes.length);
+            newSymbolCount++;
+        }
+        return symbol;
+    }
+
+    /**
+     * Adds a string to the column of strings.
+     *
+     * @param symbol
+     */
+    private void writeSymbol(int symbol) {
+        if (symbolCount == symbolValues.length) {
+            symbolValues = Arrays.copyOf(symbolValues, 2 * symbolCount);
+        }
+        int previous = symbolCount < previousSymbolCount ? previousSymbols[symbolCount] : 0;
+        symbolValues[symbolCount++] = symbol;
+        symbolColumn.writeVarInt(zigzag(symbol - previous));
+    }
+
+    /**
+     * Adds an integer to the column of integers.
+     *
+     * @param i
+     */
+    private void writeInt(int i) {
+        if (intCount == intValues.length) {
+            intValues = Arrays.copyOf(intValues, 2 * intCount);
+        }
+        int previous = intCount < previousIntCount ? previousInts[intCount] : 0;
+        intValues[intCount++] = i;
+        intColumn.writeVarInt(zigzag(i - previous));
+    }
+
+    @Override
+    public SectionWriter beginSection(String tag) {
+        openBlock();
+        shape.clear();
+        shape.writeByte(OP_BEGIN);
+        shape.writeVarInt(intern(tag));
+        return this;
+    }
+
+    @Override
+    public SectionWriter key(String key) {
+        shape.writeByte(OP_KEY);
+        shape.writeVarInt(intern(key));
+        return this;
+    }
+
+    @Override
+    public SectionWriter append(String s) {
+        shape.writeByte(OP_STRING);
+        writeSymbol(intern(s));
+        return this;
+    }
+
+    @Override
+    public SectionWriter append(char c) {
+        shape.writeByte(OP_CHAR);
+        shape.writeVarInt(c);
+        return this;
+    }
+
+    @Override
+    public SectionWriter append(int i) {
+        shape.writeByte(OP_INT);
+        writeInt(i);
+        return this;
+    }
+
+    @Override
+    public void endSection() {
+        shape.writeByte(OP_END);
+        String key = new String(shape.data(), 0, shape.size(), StandardCharsets.ISO_8859_1);
+        Integer id = shapes.get(key);
+        if (id == null) {
+            id = shapes.size();
+            shapes.put(key, id);
+            newShapes.writeBlob(shape);
+            newShapeCount++;
+        }
+        records.writeVarInt(SECTION + id);
+        recordCount++;
+    }
+
+    /**
+     * Ends the block of the previous tick. A tick may be written in several
+     * blocks when the reports are flushed before its end.
+     *
+     * @param time
+     */
+    @Override
+    public void beginTick(int time) {
+        closeBlock();
+        this.time = time;
+    }
+
+    @Override
+    public void comment(String comment) {
+        openBlock();
+        records.writeVarInt(COMMENT);
+        recordCount++;
+        writeSymbol(intern(comment));
+    }
+
+    @Override
+    public void separator() {
+        openBlock();
+        records.writeVarInt(SEPARATOR);
+        recordCount++;
+    }
+
+    @Override
+    public int size() {
+        return pending.size() + newSymbols.size() + newShapes.size()
+                + records.size() + symbolColumn.size() + intColumn.size();
+    }
+
+    /**
+     * Ends the current block and writes every block to the output stream.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        closeBlock();
+        pending.writeTo(out);
+        written += pending.size();
+        pending.clear();
+        out.flush();
+    }
+
+    /**
+     * Writes every block followed by the footer with the index of the
+     * keyframes. Nothing is written if there are no reports, as an empty
+     * output is an empty report.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void finish() throws IOException {
+        closeBlock();
+        if (blocks == 0) {
+            return;
+        }
+        long footer = written + pending.size();
+        pending.writeByte(FOOTER);
+        pending.writeVarInt(keyframeCount);
+        pending.write(index.data(), 0, index.size());
+        pending.writeLong(footer);
+        pending.write(MAGIC, 0, MAGIC.length);
+        flush();
+    }
+}
@@ -0,0 +1,133 @@
+package pr6.ini;
+
+import java.io.BufferedInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream which compresses the reports in the gzip format. Every flush
+ * compresses everything written so far and writes it to the output, so the
+ * reports written up to the last flush can be read even if the output is not
+ * finished. The gzip header is only written with the first report, so an
+ * output without reports stays empty.
+ *
+ * {@link #open(InputStream)} reads the reports back, whether they were
+ * compressed or not.
+ */
+public class CompressedReportStream extends FilterOutputStream {
+
+    /**
+     * First bytes of a gzip stream
+     */
+    private static final int GZIP_MAGIC_0 = 0x1f;
+    private static final int GZIP_MAGIC_1 = 0x8b;
+    private final int level;
+    private final int bufferSize;
+    /**
+     * Compressed stream, null until the first report is written
+     */
+    private GZIPOutputStream gzip = null;
+
+    /**
+     * Class constructor specifying the output stream, the compression level
+     * and the size of the buffer of the compressor.
+     *
+     * @param out
+     * @param level From 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param bufferSize
+     * @throws IllegalArgumentException if the level is not valid
+     */
+    public CompressedReportStream(OutputStream out, int level, int bufferSize) {
+        super(out);
+        if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+                && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.level = level;
+        this.bufferSize = Math.max(512, bufferSize);
+    }
+
+    /**
+     * @return the compressed stream, which is created and writes the gzip
+     * header the first time
+     * @throws IOException
+     */
+    private GZIPOutputStream gzip() throws IOException {
+        if (gzip == null) {
+            gzip = new GZIPOutputStream(out, bufferSize, true) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+        return gzip;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        gzip().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        gzip().write(b, off, len);
+    }
+
+    /**
+     * Compresses everything written so far and writes it to the output.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        if (gzip != null) {
+            gzip.flush();
+        } else {
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes the end of the compressed stream, if any report was written.
+     * The output is not closed.
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (gzip != null) {
+            gzip.finish();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns a stream reading the reports of the given stream, decompressing
+     * them if they were compressed.
+     *
+     * @param in Reports, either compressed or not
+     * @return a stream which supports mark and reset
+     * @throws IOException
+     */
+    public static InputStream open(InputStream in) throws IOException {
+        BufferedInputStream bis = new BufferedInputStream(in);
+        bis.mark(2);
+        boolean compressed = bis.read() == GZIP_MAGIC_0 && bis.read() == GZIP_MAGIC_1;
+        bis.reset();
+        return compressed ? new BufferedInputStream(new GZIPInputStream(bis, 1 << 16))
+                : bis;
+    }
+}
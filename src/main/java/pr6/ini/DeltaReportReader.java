@@ -0,0 +1,196 @@
+package pr6.ini;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a report written in delta mode and rebuilds the full report of every
+ * tick.
+ *
+ * In a delta report every tick starts with a comment line: {@code ;keyframe
+ * <time>} is followed by the reports of every object, and {@code ;delta
+ * <time>} only by the reports of the objects which changed since the previous
+ * tick. The full report of a tick is made of the last report of every object,
+ * in the order of the last keyframe, followed by the objects which appeared
+ * after it, grouped by tag.
+ */
+public class DeltaReportReader {
+
+    /**
+     * Comments starting the ticks of a delta report
+     */
+    public static final String KEYFRAME = "keyframe ";
+    public static final String DELTA = "delta ";
+    private static final byte[] SEPARATOR = {'\n'};
+
+    private final IniSectionReader reader;
+    /**
+     * Last report of every object, by tag and id
+     */
+    private final Map<String, Map<String, IniSection>> state = new LinkedHashMap<>();
+    /**
+     * Ticks whose comment has been read and not their reports
+     */
+    private final Deque<String> ticks = new ArrayDeque<>();
+    /**
+     * Section read after the comment of a tick not reached yet
+     */
+    private IniSection pending = null;
+    private boolean started = false;
+    private int time = 0;
+
+    /**
+     * Class constructor specifying the input stream of the delta report.
+     *
+     * @param is
+     */
+    public DeltaReportReader(InputStream is) {
+        this.reader = new IniSectionReader(is);
+    }
+
+    /**
+     * Rebuilds the full reports of every tick of a delta report.
+     *
+     * @param is Delta report
+     * @param out Output of the full reports
+     * @throws IOException
+     */
+    public static void toFull(InputStream is, OutputStream out) throws IOException {
+        DeltaReportReader reader = new DeltaReportReader(is);
+        while (reader.next()) {
+            reader.store(out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Rebuilds the full report of a tick.
+     *
+     * @param is Delta report
+     * @param time
+     * @return sections of the tick, null if the report has no such tick
+     * @throws IOException
+     */
+    public static List<IniSection> stateAt(InputStream is, int time)
+            throws IOException {
+        DeltaReportReader reader = new DeltaReportReader(is);
+        while (reader.next()) {
+            if (reader.getTime() == time) {
+                return reader.getState();
+            } else if (reader.getTime() > time) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the reports of the next tick.
+     *
+     * @return false if there are no more ticks
+     * @throws IOException
+     * @throws IniError if the input is not a delta report
+     */
+    public boolean next() throws IOException {
+        if (ticks.isEmpty()) {
+            readSection();
+            if (ticks.isEmpty()) {
+                if (pending != null) {
+                    throw new IniError("Report of an object out of any tick: ["
+                            + pending.getTag() + "]");
+                }
+                return false;
+            }
+        }
+        String tick = ticks.poll();
+        boolean keyframe = tick.startsWith(KEYFRAME);
+        try {
+            time = Integer.parseInt(tick.substring(keyframe ? KEYFRAME.length()
+                    : DELTA.length()).trim());
+        } catch (NumberFormatException e) {
+            throw new IniError("Invalid tick: " + tick);
+        }
+        if (keyframe) {
+            state.clear();
+            started = true;
+        } else if (!started) {
+            throw new IniError("Delta report without a keyframe");
+        }
+        // the sections read belong to the last tick whose comment was read
+        while (ticks.isEmpty() && pending != null) {
+            update(pending);
+            readSection();
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next section and the comments of the ticks before it.
+     *
+     * @throws IOException
+     */
+    private void readSection() throws IOException {
+        pending = reader.next();
+        for (String c : reader.getComments()) {
+            if (c.startsWith(KEYFRAME) || c.startsWith(DELTA)) {
+                ticks.add(c);
+            }
+        }
+    }
+
+    /**
+     * Replaces the report of an object.
+     *
+     * @param section
+     */
+    private void update(IniSection section) {
+        state.computeIfAbsent(section.getTag(), (tag) -> new LinkedHashMap<>())
+                .put(section.getValue("id"), section);
+    }
+
+    /**
+     * @return Time of the current tick
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the full report of the current tick. The sections are updated
+     * as the next ticks are read.
+     *
+     * @return sections of every object
+     */
+    public List<IniSection> getState() {
+        List<IniSection> sections = new ArrayList<>();
+        String t = Integer.toString(time);
+        for (Map<String, IniSection> objects : state.values()) {
+            for (IniSection section : objects.values()) {
+                section.setValue("time", t);
+                sections.add(section);
+            }
+        }
+        return sections;
+    }
+
+    /**
+     * Writes the full report of the current tick exactly as the simulator
+     * writes it when not in delta mode.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void store(OutputStream out) throws IOException {
+        for (IniSection section : getState()) {
+            section.store(out);
+            out.write(SEPARATOR);
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package pr6.ini;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static pr6.ini.ReportIndexWriter.*;
+
+/**
+ * Reads any tick, or the report of any object within a tick, of a text report
+ * written with an index by {@link ReportIndexWriter}. The report and the
+ * index are memory mapped once, so only the parts read are loaded whatever
+ * the size of the report.
+ */
+public class IndexedReportReader implements Closeable {
+
+    /**
+     * Extension of the index of a report
+     */
+    public static final String INDEX_EXTENSION = ".idx";
+    private final FileChannel report;
+    private final FileChannel indexChannel;
+    private final MappedSegments index;
+    private final MappedSegments reportData;
+    private final long reportLength;
+    private final Map<String, Integer> ids = new HashMap<>();
+    /**
+     * Entries of the ticks, in the order of the report
+     */
+    private final int[] times;
+    private final long[] offsets;
+    private final long[] firstObjects;
+    private final int[] objectCounts;
+
+    /**
+     * Class constructor specifying a report whose index is next to it.
+     *
+     * @param report
+     * @throws IOException if the report or the index can not be read
+     * @see #indexPath(Path)
+     */
+    public IndexedReportReader(Path report) throws IOException {
+        this(report, indexPath(report));
+    }
+
+    /**
+     * Class constructor specifying a report and its index.
+     *
+     * @param report
+     * @param index
+     * @throws IOException if the report or the index can not be read
+     */
+    public IndexedReportReader(Path report, Path index) throws IOException {
+        this.indexChannel = FileChannel.open(index, StandardOpenOption.READ);
+        try {
+            this.index = new MappedSegments(indexChannel, indexChannel.size());
+            long size = indexChannel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || !hasMagic(0)
+                    || !hasMagic(size - MAGIC.length)) {
+                throw new IOException("Not a report index: " + index);
+            }
+            if (this.index.getInt(MAGIC.length) != VERSION) {
+                throw new IOException("Unsupported report index version: "
+                        + this.index.getInt(MAGIC.length));
+            }
+            long trailer = size - TRAILER_SIZE;
+            long idsOffset = this.index.getLong(trailer);
+            long ticksOffset = this.index.getLong(trailer + 8);
+            int tickCount = this.index.getInt(trailer + 16);
+            reportLength = this.index.getLong(trailer + 20);
+            if (idsOffset < HEADER_SIZE || (idsOffset - HEADER_SIZE) % OBJECT_SIZE != 0
+                    || ticksOffset < idsOffset + 4 || tickCount < 0
+                    || ticksOffset + (long) tickCount * TICK_SIZE != trailer
+                    || reportLength < 0) {
+                throw new IOException("Corrupted report index: " + index);
+            }
+            readIds(idsOffset, ticksOffset);
+            long objectEntries = (idsOffset - HEADER_SIZE) / OBJECT_SIZE;
+            times = new int[tickCount];
+            offsets = new long[tickCount];
+            firstObjects = new long[tickCount];
+            objectCounts = new int[tickCount];
+            for (int i = 0; i < tickCount; i++) {
+                long entry = ticksOffset + (long) i * TICK_SIZE;
+                times[i] = this.index.getInt(entry);
+                offsets[i] = this.index.getLong(entry + 4);
+                firstObjects[i] = this.index.getLong(entry + 12);
+                objectCounts[i] = this.index.getInt(entry + 20);
+                // the ticks are sorted and their entries within the index
+                if ((i > 0 && (times[i] <= times[i - 1] || offsets[i] < offsets[i - 1]))
+                        || offsets[i] < 0 || offsets[i] > reportLength
+                        || firstObjects[i] < 0 || objectCounts[i] < 0
+                        || firstObjects[i] + objectCounts[i] > objectEntries) {
+                    throw new IOException("Corrupted report index: " + index);
+                }
+            }
+            this.report = FileChannel.open(report, StandardOpenOption.READ);
+        } catch (IOException | RuntimeException e) {
+            indexChannel.close();
+            throw e;
+        }
+        try {
+            if (this.report.size() < reportLength) {
+                throw new IOException("The report is shorter than its index: "
+                        + report);
+            }
+            this.reportData = new MappedSegments(this.report, reportLength);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param report
+     * @return path of the index of a report
+     */
+    public static Path indexPath(Path report) {
+        return report.resolveSibling(report.getFileName() + INDEX_EXTENSION);
+    }
+
+    /**
+     * @param position
+     * @return true if the index has the magic bytes at the given position
+     */
+    private boolean hasMagic(long position) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (index.get(position + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the ids of the objects of the index.
+     *
+     * @param position
+     * @param end Offset of the end of the ids
+     * @throws IOException if the index is corrupted
+     */
+    private void readIds(long position, long end) throws IOException {
+        int count = index.getInt(position);
+        position += 4;
+        for (int i = 0; i < count; i++) {
+            int length = (position + 4 <= end) ? index.getInt(position) : -1;
+            if (length < 0 || position + 4 + length > end) {
+                throw new IOException("Corrupted report index");
+            }
+            byte[] bytes = new byte[length];
+            for (int j = 0; j < length; j++) {
+                bytes[j] = index.get(position + 4 + j);
+            }
+            ids.put(new String(bytes, StandardCharsets.UTF_8), i);
+            position += 4 + length;
+        }
+    }
+
+    /**
+     * @return Number of ticks of the report
+     */
+    public int getTickCount() {
+        return times.length;
+    }
+
+    /**
+     * @param tick Number of the tick, from 0
+     * @return Time of the tick
+     */
+    public int getTime(int tick) {
+        return times[tick];
+    }
+
+    /**
+     * @param time
+     * @return true if the report has the reports of the given time
+     */
+    public boolean hasTick(int time) {
+        return find(time) >= 0;
+    }
+
+    /**
+     * @param time
+     * @return number of the tick of the given time, negative if there is none
+     */
+    private int find(int time) {
+        return Arrays.binarySearch(times, time);
+    }
+
+    /**
+     * @param tick
+     * @return offset of the end of the tick in the report
+     */
+    private long tickEnd(int tick) {
+        return (tick + 1 < times.length) ? offsets[tick + 1] : reportLength;
+    }
+
+    /**
+     * Reads the reports of every object at a given time.
+     *
+     * @param time
+     * @return sections of the tick, null if the report has no such tick
+     * @throws IOException
+     */
+    public List<IniSection> readTick(int time) throws IOException {
+        int tick = find(time);
+        if (tick < 0) {
+            return null;
+        }
+        IniSectionReader reader = new IniSectionReader(
+                read(offsets[tick], tickEnd(tick)));
+        List<IniSection> sections = new ArrayList<>();
+        IniSection section;
+        while ((section = reader.next()) != null) {
+            sections.add(section);
+        }
+        return sections;
+    }
+
+    /**
+     * Reads the report of an object at a given time.
+     *
+     * @param time
+     * @param id Id of the object
+     * @return section of the object, null if it was not reported at the time
+     * @throws IOException
+     */
+    public IniSection readObject(int time, String id) throws IOException {
+        int tick = find(time);
+        Integer n = ids.get(id);
+        if (tick < 0 || n == null) {
+            return null;
+        }
+        for (int i = 0; i < objectCounts[tick]; i++) {
+            if (index.getInt(objectEntry(tick, i)) == n) {
+                return new IniSectionReader(read(objectStart(tick, i),
+                        objectEnd(tick, i))).next();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the reports of some objects at every tick, in the order of the
+     * report. The ids are looked up once and the entries of every tick are
+     * scanned once, reading the reports of the objects one after the other,
+     * so it is much faster than reading every object at every tick.
+     *
+     * @param ids Ids of the objects
+     * @return reader of the reports of the objects
+     */
+    public IniSectionReader readObjects(Collection<String> ids) {
+        BitSet numbers = new BitSet(this.ids.size());
+        for (String id : ids) {
+            Integer n = this.ids.get(id);
+            if (n != null) {
+                numbers.set(n);
+            }
+        }
+        return new IniSectionReader(new ReportParts() {
+            private int tick = 0;
+            private int object = 0;
+
+            @Override
+            boolean nextPart() throws IOException {
+                while (tick < times.length && !numbers.isEmpty()) {
+                    if (object == objectCounts[tick]) {
+                        tick++;
+                        object = 0;
+                    } else {
+                        int n = index.getInt(objectEntry(tick, object));
+                        if (n >= 0 && numbers.get(n)) {
+                            setPart(objectStart(tick, object), objectEnd(tick, object));
+                            object++;
+                            return true;
+                        }
+                        object++;
+                    }
+                }
+                return false;
+            }
+        });
+    }
+
+    /**
+     * @param tick
+     * @param i Number of the object within the tick
+     * @return offset of the entry of an object of a tick in the index
+     */
+    private long objectEntry(int tick, int i) {
+        return HEADER_SIZE + (firstObjects[tick] + i) * OBJECT_SIZE;
+    }
+
+    /**
+     * @param tick
+     * @param i Number of the object within the tick
+     * @return offset of the report of an object of a tick in the report
+     */
+    private long objectStart(int tick, int i) {
+        return index.getLong(objectEntry(tick, i) + 4);
+    }
+
+    /**
+     * @param tick
+     * @param i Number of the object within the tick
+     * @return offset of the end of the report of an object of a tick
+     */
+    private long objectEnd(int tick, int i) {
+        return (i + 1 < objectCounts[tick]) ? objectStart(tick, i + 1)
+                : tickEnd(tick);
+    }
+
+    /**
+     * @param start
+     * @param end
+     * @return stream reading a part of the report
+     * @throws IOException if the part is not within the report
+     */
+    private InputStream read(long start, long end) throws IOException {
+        ReportParts part = new ReportParts() {
+            @Override
+            boolean nextPart() {
+                return false;
+            }
+        };
+        part.setPart(start, end);
+        return part;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            indexChannel.close();
+        } finally {
+            if (report != null) {
+                report.close();
+            }
+        }
+    }
+
+    /**
+     * Stream reading parts of the report one after the other, through its
+     * mapping.
+     */
+    private abstract class ReportParts extends InputStream {
+
+        private long position = 0;
+        private long end = 0;
+
+        /**
+         * Moves to the next part to be read.
+         *
+         * @return false if there are no more parts
+         * @throws IOException if the index is corrupted
+         */
+        abstract boolean nextPart() throws IOException;
+
+        /**
+         * Sets the part being read.
+         *
+         * @param start
+         * @param end
+         * @throws IOException if the part is not within the report
+         */
+        final void setPart(long start, long end) throws IOException {
+            if (start < 0 || end < start || end > reportLength) {
+                throw new IOException("Corrupted report index");
+            }
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (position == end) {
+                if (!nextPart()) {
+                    return -1;
+                }
+            }
+            return reportData.get(position++) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (position == end) {
+                if (!nextPart()) {
+                    return -1;
+                }
+            }
+            len = reportData.get(position, b, off, (int) Math.min(len, end - position));
+            position += len;
+            return len;
+        }
+    }
+
+    /**
+     * A file mapped in segments, as a single mapping is limited to 2 GB.
+     * Consecutive segments overlap, so that any number can be read from the
+     * segment where it starts.
+     */
+    private static final class MappedSegments {
+
+        private static final long SEGMENT_SIZE = 1L << 30;
+        private static final int OVERLAP = 8;
+        private final MappedByteBuffer[] segments;
+
+        /**
+         * Maps the beginning of a file.
+         *
+         * @param channel
+         * @param size Number of bytes mapped
+         * @throws IOException
+         */
+        MappedSegments(FileChannel channel, long size) throws IOException {
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(size - start, SEGMENT_SIZE + OVERLAP));
+            }
+        }
+
+        byte get(long position) {
+            return segments[(int) (position / SEGMENT_SIZE)]
+                    .get((int) (position % SEGMENT_SIZE));
+        }
+
+        int getInt(long position) {
+            return segments[(int) (position / SEGMENT_SIZE)]
+                    .getInt((int) (position % SEGMENT_SIZE));
+        }
+
+        long getLong(long position) {
+            return segments[(int) (position / SEGMENT_SIZE)]
+                    .getLong((int) (position % SEGMENT_SIZE));
+        }
+
+        /**
+         * Copies bytes up to the end of the segment where they start.
+         *
+         * @param position
+         * @param b
+         * @param off
+         * @param len
+         * @return number of bytes copied
+         */
+        int get(long position, byte[] b, int off, int len) {
+            ByteBuffer segment = segments[(int) (position / SEGMENT_SIZE)].duplicate();
+            segment.position((int) (position % SEGMENT_SIZE));
+            len = Math.min(len, segment.remaining());
+            segment.get(b, off, len);
+            return len;
+        }
+    }
+}
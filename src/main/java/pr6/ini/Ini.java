@@ -1,17 +1,14 @@
 package pr6.ini;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * A parser/generator of INI files.
@@ -19,26 +16,6 @@ import java.util.regex.Pattern;
  */
 public class Ini {
 
-    /**
-     * A pattern for matching an INI section line
-     */
-    private Pattern _section = Pattern.compile("\\s*\\[([^]]*)\\]\\s*");
-
-    /**
-     * A pattern for matching a key-value line
-     */
-    private Pattern _keyValue = Pattern.compile("\\s*([^=]*)=(.*)");
-
-    /**
-     * A pattern for matching white spaces
-     */
-    private Pattern _whitespaces = Pattern.compile("\\s*");
-
-    /**
-     * A pattern for matching a comment
-     */
-    private Pattern _comment = Pattern.compile("[;,#](.*)");
-
     /**
      * List of section
      */
@@ -61,13 +38,16 @@ public class Ini {
     }
 
     /**
-     * Construct an INI structure from a file
+     * Construct an INI structure from a file, which is memory mapped
      *
      * @param path A filename from which the INI structure is read
      * @throws IOException Exceptions thrown when reading from the input file
      */
     public Ini(String path) throws IOException {
-        this(new FileInputStream(new File(path)));
+        try (FileChannel channel = FileChannel.open(Paths.get(path),
+                StandardOpenOption.READ)) {
+            load(new IniSectionReader(channel));
+        }
     }
 
     /**
@@ -77,43 +57,20 @@ public class Ini {
      * @throws IOException Exceptions thrown by the input stream
      */
     public void load(InputStream is) throws IOException {
-        InputStreamReader r = new InputStreamReader(is);
-        BufferedReader br = new BufferedReader(r);
-        String line;
-        IniSection section = null;
-
-        while ((line = br.readLine()) != null) {
-            Boolean matched = false;
-
-            if (_comment.matcher(line).matches() || _whitespaces.matcher(line).matches()) {
-                matched = true;
-            } else {
-                Matcher m = _section.matcher(line);
-                if (m.matches()) {
-                    section = new IniSection(m.group(1).trim());
-                    // if the section name starts with '!' then we ignore it
-                    // (still the syntax of its key-value elements must be
-                    // valid)
-                    if (!section.getTag().startsWith("!")) {
-                        _iniSections.add(section);
-                    }
-                    matched = true;
-                } else if (section != null) {
-                    m = _keyValue.matcher(line);
-                    if (m.matches()) {
-                        String key = m.group(1).trim();
-                        String value = m.group(2).trim();
-                        section.setValue(key, value);
-                        matched = true;
-                    }
-                }
-
-                if (!matched) {
-                    throw new IniError("Syntax error: " + line);
-                }
-            }
-        }
+        load(new IniSectionReader(is));
+    }
 
+    /**
+     * Adds the sections read by a section reader to the INI structure
+     *
+     * @param reader
+     * @throws IOException Exceptions thrown by the input of the reader
+     */
+    private void load(IniSectionReader reader) throws IOException {
+        IniSection section;
+        while ((section = reader.next()) != null) {
+            _iniSections.add(section);
+        }
     }
 
     /**
@@ -0,0 +1,445 @@
+package pr6.ini;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the sections of an INI structure one at a time, so that large files
+ * can be processed without keeping all of their sections in memory. The
+ * syntax is the one accepted by {@link Ini}.
+ *
+ * The comments are not part of the sections, but the ones found before every
+ * section, or before the end of the input, are kept until the next section is
+ * read.
+ *
+ * The input is scanned as bytes in a single pass, and only the tags, keys,
+ * values and comments are turned into strings. Lines with bytes outside of
+ * ASCII are decoded with the platform charset and matched with the patterns
+ * of the syntax, so that they are read exactly as a {@link java.io.Reader}
+ * would.
+ */
+public class IniSectionReader {
+
+    /**
+     * A pattern for matching an INI section line
+     */
+    private static final Pattern SECTION = Pattern.compile("\\s*\\[([^]]*)\\]\\s*");
+
+    /**
+     * A pattern for matching a key-value line
+     */
+    private static final Pattern KEY_VALUE = Pattern.compile("\\s*([^=]*)=(.*)");
+
+    /**
+     * A pattern for matching white spaces
+     */
+    private static final Pattern WHITESPACES = Pattern.compile("\\s*");
+
+    /**
+     * A pattern for matching a comment
+     */
+    private static final Pattern COMMENT = Pattern.compile("[;,#](.*)");
+
+    /**
+     * Kinds of line
+     */
+    private static final int BLANK = 0;
+    private static final int COMMENT_LINE = 1;
+    private static final int SECTION_LINE = 2;
+    private static final int OTHER_LINE = 3;
+    /**
+     * Size of the parts of a mapped file copied to the buffer
+     */
+    private static final int MAPPED_WINDOW = 1 << 30;
+
+    private final Charset charset = Charset.defaultCharset();
+    /**
+     * Input stream, null when reading a mapped file
+     */
+    private final InputStream in;
+    /**
+     * Mapped file, null when reading a stream
+     */
+    private final FileChannel channel;
+    private MappedByteBuffer window = null;
+    private long windowEnd = 0;
+    private byte[] buffer = new byte[1 << 16];
+    private int position = 0;
+    private int limit = 0;
+    private boolean eof = false;
+    /**
+     * true if the last line ended with '\r', so a following '\n' is part of
+     * its end
+     */
+    private boolean skipLineFeed = false;
+    /**
+     * Current line: its bytes in the buffer, and the text of its comment,
+     * tag, or of the whole line if it was decoded
+     */
+    private int lineStart;
+    private int lineEnd;
+    private String lineText;
+    private String decodedLine;
+    /**
+     * Tag of the next section, whose line has already been read
+     */
+    private String nextTag = null;
+    private final List<String> comments = new ArrayList<>();
+    /**
+     * Comments found after the last key-value line of a section, which belong
+     * to the next one
+     */
+    private final List<String> following = new ArrayList<>();
+
+    /**
+     * Construct a reader of the INI structure of an {@link InputStream}
+     *
+     * @param is An input stream from which the INI structure is read
+     */
+    public IniSectionReader(InputStream is) {
+        this.in = is;
+        this.channel = null;
+    }
+
+    /**
+     * Construct a reader of the INI structure of a file, which is memory
+     * mapped. The channel is not closed by the reader.
+     *
+     * @param channel A file from which the INI structure is read
+     * @throws IOException
+     */
+    public IniSectionReader(FileChannel channel) throws IOException {
+        this.in = null;
+        this.channel = channel;
+        this.windowEnd = channel.position();
+    }
+
+    /**
+     * Reads the next section. Sections whose name starts with '!' are
+     * skipped, though the syntax of their key-value elements must be valid.
+     *
+     * @return the next section, null if there are no more sections
+     * @throws IOException Exceptions thrown by the input stream
+     * @throws IniError if a line is not valid
+     */
+    public IniSection next() throws IOException {
+        comments.clear();
+        while (true) {
+            comments.addAll(following);
+            following.clear();
+            String tag = (nextTag != null) ? nextTag : readSectionLine();
+            nextTag = null;
+            if (tag == null) {
+                return null;
+            }
+            IniSection section = new IniSection(tag);
+            readKeyValues(section);
+            if (!section.getTag().startsWith("!")) {
+                return section;
+            }
+        }
+    }
+
+    /**
+     * Returns the comments found before the last section read, or before the
+     * end of the input if there are no more sections, without the comment
+     * character.
+     *
+     * @return list of comments
+     */
+    public List<String> getComments() {
+        return comments;
+    }
+
+    /**
+     * Reads up to the next section line, keeping the comments found.
+     *
+     * @return the tag of the section, null at the end of the input
+     * @throws IOException
+     */
+    private String readSectionLine() throws IOException {
+        while (nextLine()) {
+            switch (scanLine()) {
+                case COMMENT_LINE:
+                    comments.add(lineText);
+                    break;
+                case SECTION_LINE:
+                    return lineText;
+                case OTHER_LINE:
+                    // key-value lines before the first section are not valid
+                    throw new IniError("Syntax error: " + line());
+                default:
+                    break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the key-value lines of a section up to the next section line,
+     * whose tag is kept for the next call.
+     *
+     * @param section
+     * @throws IOException
+     */
+    private void readKeyValues(IniSection section) throws IOException {
+        while (nextLine()) {
+            switch (scanLine()) {
+                case COMMENT_LINE:
+                    following.add(lineText);
+                    break;
+                case SECTION_LINE:
+                    nextTag = lineText;
+                    return;
+                case OTHER_LINE:
+                    comments.addAll(following);
+                    following.clear();
+                    setKeyValue(section);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Finds the kind of the current line. The text of comments and the tag of
+     * sections are left in lineText.
+     *
+     * @return kind of line
+     */
+    private int scanLine() {
+        decodedLine = null;
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (buffer[i] < 0) {
+                return scanDecodedLine();
+            }
+        }
+        if (lineStart == lineEnd) {
+            return BLANK;
+        }
+        byte first = buffer[lineStart];
+        if (first == ';' || first == ',' || first == '#') {
+            lineText = ascii(lineStart + 1, lineEnd);
+            return COMMENT_LINE;
+        }
+        int start = lineStart;
+        while (start < lineEnd && isSpace(buffer[start])) {
+            start++;
+        }
+        if (start == lineEnd) {
+            return BLANK;
+        }
+        if (buffer[start] == '[') {
+            int close = start + 1;
+            while (close < lineEnd && buffer[close] != ']') {
+                close++;
+            }
+            if (close < lineEnd) {
+                int end = close + 1;
+                while (end < lineEnd && isSpace(buffer[end])) {
+                    end++;
+                }
+                if (end == lineEnd) {
+                    lineText = trimmed(start + 1, close);
+                    return SECTION_LINE;
+                }
+            }
+        }
+        return OTHER_LINE;
+    }
+
+    /**
+     * Finds the kind of the current line, decoded with the charset and
+     * matched with the patterns of the syntax.
+     *
+     * @return kind of line
+     */
+    private int scanDecodedLine() {
+        decodedLine = new String(buffer, lineStart, lineEnd - lineStart, charset);
+        Matcher m = COMMENT.matcher(decodedLine);
+        if (m.matches()) {
+            lineText = m.group(1);
+            return COMMENT_LINE;
+        } else if (WHITESPACES.matcher(decodedLine).matches()) {
+            return BLANK;
+        }
+        m = SECTION.matcher(decodedLine);
+        if (m.matches()) {
+            lineText = m.group(1).trim();
+            return SECTION_LINE;
+        }
+        return OTHER_LINE;
+    }
+
+    /**
+     * Sets the key and value of the current line in a section.
+     *
+     * @param section
+     * @throws IniError if the line is not a key-value line
+     */
+    private void setKeyValue(IniSection section) {
+        if (decodedLine != null) {
+            Matcher m = KEY_VALUE.matcher(decodedLine);
+            if (!m.matches()) {
+                throw new IniError("Syntax error: " + decodedLine);
+            }
+            section.setValue(m.group(1).trim(), m.group(2).trim());
+            return;
+        }
+        int equals = lineStart;
+        while (equals < lineEnd && buffer[equals] != '=') {
+            equals++;
+        }
+        if (equals == lineEnd) {
+            throw new IniError("Syntax error: " + line());
+        }
+        section.setValue(trimmed(lineStart, equals), trimmed(equals + 1, lineEnd));
+    }
+
+    /**
+     * @param b
+     * @return true if the byte is a white space of the patterns
+     */
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f'
+                || b == '\r';
+    }
+
+    /**
+     * @param start
+     * @param end
+     * @return string of the ASCII bytes of the buffer in the range
+     */
+    private String ascii(int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @param start
+     * @param end
+     * @return string of the ASCII bytes of the buffer in the range, trimmed as
+     * by {@link String#trim()}
+     */
+    private String trimmed(int start, int end) {
+        while (start < end && buffer[start] <= ' ') {
+            start++;
+        }
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        return ascii(start, end);
+    }
+
+    /**
+     * @return text of the current line
+     */
+    private String line() {
+        return (decodedLine != null) ? decodedLine
+                : new String(buffer, lineStart, lineEnd - lineStart, charset);
+    }
+
+    /**
+     * Finds the next line, ended by '\n', '\r' or both, or by the end of the
+     * input, and leaves its bytes in the buffer between lineStart and
+     * lineEnd.
+     *
+     * @return false at the end of the input
+     * @throws IOException
+     */
+    private boolean nextLine() throws IOException {
+        if (skipLineFeed) {
+            if (position == limit) {
+                fill();
+            }
+            if (position < limit && buffer[position] == '\n') {
+                position++;
+            }
+            skipLineFeed = false;
+        }
+        int scanned = position;
+        while (true) {
+            for (; scanned < limit; scanned++) {
+                byte b = buffer[scanned];
+                if (b == '\n' || b == '\r') {
+                    lineStart = position;
+                    lineEnd = scanned;
+                    position = scanned + 1;
+                    skipLineFeed = b == '\r';
+                    return true;
+                }
+            }
+            int offset = position;
+            if (!fill()) {
+                if (position == limit) {
+                    return false;
+                }
+                lineStart = position;
+                lineEnd = limit;
+                position = limit;
+                return true;
+            }
+            scanned -= offset - position;
+        }
+    }
+
+    /**
+     * Moves the bytes not read yet to the beginning of the buffer, growing it
+     * if they fill it, and reads more bytes after them.
+     *
+     * @return false if there are no more bytes to read
+     * @throws IOException
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+        }
+        int n = (in != null) ? in.read(buffer, limit, buffer.length - limit)
+                : readMapped();
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    /**
+     * Copies bytes of the mapped file to the buffer, mapping the next part of
+     * the file when the current one has been read.
+     *
+     * @return number of bytes copied, -1 at the end of the file
+     * @throws IOException
+     */
+    private int readMapped() throws IOException {
+        if (window == null || !window.hasRemaining()) {
+            long size = channel.size();
+            if (windowEnd >= size) {
+                return -1;
+            }
+            long length = Math.min(size - windowEnd, MAPPED_WINDOW);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowEnd, length);
+            windowEnd += length;
+        }
+        int n = Math.min(window.remaining(), buffer.length - limit);
+        window.get(buffer, limit, n);
+        return n;
+    }
+}
@@ -0,0 +1,66 @@
+package pr6.ini;
+
+/**
+ * Section writer which builds an {@link IniSection}.
+ */
+public class IniSectionWriter implements SectionWriter {
+
+    private IniSection section = null;
+    private String currentKey = null;
+    private final StringBuilder value = new StringBuilder();
+
+    @Override
+    public SectionWriter beginSection(String tag) {
+        section = new IniSection(tag);
+        currentKey = null;
+        return this;
+    }
+
+    @Override
+    public SectionWriter key(String key) {
+        setCurrentValue();
+        currentKey = key;
+        return this;
+    }
+
+    @Override
+    public SectionWriter append(String s) {
+        value.append(s);
+        return this;
+    }
+
+    @Override
+    public SectionWriter append(char c) {
+        value.append(c);
+        return this;
+    }
+
+    @Override
+    public SectionWriter append(int i) {
+        value.append(i);
+        return this;
+    }
+
+    @Override
+    public void endSection() {
+        setCurrentValue();
+    }
+
+    /**
+     * Sets the value appended to the current key, if any.
+     */
+    private void setCurrentValue() {
+        if (currentKey != null) {
+            section.setValue(currentKey, value.toString());
+            currentKey = null;
+        }
+        value.setLength(0);
+    }
+
+    /**
+     * @return the last section written
+     */
+    public IniSection getSection() {
+        return section;
+    }
+}
@@ -0,0 +1,300 @@
+package pr6.ini;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Section writer which writes the sections to an {@link OutputStream} or a
+ * {@link WritableByteChannel} in the same format as
+ * {@link IniSection#store(OutputStream)}. The text is kept in a byte buffer
+ * which is reused from one section to the next and only written out when it
+ * is flushed, so writing a section allocates nothing.
+ */
+public class IniStreamWriter implements ReportWriter {
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+    private static final byte[] KEY_SEPARATOR = " = ".getBytes();
+    /**
+     * Output stream, null when writing to a channel
+     */
+    private final OutputStream out;
+    /**
+     * Output channel, null when writing to a stream
+     */
+    private final WritableByteChannel channel;
+    private byte[] buffer;
+    private int size = 0;
+    /**
+     * Number of bytes written to the output
+     */
+    private long written = 0;
+    /**
+     * true while there is a key-value line to be ended
+     */
+    private boolean lineOpen = false;
+
+    /**
+     * Class constructor specifying the output stream.
+     *
+     * @param out
+     */
+    public IniStreamWriter(OutputStream out) {
+        this(out, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Class constructor specifying the output stream and the initial size of
+     * the buffer. The buffer grows when a section does not fit in it.
+     *
+     * @param out
+     * @param capacity
+     */
+    public IniStreamWriter(OutputStream out, int capacity) {
+        this.out = out;
+        this.channel = null;
+        this.buffer = new byte[Math.max(16, capacity)];
+    }
+
+    /**
+     * Class constructor specifying the output channel and the initial size of
+     * the buffer.
+     *
+     * @param channel
+     * @param capacity
+     */
+    public IniStreamWriter(WritableByteChannel channel, int capacity) {
+        this.out = null;
+        this.channel = channel;
+        this.buffer = new byte[Math.max(16, capacity)];
+    }
+
+    /**
+     * Makes room in the buffer for some more bytes.
+     *
+     * @param bytes
+     */
+    private void ensureCapacity(int bytes) {
+        if (size + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, size + bytes));
+        }
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    /**
+     * Ends the current key-value line, if any, and copies the bytes held by
+     * another writer.
+     *
+     * @param other
+     */
+    public void appendContents(IniStreamWriter other) {
+        endLine();
+        ensureCapacity(other.size);
+        System.arraycopy(other.buffer, 0, buffer, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Ends the current key-value line, if any.
+     */
+    private void endLine() {
+        if (lineOpen) {
+            write(LINE_SEPARATOR);
+            lineOpen = false;
+        }
+    }
+
+    @Override
+    public SectionWriter beginSection(String tag) {
+        append('[').append(tag).append(']');
+        write(LINE_SEPARATOR);
+        return this;
+    }
+
+    @Override
+    public SectionWriter key(String key) {
+        endLine();
+        append(key);
+        write(KEY_SEPARATOR);
+        lineOpen = true;
+        return this;
+    }
+
+    @Override
+    public SectionWriter append(String s) {
+        int length = s.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                // not ASCII, encoded with the default charset as IniSection does
+                write(s.getBytes());
+                return this;
+            }
+            buffer[size + i] = (byte) c;
+        }
+        size += length;
+        return this;
+    }
+
+    @Override
+    public SectionWriter append(char c) {
+        if (c >= 0x80) {
+            return append(String.valueOf(c));
+        }
+        ensureCapacity(1);
+        buffer[size++] = (byte) c;
+        return this;
+    }
+
+    @Override
+    public SectionWriter append(int i) {
+        if (i == Integer.MIN_VALUE) {
+            return append(Integer.toString(i));
+        }
+        ensureCapacity(11);
+        if (i < 0) {
+            buffer[size++] = '-';
+            i = -i;
+        }
+        int digits = 1;
+        for (int n = i / 10; n > 0; n /= 10) {
+            digits++;
+        }
+        for (int p = size + digits - 1; p >= size; p--) {
+            buffer[p] = (byte) ('0' + i % 10);
+            i /= 10;
+        }
+        size += digits;
+        return this;
+    }
+
+    @Override
+    public void endSection() {
+        endLine();
+    }
+
+    /**
+     * The INI format has no marks between ticks.
+     *
+     * @param time
+     */
+    @Override
+    public void beginTick(int time) {
+    }
+
+    /**
+     * Writes a comment line, as the comments of {@link IniSection}.
+     *
+     * @param comment
+     */
+    @Override
+    public void comment(String comment) {
+        append(';').append(comment);
+        write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes the separator between two sections used by the simulator, a
+     * single new line character.
+     */
+    @Override
+    public void separator() {
+        append('\n');
+    }
+
+    /**
+     * @return Number of bytes waiting to be written
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of bytes written since the writer was created, including
+     * the ones waiting to be written
+     */
+    public long position() {
+        return written + size;
+    }
+
+    /**
+     * @param bytes
+     * @return true if the buffer holds exactly the given bytes
+     */
+    public boolean contentEquals(byte[] bytes) {
+        if (bytes.length != size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (buffer[i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a copy of the bytes in the buffer
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Empties the buffer without writing it.
+     */
+    public void clear() {
+        size = 0;
+        lineOpen = false;
+    }
+
+    /**
+     * Writes the buffer to the output stream and empties it.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.write(buffer, 0, size);
+            out.flush();
+        } else {
+            writeFully(ByteBuffer.wrap(buffer, 0, size));
+        }
+        written += size;
+        size = 0;
+    }
+
+    /**
+     * The INI format needs nothing at the end, so this just flushes the
+     * buffer.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void finish() throws IOException {
+        flush();
+    }
+
+    /**
+     * Writes the whole contents of a buffer to the channel.
+     *
+     * @param bb
+     * @throws IOException
+     */
+    private void writeFully(ByteBuffer bb) throws IOException {
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package pr6.ini;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Compares two reports one section at a time, so that reports of any size are
+ * compared without loading them. Two reports are equal when {@link Ini#equals}
+ * would say so: they have the same number of sections and every section has
+ * the same values as the one in the same position, whatever the order of its
+ * keys.
+ *
+ * Instead of just telling whether they are equal, the comparison describes
+ * the first difference found.
+ */
+public class ReportComparator {
+
+    private ReportComparator() {
+    }
+
+    /**
+     * Compares a report with the expected one.
+     *
+     * @param actual
+     * @param expected
+     * @return description of the first difference, null if the reports are
+     * equal
+     * @throws IOException
+     * @throws IniError if either report is not valid
+     */
+    public static String compare(InputStream actual, InputStream expected)
+            throws IOException {
+        IniSectionReader actualReader = new IniSectionReader(actual);
+        IniSectionReader expectedReader = new IniSectionReader(expected);
+        for (long n = 1;; n++) {
+            IniSection a = actualReader.next();
+            IniSection e = expectedReader.next();
+            if (a == null && e == null) {
+                return null;
+            } else if (a == null) {
+                return "The report ends after " + (n - 1) + " sections, expected "
+                        + describe(e) + " at section " + n;
+            } else if (e == null) {
+                return "The report has more sections than expected, "
+                        + describe(a) + " at section " + n;
+            }
+            String difference = compare(a, e);
+            if (difference != null) {
+                return "Section " + n + ", " + describe(e) + ": " + difference;
+            }
+        }
+    }
+
+    /**
+     * Compares a section with the expected one.
+     *
+     * @param actual
+     * @param expected
+     * @return description of the first difference, null if the sections are
+     * equal
+     * @see IniSection#equals(Object)
+     */
+    public static String compare(IniSection actual, IniSection expected) {
+        for (String key : expected.getKeys()) {
+            String value = actual.getValue(key);
+            if (value == null) {
+                return "key '" + key + "' is missing, expected '"
+                        + expected.getValue(key) + "'";
+            } else if (!value.equals(expected.getValue(key))) {
+                return "key '" + key + "' is '" + value + "', expected '"
+                        + expected.getValue(key) + "'";
+            }
+        }
+        if (actual.getKeys().size() != expected.getKeys().size()) {
+            for (String key : actual.getKeys()) {
+                if (expected.getValue(key) == null) {
+                    return "key '" + key + "' is not expected";
+                }
+            }
+            return "the number of keys is " + actual.getKeys().size()
+                    + ", expected " + expected.getKeys().size();
+        }
+        return null;
+    }
+
+    /**
+     * @param section
+     * @return the tag, the id and the time of the report of a section
+     */
+    private static String describe(IniSection section) {
+        StringBuilder sb = new StringBuilder("[").append(section.getTag()).append(']');
+        String id = section.getValue("id");
+        if (id != null) {
+            sb.append(" id = ").append(id);
+        }
+        String time = section.getValue("time");
+        if (time != null) {
+            sb.append(", time = ").append(time);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package pr6.ini;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the index of a text report, with the offset of every tick and of the
+ * report of every object within it, so that {@link IndexedReportReader} can
+ * read any of them without reading the report from the beginning.
+ *
+ * The index is written next to the report, as the reports are written:
+ * <pre>
+ * header  = MAGIC VERSION (4 bytes)
+ * objects = (id offset)*          id is an int, offset a long
+ * ids     = count (length utf-8)*count
+ * ticks   = (time offset first-object objects)*count
+ * trailer = ids-offset ticks-offset tick-count report-length MAGIC
+ * </pre>
+ * Every number has a fixed size and is written big endian, so that the
+ * entries can be read in place from a memory mapped index.
+ */
+public class ReportIndexWriter {
+
+    static final byte[] MAGIC = {'P', 'R', '6', 'X'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + 4;
+    /**
+     * Sizes of the entries of the objects and the ticks
+     */
+    static final int OBJECT_SIZE = 4 + 8;
+    static final int TICK_SIZE = 4 + 8 + 8 + 4;
+    static final int TRAILER_SIZE = 8 + 8 + 4 + 8 + MAGIC.length;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> idList = new ArrayList<>();
+    /**
+     * Entries of the ticks, written at the end
+     */
+    private final ByteArrayOutputStream tickBytes = new ByteArrayOutputStream();
+    private final DataOutputStream ticks = new DataOutputStream(tickBytes);
+    private int tickCount = 0;
+    private long objectCount = 0;
+    /**
+     * Entry of the current tick, written when the next one starts
+     */
+    private boolean tickOpen = false;
+    private int time;
+    private long tickOffset;
+    private long firstObject;
+    private boolean finished = false;
+
+    /**
+     * Class constructor specifying the output stream of the index, which is
+     * not closed by the writer.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public ReportIndexWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.out.write(MAGIC);
+        this.out.writeInt(VERSION);
+    }
+
+    /**
+     * Starts the entries of a tick.
+     *
+     * @param time
+     * @param offset Offset of the reports of the tick in the report
+     * @throws IOException
+     */
+    public void tick(int time, long offset) throws IOException {
+        endTick();
+        tickOpen = true;
+        this.time = time;
+        tickOffset = offset;
+        firstObject = objectCount;
+    }
+
+    /**
+     * Adds the report of an object to the current tick.
+     *
+     * @param id Id of the object
+     * @param offset Offset of the report in the report
+     * @throws IOException
+     */
+    public void object(String id, long offset) throws IOException {
+        Integer n = ids.get(id);
+        if (n == null) {
+            n = idList.size();
+            ids.put(id, n);
+            idList.add(id);
+        }
+        out.writeInt(n);
+        out.writeLong(offset);
+        objectCount++;
+    }
+
+    /**
+     * Adds the entry of the current tick to the table of ticks.
+     *
+     * @throws IOException
+     */
+    private void endTick() throws IOException {
+        if (tickOpen) {
+            ticks.writeInt(time);
+            ticks.writeLong(tickOffset);
+            ticks.writeLong(firstObject);
+            ticks.writeInt((int) (objectCount - firstObject));
+            tickCount++;
+            tickOpen = false;
+        }
+    }
+
+    /**
+     * Writes the ids, the ticks and the trailer, and flushes the output. The
+     * index can not be written to anymore.
+     *
+     * @param reportLength Number of bytes of the report
+     * @throws IOException
+     */
+    public void finish(long reportLength) throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        endTick();
+        long idsOffset = HEADER_SIZE + objectCount * OBJECT_SIZE;
+        long idsLength = 4;
+        out.writeInt(idList.size());
+        for (String id : idList) {
+            byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            idsLength += 4 + bytes.length;
+        }
+        tickBytes.writeTo(out);
+        out.writeLong(idsOffset);
+        out.writeLong(idsOffset + idsLength);
+        out.writeInt(tickCount);
+        out.writeLong(reportLength);
+        out.write(MAGIC);
+        out.flush();
+    }
+}
@@ -0,0 +1,52 @@
+package pr6.ini;
+
+import java.io.IOException;
+
+/**
+ * Section writer used by the simulator to write the reports of every tick to
+ * its output. The sections are kept until they are flushed.
+ *
+ * @see IniStreamWriter
+ * @see BinaryReportWriter
+ */
+public interface ReportWriter extends SectionWriter {
+
+    /**
+     * Starts the reports of a new tick.
+     *
+     * @param time Time of the reports
+     */
+    public void beginTick(int time);
+
+    /**
+     * Writes a comment line.
+     *
+     * @param comment
+     */
+    public void comment(String comment);
+
+    /**
+     * Writes the separator between two sections used by the simulator.
+     */
+    public void separator();
+
+    /**
+     * @return Number of bytes waiting to be written
+     */
+    public int size();
+
+    /**
+     * Writes everything kept to the output.
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException;
+
+    /**
+     * Writes everything kept to the output, followed by whatever the format
+     * needs at the end of it. The output is not closed.
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException;
+}
@@ -0,0 +1,62 @@
+package pr6.ini;
+
+/**
+ * Receives the contents of an INI section as they are generated, so that they
+ * can be written without building the whole section first.
+ *
+ * A section starts with {@link #beginSection(String)} and ends with
+ * {@link #endSection()}. Every key starts a new key-value line, and the value
+ * is made of whatever is appended until the next key or the end of the
+ * section. Keys are written in the order they are given.
+ *
+ * @see IniSectionWriter
+ * @see IniStreamWriter
+ */
+public interface SectionWriter {
+
+    /**
+     * Starts a new section.
+     *
+     * @param tag The tag of the section
+     * @return this writer
+     */
+    public SectionWriter beginSection(String tag);
+
+    /**
+     * Starts a new key-value line. The value is empty until something is
+     * appended.
+     *
+     * @param key The key
+     * @return this writer
+     */
+    public SectionWriter key(String key);
+
+    /**
+     * Appends a string to the value of the current key.
+     *
+     * @param s
+     * @return this writer
+     */
+    public SectionWriter append(String s);
+
+    /**
+     * Appends a character to the value of the current key.
+     *
+     * @param c
+     * @return this writer
+     */
+    public SectionWriter append(char c);
+
+    /**
+     * Appends an integer in decimal to the value of the current key.
+     *
+     * @param i
+     * @return this writer
+     */
+    public SectionWriter append(int i);
+
+    /**
+     * Ends the current section.
+     */
+    public void endSection();
+}
@@ -0,0 +1,188 @@
+package pr6.ini;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts the time series of some objects from a report into one CSV file
+ * per object, named after its id. Every report of an object is a row with its
+ * time followed by the rest of its values, in the order of the first report of
+ * the object, which is also the header of the file.
+ *
+ * The report is read once and only the rows being written are kept, so the
+ * memory used depends on the number of objects and not on the size of the
+ * report.
+ */
+public class TimeSeriesExtractor implements Closeable {
+
+    /**
+     * Extension of the files of the series
+     */
+    public static final String EXTENSION = ".csv";
+    private final Path directory;
+    /**
+     * Series of every object extracted, by id
+     */
+    private final Map<String, Series> series = new LinkedHashMap<>();
+
+    /**
+     * Class constructor specifying the directory of the files and the ids of
+     * the objects extracted.
+     *
+     * @param directory
+     * @param ids
+     */
+    public TimeSeriesExtractor(Path directory, Collection<String> ids) {
+        this.directory = directory;
+        for (String id : ids) {
+            series.put(id, new Series());
+        }
+    }
+
+    /**
+     * Extracts the series from a text report, read from the beginning to the
+     * end.
+     *
+     * @param report
+     * @throws IOException
+     * @throws IniError if the report is not valid
+     */
+    public void extract(InputStream report) throws IOException {
+        extract(new IniSectionReader(report));
+    }
+
+    /**
+     * Extracts the series from an indexed report, reading only the reports
+     * of the objects extracted.
+     *
+     * @param report
+     * @throws IOException
+     * @throws IniError if the report is not valid
+     * @see IndexedReportReader#readObjects(Collection)
+     */
+    public void extract(IndexedReportReader report) throws IOException {
+        extract(report.readObjects(series.keySet()));
+    }
+
+    /**
+     * Extracts the series from the sections of a reader.
+     *
+     * @param reader
+     * @throws IOException
+     */
+    private void extract(IniSectionReader reader) throws IOException {
+        IniSection section;
+        while ((section = reader.next()) != null) {
+            add(section);
+        }
+    }
+
+    /**
+     * Adds a row to the series of the object of a report, if it is
+     * extracted. The file of the series is created with the first row.
+     *
+     * @param section Report of an object
+     * @throws IOException
+     */
+    public void add(IniSection section) throws IOException {
+        String id = section.getValue("id");
+        Series s = (id == null) ? null : series.get(id);
+        if (s == null) {
+            return;
+        }
+        if (s.out == null) {
+            s.keys = new ArrayList<>();
+            for (String key : section.getKeys()) {
+                if (!key.equals("id") && !key.equals("time")) {
+                    s.keys.add(key);
+                }
+            }
+            s.out = Files.newBufferedWriter(directory.resolve(id + EXTENSION),
+                    StandardCharsets.UTF_8);
+            s.out.write("time");
+            for (String key : s.keys) {
+                s.out.write(',');
+                writeField(s.out, key);
+            }
+            s.out.write('\n');
+        }
+        writeField(s.out, section.getValue("time"));
+        for (String key : s.keys) {
+            s.out.write(',');
+            writeField(s.out, section.getValue(key));
+        }
+        s.out.write('\n');
+        s.rows++;
+    }
+
+    /**
+     * Writes a field of a row, quoted if it has commas or quotes.
+     *
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    private static void writeField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            out.write(value);
+        } else {
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+    }
+
+    /**
+     * @param id
+     * @return Number of rows of the series of an object
+     */
+    public long getRows(String id) {
+        Series s = series.get(id);
+        return (s == null) ? 0 : s.rows;
+    }
+
+    /**
+     * Writes and closes the files of the series.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (Series s : series.values()) {
+            if (s.out != null) {
+                try {
+                    s.out.close();
+                } catch (IOException e) {
+                    error = (error == null) ? e : error;
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * File and columns of the series of an object.
+     */
+    private static final class Series {
+
+        private Writer out = null;
+        private List<String> keys = null;
+        private long rows = 0;
+    }
+}
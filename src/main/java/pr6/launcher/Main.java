@@ -1,16 +1,40 @@
 package pr6.launcher;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
 import javax.swing.SwingUtilities;
 import org.apache.commons.cli.*;
 import pr6.control.Controller;
 import pr6.view.SimWindow;
-import pr6.ini.Ini;
+import pr6.exception.SimulatorError;
+import pr6.ini.BinaryReportReader;
+import pr6.ini.BinaryReportWriter;
+import pr6.ini.CompressedReportStream;
+import pr6.ini.DeltaReportReader;
+import pr6.ini.IndexedReportReader;
+import pr6.ini.IniError;
+import pr6.ini.IniSection;
+import pr6.ini.ReportComparator;
+import pr6.ini.TimeSeriesExtractor;
+import pr6.model.Car;
+import pr6.model.ReportFilter;
+import pr6.model.TrafficSimulator;
 
 /**
  * Main class.
@@ -18,7 +42,7 @@ import pr6.ini.Ini;
 public class Main {
 
     private enum modesAvailable {
-        GUI, BATCH
+        GUI, BATCH, CONVERT, SEEK, EXTRACT
     }
     private final static Integer TIME_LIMIT_DEFAULT_VALUE = 10;
     private final static String MODE_DEFAULT_VALUE = "batch";
@@ -26,6 +50,26 @@ public class Main {
     private static String _inFile = null;
     private static String _outFile = null;
     private static modesAvailable _mode = null;
+    private static int _parallelism = 1;
+    private static TrafficSimulator.FastForward _fastForward
+            = TrafficSimulator.FastForward.OFF;
+    private static Car.RandomMode _randomMode = Car.RandomMode.RANDOM;
+    private static int _notifyTicks = 1;
+    private static long _notifyMillis = 0;
+    private final static int BUFFER_DEFAULT_VALUE = 1 << 16;
+    private static int _bufferSize = BUFFER_DEFAULT_VALUE;
+    private static boolean _flushEveryTick = true;
+    private static int _asyncReportBuffers = 0;
+    private static TrafficSimulator.ReportFormat _reportFormat
+            = TrafficSimulator.ReportFormat.INI;
+    private static int _deltaKeyframes = 0;
+    private static ReportFilter _reportFilter = new ReportFilter();
+    private static boolean _compress = false;
+    private static int _compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private static boolean _index = false;
+    private static boolean _streamEvents = false;
+    private static Integer _seekTime = null;
+    private static List<String> _objects = null;
 
     /**
      * Parse a list of arguments given. The method creates a cmdLineOptions to
@@ -49,6 +93,23 @@ public class Main {
             parseInFileOption(line);
             parseOutFileOption(line);
             parseStepsOption(line);
+            parseParallelismOption(line);
+            parseFastForwardOption(line);
+            parseRandomOption(line);
+            parseNotifyOption(line);
+            parseBufferOption(line);
+            parseFlushOption(line);
+            parseAsyncReportsOption(line);
+            parseFormatOption(line);
+            parseDeltaOption(line);
+            parseReportEveryOption(line);
+            parseReportWindowOption(line);
+            parseReportTypesOption(line);
+            parseReportIdsOption(line);
+            parseCompressOption(line);
+            parseIndexOption(line);
+            parseSeekOption(line);
+            parseStreamEventsOption(line);
 
             // if there are some remaining arguments, then something wrong is
             // provided in the command line!
@@ -83,7 +144,11 @@ public class Main {
         cmdLineOptions.addOption(Option.builder("i").longOpt("input")
                 .hasArg().desc("Events input file").build());
         cmdLineOptions.addOption(Option.builder("m").longOpt("mode").hasArg()
-                .desc("’batch’ for batch mode and ’gui’ for GUI mode\n"
+                .desc("’batch’ for batch mode, ’gui’ for GUI mode,"
+                        + " ’convert’ to convert a binary report to text,"
+                        + " ’seek’ to read a tick of an indexed report and"
+                        + " ’extract’ to write the time series of some objects"
+                        + " of a report\n"
                         + "(default value is ’batch’)").build());
         cmdLineOptions.addOption(
                 Option.builder("o").longOpt("output").hasArg()
@@ -92,6 +157,84 @@ public class Main {
                 .desc("Ticks to execute the simulator's main loop (default value"
                         + " is " + TIME_LIMIT_DEFAULT_VALUE + ").")
                 .build());
+        cmdLineOptions.addOption(Option.builder("p").longOpt("parallelism")
+                .hasArg().desc("Number of threads used to advance the simulation"
+                        + " (default value is 1).").build());
+        cmdLineOptions.addOption(Option.builder("f").longOpt("fast-forward")
+                .hasArg().desc("Skip the ticks without traffic nor events:"
+                        + " ’markers’ replaces their reports by a comment"
+                        + " telling that they were skipped and"
+                        + " ’reports’ writes them (disabled by default).").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("rng").hasArg()
+                .desc("Random number generator of the cars which do not choose"
+                        + " one: ’random’ or ’counter’, whose faults only depend"
+                        + " on the seed, the car and the tick (default value is"
+                        + " ’random’).").build());
+        cmdLineOptions.addOption(Option.builder("n").longOpt("notify-every")
+                .hasArg().desc("Interval between progress messages, in ticks"
+                        + " or in milliseconds with the suffix ’ms’ (default"
+                        + " value is 1).").build());
+        cmdLineOptions.addOption(Option.builder("b").longOpt("buffer")
+                .hasArg().desc("Size of the buffer of the output file, in bytes"
+                        + " or with the suffix ’k’ or ’m’ (default value is "
+                        + (BUFFER_DEFAULT_VALUE >> 10) + "k).").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("flush").hasArg()
+                .desc("’tick’ writes the reports at the end of every tick and"
+                        + " ’full’ when the buffer is full (default value is"
+                        + " ’tick’).").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("format").hasArg()
+                .desc("’ini’ writes the reports as text and ’binary’ in a"
+                        + " compact format which the mode ’convert’ turns into"
+                        + " text (default value is ’ini’).").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("delta").hasArg()
+                .desc("Only write the objects which changed, with a full"
+                        + " report every given number of ticks; the mode"
+                        + " ’convert’ rebuilds the full reports (disabled by"
+                        + " default).").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("report-every")
+                .hasArg().desc("Only write the reports of the ticks which are a"
+                        + " multiple of the given number (default value is 1).")
+                .build());
+        cmdLineOptions.addOption(Option.builder().longOpt("report-window")
+                .hasArg().desc("Only write the reports of the ticks from:to,"
+                        + " both included; either of them can be left out"
+                        + " (every tick by default).").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("report-types")
+                .hasArg().desc("Comma separated kinds of object reported:"
+                        + " ’junction’, ’road’ and ’vehicle’ (every kind by"
+                        + " default).").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("report-ids")
+                .hasArg().desc("Comma separated ids of the objects reported;"
+                        + " an id ending with ’*’ reports every id starting"
+                        + " with it (every object by default).").build());
+        cmdLineOptions.addOption(Option.builder("z").longOpt("compress")
+                .desc("Compress the output file in the gzip format, which is"
+                        + " also done when its name ends with ’.gz’.").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("compression-level")
+                .hasArg().desc("Level of compression of the output file, from"
+                        + " 0 to 9 (default value is 6).").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("index")
+                .desc("Write an index of the ticks and objects of the output"
+                        + " file next to it, with the extension ’.idx’, which"
+                        + " the mode ’seek’ uses.").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("stream-events")
+                .desc("Read the events of the input file as the simulation"
+                        + " reaches their time instead of loading all of them"
+                        + " first. Unsorted events are sorted in temporary"
+                        + " files.").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("time").hasArg()
+                .desc("Time of the reports read by the mode ’seek’.").build());
+        cmdLineOptions.addOption(Option.builder().longOpt("object").hasArg()
+                .desc("Comma separated ids of the objects read by the mode"
+                        + " ’seek’ (every object by default) or whose time"
+                        + " series are written by the mode ’extract’ to the"
+                        + " directory given as output file, one CSV file per"
+                        + " object.").build());
+        cmdLineOptions.addOption(Option.builder("w").longOpt("writer-buffers")
+                .hasArg().desc("Write the reports on a thread of its own, with"
+                        + " the given number of buffers waiting to be written"
+                        + " (default value is 0, written by the simulation).")
+                .build());
 
         return cmdLineOptions;
     }
@@ -120,6 +263,12 @@ public class Main {
             _mode = modesAvailable.GUI;
         } else if ("batch".equals(s)) {
             _mode = modesAvailable.BATCH;
+        } else if ("convert".equals(s)) {
+            _mode = modesAvailable.CONVERT;
+        } else if ("seek".equals(s)) {
+            _mode = modesAvailable.SEEK;
+        } else if ("extract".equals(s)) {
+            _mode = modesAvailable.EXTRACT;
         } else {
             throw new ParseException("Mode not valid given, check help command "
                     + "to see which modes are available");
@@ -171,6 +320,359 @@ public class Main {
         }
     }
 
+    /**
+     * Parse in the command line the option "parallelism". It sets the value of
+     * _parallelism to the number of threads given by the user.
+     *
+     * @throws ParseException Exception thrown when invalid number of threads.
+     */
+    private static void parseParallelismOption(CommandLine line) throws ParseException {
+        String p = line.getOptionValue("p", "1");
+        try {
+            _parallelism = Integer.parseInt(p);
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid value for parallelism: " + p);
+        }
+        if (_parallelism < 1) {
+            throw new ParseException("Invalid value for parallelism: " + p);
+        }
+    }
+
+    /**
+     * Parse in the command line the option "rng". It sets the value of
+     * _randomMode to the generator given by the user.
+     *
+     * @throws ParseException Exception thrown when not valid generator given.
+     */
+    private static void parseRandomOption(CommandLine line) throws ParseException {
+        String r = line.getOptionValue("rng", "random");
+        if ("random".equals(r)) {
+            _randomMode = Car.RandomMode.RANDOM;
+        } else if ("counter".equals(r)) {
+            _randomMode = Car.RandomMode.COUNTER;
+        } else {
+            throw new ParseException("Invalid value for rng: " + r);
+        }
+    }
+
+    /**
+     * Parse in the command line the option "fast-forward". It sets the value of
+     * _fastForward to the mode given by the user.
+     *
+     * @throws ParseException Exception thrown when not valid mode given.
+     */
+    private static void parseFastForwardOption(CommandLine line) throws ParseException {
+        String f = line.getOptionValue("f");
+        if (f == null) {
+            _fastForward = TrafficSimulator.FastForward.OFF;
+        } else if ("markers".equals(f)) {
+            _fastForward = TrafficSimulator.FastForward.MARKERS;
+        } else if ("reports".equals(f)) {
+            _fastForward = TrafficSimulator.FastForward.REPORTS;
+        } else {
+            throw new ParseException("Invalid value for fast forward: " + f);
+        }
+    }
+
+    /**
+     * Parse in the command line the option "notify-every". It sets the value
+     * of _notifyTicks or _notifyMillis to the interval given by the user.
+     *
+     * @throws ParseException Exception thrown when invalid interval.
+     */
+    private static void parseNotifyOption(CommandLine line) throws ParseException {
+        String n = line.getOptionValue("n", "1");
+        try {
+            if (n.endsWith("ms")) {
+                _notifyTicks = 0;
+                _notifyMillis = Long.parseLong(n.substring(0, n.length() - 2).trim());
+            } else {
+                _notifyTicks = Integer.parseInt(n);
+                _notifyMillis = 0;
+            }
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid value for notification interval: " + n);
+        }
+        if (_notifyTicks < 0 || _notifyMillis < 0) {
+            throw new ParseException("Invalid value for notification interval: " + n);
+        }
+    }
+
+    /**
+     * Parse in the command line the option "buffer". It sets the value of
+     * _bufferSize to the buffer size given by the user.
+     *
+     * @throws ParseException Exception thrown when invalid buffer size.
+     */
+    private static void parseBufferOption(CommandLine line) throws ParseException {
+        String b = line.getOptionValue("b", Integer.toString(BUFFER_DEFAULT_VALUE));
+        int shift = 0;
+        String size = b.trim().toLowerCase();
+        if (size.endsWith("k")) {
+            shift = 10;
+        } else if (size.endsWith("m")) {
+            shift = 20;
+        }
+        if (shift > 0) {
+            size = size.substring(0, size.length() - 1).trim();
+        }
+        try {
+            long bytes = Long.parseLong(size) << shift;
+            if (bytes < 1 || bytes > Integer.MAX_VALUE) {
+                throw new ParseException("Invalid value for buffer size: " + b);
+            }
+            _bufferSize = (int) bytes;
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid value for buffer size: " + b);
+        }
+    }
+
+    /**
+     * Parse in the command line the option "flush". It sets the value of
+     * _flushEveryTick to the policy given by the user.
+     *
+     * @throws ParseException Exception thrown when not valid policy given.
+     */
+    private static void parseFlushOption(CommandLine line) throws ParseException {
+        String f = line.getOptionValue("flush", "tick");
+        if ("tick".equals(f)) {
+            _flushEveryTick = true;
+        } else if ("full".equals(f)) {
+            _flushEveryTick = false;
+        } else {
+            throw new ParseException("Invalid value for flush: " + f);
+        }
+    }
+
+    /**
+     * Parse in the command line the option "writer-buffers". It sets the value
+     * of _asyncReportBuffers to the number of buffers given by the user.
+     *
+     * @throws ParseException Exception thrown when invalid number of buffers.
+     */
+    private static void parseAsyncReportsOption(CommandLine line) throws ParseException {
+        String w = line.getOptionValue("w", "0");
+        try {
+            _asyncReportBuffers = Integer.parseInt(w);
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid value for writer buffers: " + w);
+        }
+        if (_asyncReportBuffers < 0) {
+            throw new ParseException("Invalid value for writer buffers: " + w);
+        }
+    }
+
+    /**
+     * Parse in the command line the option "format". It sets the value of
+     * _reportFormat to the format given by the user.
+     *
+     * @throws ParseException Exception thrown when not valid format given.
+     */
+    private static void parseFormatOption(CommandLine line) throws ParseException {
+        String f = line.getOptionValue("format", "ini");
+        if ("ini".equals(f)) {
+            _reportFormat = TrafficSimulator.ReportFormat.INI;
+        } else if ("binary".equals(f)) {
+            _reportFormat = TrafficSimulator.ReportFormat.BINARY;
+        } else {
+            throw new ParseException("Invalid value for format: " + f);
+        }
+    }
+
+    /**
+     * Parse in the command line the option "delta". It sets the value of
+     * _deltaKeyframes to the number of ticks between full reports given by
+     * the user.
+     *
+     * @throws ParseException Exception thrown when invalid number of ticks.
+     */
+    private static void parseDeltaOption(CommandLine line) throws ParseException {
+        String d = line.getOptionValue("delta", "0");
+        try {
+            _deltaKeyframes = Integer.parseInt(d);
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid value for delta: " + d);
+        }
+        if (_deltaKeyframes < 0) {
+            throw new ParseException("Invalid value for delta: " + d);
+        }
+    }
+
+    /**
+     * Parse in the command line the option "report-every". It sets the
+     * number of ticks between the reports written.
+     *
+     * @throws ParseException Exception thrown when invalid number of ticks.
+     */
+    private static void parseReportEveryOption(CommandLine line) throws ParseException {
+        String e = line.getOptionValue("report-every", "1");
+        try {
+            _reportFilter.every(Integer.parseInt(e));
+        } catch (IllegalArgumentException ex) {
+            throw new ParseException("Invalid value for report interval: " + e);
+        }
+    }
+
+    /**
+     * Parse in the command line the option "report-window". It sets the
+     * first and the last tick whose reports are written.
+     *
+     * @throws ParseException Exception thrown when invalid window given.
+     */
+    private static void parseReportWindowOption(CommandLine line) throws ParseException {
+        String w = line.getOptionValue("report-window");
+        if (w != null) {
+            int colon = w.indexOf(':');
+            if (colon < 0) {
+                throw new ParseException("Invalid value for report window: " + w);
+            }
+            String from = w.substring(0, colon).trim();
+            String to = w.substring(colon + 1).trim();
+            try {
+                _reportFilter.window(
+                        from.isEmpty() ? Integer.MIN_VALUE : Integer.parseInt(from),
+                        to.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(to));
+            } catch (NumberFormatException e) {
+                throw new ParseException("Invalid value for report window: " + w);
+            }
+        }
+    }
+
+    /**
+     * Parse in the command line the option "report-types". It sets the kinds
+     * of object whose reports are written.
+     *
+     * @throws ParseException Exception thrown when not valid kind given.
+     */
+    private static void parseReportTypesOption(CommandLine line) throws ParseException {
+        String t = line.getOptionValue("report-types");
+        if (t != null) {
+            boolean junctions = false;
+            boolean roads = false;
+            boolean vehicles = false;
+            for (String kind : t.split(",")) {
+                switch (kind.trim()) {
+                    case "junction":
+                        junctions = true;
+                        break;
+                    case "road":
+                        roads = true;
+                        break;
+                    case "vehicle":
+                        vehicles = true;
+                        break;
+                    default:
+                        throw new ParseException("Invalid value for report types: " + t);
+                }
+            }
+            _reportFilter.kinds(junctions, roads, vehicles);
+        }
+    }
+
+    /**
+     * Parse in the command line the option "report-ids". It sets the ids of
+     * the objects whose reports are written.
+     *
+     * @throws ParseException Exception thrown when an empty id is given.
+     */
+    private static void parseReportIdsOption(CommandLine line) throws ParseException {
+        String i = line.getOptionValue("report-ids");
+        if (i != null) {
+            List<String> ids = new ArrayList<>();
+            for (String id : i.split(",")) {
+                if (id.trim().isEmpty()) {
+                    throw new ParseException("Invalid value for report ids: " + i);
+                }
+                ids.add(id.trim());
+            }
+            _reportFilter.ids(ids);
+        }
+    }
+
+    /**
+     * Parse in the command line the options "compress" and
+     * "compression-level". The output is compressed when asked or when the
+     * name of the output file ends with ".gz".
+     *
+     * @throws ParseException Exception thrown when invalid level given.
+     */
+    private static void parseCompressOption(CommandLine line) throws ParseException {
+        _compress = line.hasOption("z")
+                || (_outFile != null && _outFile.endsWith(".gz"));
+        String l = line.getOptionValue("compression-level");
+        if (l != null) {
+            try {
+                _compressionLevel = Integer.parseInt(l);
+            } catch (NumberFormatException e) {
+                throw new ParseException("Invalid value for compression level: " + l);
+            }
+            if (_compressionLevel < Deflater.NO_COMPRESSION
+                    || _compressionLevel > Deflater.BEST_COMPRESSION) {
+                throw new ParseException("Invalid value for compression level: " + l);
+            }
+        }
+    }
+
+    /**
+     * Parse in the command line the option "index". The index can only be
+     * written for an output file of uncompressed text with the full reports
+     * of every tick, so not in delta mode.
+     *
+     * @throws ParseException Exception thrown when the output can not be
+     * indexed.
+     */
+    private static void parseIndexOption(CommandLine line) throws ParseException {
+        _index = line.hasOption("index");
+        if (_index && (_outFile == null || _compress
+                || _reportFormat != TrafficSimulator.ReportFormat.INI)) {
+            throw new ParseException("The index needs an output file of"
+                    + " uncompressed text");
+        }
+        if (_index && _deltaKeyframes > 0) {
+            throw new ParseException("The index needs the full reports, not"
+                    + " delta reports");
+        }
+    }
+
+    /**
+     * Parse in the command line the option "stream-events", only used in
+     * batch mode.
+     */
+    private static void parseStreamEventsOption(CommandLine line) {
+        _streamEvents = line.hasOption("stream-events");
+    }
+
+    /**
+     * Parse in the command line the options "time" and "object" of the modes
+     * "seek" and "extract".
+     *
+     * @throws ParseException Exception thrown when invalid time or ids given.
+     */
+    private static void parseSeekOption(CommandLine line) throws ParseException {
+        String t = line.getOptionValue("time");
+        String o = line.getOptionValue("object");
+        if (o != null) {
+            _objects = new ArrayList<>();
+            for (String id : o.split(",")) {
+                if (id.trim().isEmpty()) {
+                    throw new ParseException("Invalid value for object: " + o);
+                }
+                _objects.add(id.trim());
+            }
+        } else if (_mode == modesAvailable.EXTRACT) {
+            throw new ParseException("The objects to extract are missing");
+        }
+        if (t != null) {
+            try {
+                _seekTime = Integer.parseInt(t);
+            } catch (NumberFormatException e) {
+                throw new ParseException("Invalid value for time: " + t);
+            }
+        } else if (_mode == modesAvailable.SEEK) {
+            throw new ParseException("The time to seek is missing");
+        }
+    }
+
     /**
      * This method run the simulator on all files that ends with .ini if the
      * given path, and compares that output to the expected output. It assumes
@@ -220,10 +722,15 @@ public class Main {
         _inFile = inFile;
         _timeLimit = timeLimit;
         startBatchModeTest();
-        boolean equalOutput = (new Ini(_outFile)).equals(new Ini(expectedOutFile));
+        String difference;
+        try (InputStream in = CompressedReportStream.open(new FileInputStream(_outFile));
+                InputStream expected = CompressedReportStream.open(
+                        new FileInputStream(expectedOutFile))) {
+            difference = ReportComparator.compare(in, expected);
+        }
         System.out.println("Result for: '" + _inFile + "' : "
-                + (equalOutput ? "OK!" : ("not equal to expected output +'"
-                        + expectedOutFile + "'")));
+                + (difference == null ? "OK!" : ("not equal to expected output +'"
+                        + expectedOutFile + "': " + difference)));
     }
 
     /**
@@ -236,23 +743,184 @@ public class Main {
     private static void startBatchModeTest() throws Exception {
         Controller control = new Controller(_outFile == null ? System.out
                 : new FileOutputStream(_outFile));
+        control.setCompressedReports(_outFile != null && _outFile.endsWith(".gz"),
+                Deflater.DEFAULT_COMPRESSION);
         control.run(_inFile, _timeLimit == null ? TIME_LIMIT_DEFAULT_VALUE
                 : _timeLimit);
+        control.closeOutput();
     }
 
     /**
-     * Run the simulator in batch mode.
+     * Run the simulator in batch mode. Only the errors of the output file are
+     * caught; the errors loading the events are thrown.
      *
      */
     private static void startBatchMode() {
+        FileChannel channel = null;
+        OutputStream index = null;
         try {
-            Controller control = new Controller(_outFile == null ? System.out
-                    : new FileOutputStream(_outFile));
-            control.addSimulatorListener(BatchMode.INSTANCE);
-            control.run(_inFile, _timeLimit == null ? TIME_LIMIT_DEFAULT_VALUE
-                    : _timeLimit);
-        } catch (FileNotFoundException e) {
+            Controller control;
+            if (_outFile == null) {
+                control = new Controller(System.out);
+            } else {
+                channel = FileChannel.open(Paths.get(_outFile),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                control = new Controller(null);
+                control.setOutputChannel(channel, _bufferSize);
+            }
+            control.setFlushEveryTick(_flushEveryTick);
+            control.setReportFormat(_reportFormat,
+                    BinaryReportWriter.DEFAULT_KEYFRAME_INTERVAL);
+            control.setAsyncReports(_asyncReportBuffers);
+            control.setCompressedReports(_compress, _compressionLevel);
+            if (_index) {
+                index = new FileOutputStream(_outFile
+                        + IndexedReportReader.INDEX_EXTENSION);
+                control.setReportIndex(index);
+            }
+            control.setDeltaReports(_deltaKeyframes);
+            control.setReportFilter(_reportFilter);
+            control.setParallelism(_parallelism);
+            control.setFastForward(_fastForward);
+            control.setRandomMode(_randomMode);
+            control.setNotificationInterval(_notifyTicks, _notifyMillis);
+            if (_outFile == null) {
+                // the messages must not be mixed with the reports
+                control.addSimulatorListener(BatchMode.INSTANCE);
+            } else {
+                control.addAsyncSimulatorListener(BatchMode.INSTANCE);
+            }
+            int timeLimit = _timeLimit == null ? TIME_LIMIT_DEFAULT_VALUE
+                    : _timeLimit;
+            if (_streamEvents) {
+                try {
+                    control.streamEvents(_inFile);
+                    control.run(timeLimit);
+                } catch (IOException e) {
+                    throw new SimulatorError("Error while loading events from file "
+                            + _inFile, e);
+                } finally {
+                    control.closeEvents();
+                }
+            } else {
+                control.run(_inFile, timeLimit);
+            }
+            try {
+                control.closeOutput();
+            } catch (SimulatorError e) {
+                System.err.println("Error with output file: " + _outFile);
+            }
+        } catch (IOException e) {
             System.err.println("Error with output file: " + _outFile);
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Error with output file: " + _outFile);
+                }
+            }
+            if (index != null) {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    System.err.println("Error with output file: " + _outFile
+                            + IndexedReportReader.INDEX_EXTENSION);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the reports of a tick, or of an object at that tick, of the
+     * indexed report of the input file and write them to the output file.
+     */
+    private static void startSeekMode() {
+        try (IndexedReportReader reader = new IndexedReportReader(Paths.get(_inFile));
+                OutputStream out = _outFile == null ? null
+                        : new BufferedOutputStream(new FileOutputStream(_outFile))) {
+            OutputStream o = (out == null) ? System.out : out;
+            if (_objects != null) {
+                for (String id : _objects) {
+                    IniSection section = reader.readObject(_seekTime, id);
+                    if (section == null) {
+                        System.err.println("No report of " + id + " at time "
+                                + _seekTime);
+                    } else {
+                        section.store(o);
+                        o.write('\n');
+                    }
+                }
+            } else {
+                List<IniSection> sections = reader.readTick(_seekTime);
+                if (sections == null) {
+                    System.err.println("No reports at time " + _seekTime);
+                } else {
+                    for (IniSection section : sections) {
+                        section.store(o);
+                        o.write('\n');
+                    }
+                }
+            }
+            o.flush();
+        } catch (IOException | IniError e) {
+            System.err.println("Error reading " + _inFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the time series of the objects given, read from the report of the
+     * input file, to the directory given as output file. The report is read
+     * through its index if it has one, and otherwise from the beginning to
+     * the end.
+     */
+    private static void startExtractMode() {
+        Path report = Paths.get(_inFile);
+        Path index = IndexedReportReader.indexPath(report);
+        try (TimeSeriesExtractor extractor = new TimeSeriesExtractor(
+                Paths.get(_outFile == null ? "." : _outFile), _objects)) {
+            if (Files.exists(index)) {
+                try (IndexedReportReader reader = new IndexedReportReader(report, index)) {
+                    extractor.extract(reader);
+                }
+            } else {
+                try (InputStream in = CompressedReportStream.open(
+                        new FileInputStream(_inFile))) {
+                    if (BinaryReportReader.isBinaryReport(in)) {
+                        throw new IOException("binary reports have to be"
+                                + " converted first");
+                    }
+                    extractor.extract(in);
+                }
+            }
+            for (String id : _objects) {
+                if (extractor.getRows(id) == 0) {
+                    System.err.println("No reports of " + id);
+                }
+            }
+        } catch (IOException | IniError e) {
+            System.err.println("Error reading " + _inFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Convert the report of the input file to the full text report, written
+     * to the output file. The report can be either binary or a delta report;
+     * binary delta reports have to be converted twice.
+     */
+    private static void startConvertMode() {
+        try (InputStream in = CompressedReportStream.open(new FileInputStream(_inFile));
+                OutputStream out = _outFile == null ? null
+                        : new BufferedOutputStream(new FileOutputStream(_outFile))) {
+            if (BinaryReportReader.isBinaryReport(in)) {
+                BinaryReportReader.toIni(in, out == null ? System.out : out);
+            } else {
+                DeltaReportReader.toFull(in, out == null ? System.out : out);
+            }
+        } catch (IOException | IniError e) {
+            System.err.println("Error converting " + _inFile + ": "
+                    + e.getMessage());
         }
     }
 
@@ -287,6 +955,15 @@ public class Main {
             case BATCH:
                 startBatchMode();
                 break;
+            case CONVERT:
+                startConvertMode();
+                break;
+            case SEEK:
+                startSeekMode();
+                break;
+            case EXTRACT:
+                startExtractMode();
+                break;
         }
     }
 
@@ -0,0 +1,145 @@
+package pr6.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Keeps track of the roads and junctions of a road map which have traffic, so
+ * that the simulator only advances those.
+ *
+ * A road is active while it has vehicles on it and a junction while it has
+ * vehicles waiting in its queues. Objects are added to the active set when a
+ * vehicle enters them and leave it when they become idle. Idle junctions still
+ * switch their lights every tick: from the ticks they have been skipped they
+ * compute their lights at once, both for their reports and before they are
+ * used again, so their state is always the same as if they had been advanced.
+ *
+ * @see RoadMap
+ */
+class ActiveSetScheduler {
+
+    private final List<Road> roads = new ArrayList<>();
+    private final List<Junction> junctions = new ArrayList<>();
+    private final BitSet activeRoads = new BitSet();
+    private final BitSet activeJunctions = new BitSet();
+    /**
+     * Active objects of the current tick, reused from one tick to the next
+     */
+    private final List<Road> roadsToAdvance = new ArrayList<>();
+    private final List<Junction> junctionsToAdvance = new ArrayList<>();
+    /**
+     * Number of times the junctions have been advanced
+     */
+    private int junctionTicks = 0;
+
+    /**
+     * Registers a new road. Roads start idle.
+     *
+     * @param newRoad
+     */
+    void addRoad(Road newRoad) {
+        newRoad.setScheduler(this, roads.size());
+        roads.add(newRoad);
+    }
+
+    /**
+     * Registers a new junction. Junctions start idle and up to date.
+     *
+     * @param newJunction
+     */
+    void addJunction(Junction newJunction) {
+        newJunction.setScheduler(this, junctions.size(), junctionTicks);
+        junctions.add(newJunction);
+    }
+
+    /**
+     * Adds a road to the active set.
+     *
+     * @param index Position of the road in the scheduler
+     */
+    void activateRoad(int index) {
+        activeRoads.set(index);
+    }
+
+    /**
+     * Adds a junction to the active set.
+     *
+     * @param index Position of the junction in the scheduler
+     */
+    void activateJunction(int index) {
+        activeJunctions.set(index);
+    }
+
+    /**
+     * Returns the roads which have to be advanced in this tick, in order of
+     * registration. Roads without vehicles leave the active set.
+     *
+     * @return list of active roads
+     */
+    List<Road> getRoadsToAdvance() {
+        roadsToAdvance.clear();
+        for (int i = activeRoads.nextSetBit(0); i >= 0; i = activeRoads.nextSetBit(i + 1)) {
+            Road r = roads.get(i);
+            if (r.getStats().getOccupancy() == 0) {
+                activeRoads.clear(i);
+            } else {
+                roadsToAdvance.add(r);
+            }
+        }
+        return roadsToAdvance;
+    }
+
+    /**
+     * Returns the junctions which have to be advanced in this tick, in order
+     * of registration.
+     *
+     * @return list of active junctions
+     */
+    List<Junction> getJunctionsToAdvance() {
+        junctionsToAdvance.clear();
+        for (int i = activeJunctions.nextSetBit(0); i >= 0;
+                i = activeJunctions.nextSetBit(i + 1)) {
+            junctionsToAdvance.add(junctions.get(i));
+        }
+        return junctionsToAdvance;
+    }
+
+    /**
+     * Called once the active junctions have been advanced. Junctions without
+     * vehicles waiting leave the active set.
+     */
+    void junctionsAdvanced() {
+        junctionTicks++;
+        for (Junction j : junctionsToAdvance) {
+            if (j.isIdle()) {
+                activeJunctions.clear(j.getSchedulerIndex());
+            }
+        }
+    }
+
+    /**
+     * @return Number of times the junctions have been advanced
+     */
+    int getJunctionTicks() {
+        return junctionTicks;
+    }
+
+    /**
+     * Counts some ticks in which the junctions had no traffic and have not
+     * been advanced. Their lights are computed from the ticks skipped.
+     *
+     * @param numberOfTicks
+     */
+    void skipJunctionTicks(int numberOfTicks) {
+        junctionTicks += numberOfTicks;
+    }
+
+    /**
+     * @return true if there are no vehicles on the roads nor waiting in the
+     * junctions, so advancing the simulation changes nothing but the lights
+     */
+    boolean isQuiescent() {
+        return getRoadsToAdvance().isEmpty() && activeJunctions.isEmpty();
+    }
+}
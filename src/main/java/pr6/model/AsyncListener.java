@@ -0,0 +1,137 @@
+package pr6.model;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import pr6.model.TrafficSimulator.TrafficSimulatorListener;
+import pr6.model.TrafficSimulator.UpdateEvent;
+
+/**
+ * Delivers the notifications of the simulator to a listener on a thread of its
+ * own, so a slow listener does not slow down the simulation.
+ *
+ * Notifications are stored in a bounded queue and the simulator only waits
+ * when the queue is full. Advances and new events are coalesced: while one of
+ * them is waiting to be delivered, the following ones just replace it, and the
+ * listener receives the latest one.
+ *
+ * @see TrafficSimulator#addAsyncSimulatorListener(TrafficSimulatorListener)
+ */
+class AsyncListener implements TrafficSimulatorListener {
+
+    /**
+     * Number of notifications which can be waiting to be delivered
+     */
+    static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private final TrafficSimulatorListener listener;
+    private final BlockingQueue<Runnable> queue;
+    private final AtomicReference<UpdateEvent> pendingAdvanced = new AtomicReference<>();
+    private final AtomicReference<UpdateEvent> pendingNewEvent = new AtomicReference<>();
+    private final Thread worker;
+
+    /**
+     * Class constructor specifying the listener and the number of
+     * notifications which can be waiting to be delivered.
+     *
+     * @param listener
+     * @param capacity
+     */
+    AsyncListener(TrafficSimulatorListener listener, int capacity) {
+        this.listener = listener;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.worker = new Thread(() -> deliver(), "listener-"
+                + listener.getClass().getSimpleName());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Delivers the notifications in order until the thread is interrupted.
+     */
+    private void deliver() {
+        try {
+            while (true) {
+                Runnable notification = queue.take();
+                try {
+                    notification.run();
+                } catch (RuntimeException e) {
+                    // a failing listener must not stop the delivery
+                }
+            }
+        } catch (InterruptedException e) {
+            // the listener has been removed
+        }
+    }
+
+    /**
+     * Adds a notification to the queue, waiting for the listener if it is
+     * full.
+     *
+     * @param notification
+     */
+    private void put(Runnable notification) {
+        try {
+            queue.put(notification);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param l
+     * @return true if the notifications are delivered to the given listener
+     */
+    boolean wraps(TrafficSimulatorListener l) {
+        return listener == l;
+    }
+
+    /**
+     * Waits until every notification queued has been delivered.
+     */
+    void flush() {
+        CountDownLatch delivered = new CountDownLatch(1);
+        put(() -> delivered.countDown());
+        try {
+            delivered.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops delivering notifications. The ones in the queue are discarded.
+     */
+    void close() {
+        worker.interrupt();
+    }
+
+    @Override
+    public void registered(UpdateEvent updateEvent) {
+        put(() -> listener.registered(updateEvent));
+    }
+
+    @Override
+    public void reset(UpdateEvent updateEvent) {
+        put(() -> listener.reset(updateEvent));
+    }
+
+    @Override
+    public void newEvent(UpdateEvent updateEvent) {
+        if (pendingNewEvent.getAndSet(updateEvent) == null) {
+            put(() -> listener.newEvent(pendingNewEvent.getAndSet(null)));
+        }
+    }
+
+    @Override
+    public void advanced(UpdateEvent updateEvent) {
+        if (pendingAdvanced.getAndSet(updateEvent) == null) {
+            put(() -> listener.advanced(pendingAdvanced.getAndSet(null)));
+        }
+    }
+
+    @Override
+    public void error(UpdateEvent updateEvent, Exception e) {
+        put(() -> listener.error(updateEvent, e));
+    }
+}
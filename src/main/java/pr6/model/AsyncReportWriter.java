@@ -0,0 +1,262 @@
+package pr6.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Channel which writes the reports to the output on a thread of its own, so
+ * the simulation goes on while the reports of the previous ticks are being
+ * written.
+ *
+ * The bytes are copied to one of a fixed number of buffers, which are queued
+ * to be written in order. When every buffer is waiting to be written, the
+ * simulator waits for the output. Errors of the output, and any other error
+ * of the thread, are kept and thrown by the next call made by the simulator;
+ * the thread goes on releasing the buffers, so the simulator never waits for
+ * a thread which is gone.
+ *
+ * @see TrafficSimulator#setAsyncReports(int)
+ */
+class AsyncReportWriter implements WritableByteChannel {
+
+    /**
+     * Output stream, null when writing to a channel
+     */
+    private final OutputStream out;
+    /**
+     * Output channel, null when writing to a stream
+     */
+    private final WritableByteChannel channel;
+    private final int bufferSize;
+    private final BlockingQueue<Runnable> queue;
+    /**
+     * Buffers already written, ready to be reused
+     */
+    private final BlockingQueue<ByteBuffer> free;
+    private final int buffers;
+    private int allocated = 0;
+    /**
+     * First error of the thread not thrown yet
+     */
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private final Thread worker;
+    private boolean open = true;
+
+    /**
+     * Class constructor specifying the output stream, the size of the buffers
+     * and how many of them can be waiting to be written.
+     *
+     * @param out
+     * @param bufferSize
+     * @param buffers
+     */
+    AsyncReportWriter(OutputStream out, int bufferSize, int buffers) {
+        this(out, null, bufferSize, buffers);
+    }
+
+    /**
+     * Class constructor specifying the output channel, the size of the
+     * buffers and how many of them can be waiting to be written.
+     *
+     * @param channel
+     * @param bufferSize
+     * @param buffers
+     */
+    AsyncReportWriter(WritableByteChannel channel, int bufferSize, int buffers) {
+        this(null, channel, bufferSize, buffers);
+    }
+
+    private AsyncReportWriter(OutputStream out, WritableByteChannel channel,
+            int bufferSize, int buffers) {
+        this.out = out;
+        this.channel = channel;
+        this.bufferSize = Math.max(16, bufferSize);
+        this.buffers = buffers;
+        this.queue = new ArrayBlockingQueue<>(buffers + 1);
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.worker = new Thread(() -> deliver(), "report-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Writes the queued buffers in order until the thread is interrupted. The
+     * errors of every task are kept to be thrown to the simulator.
+     */
+    private void deliver() {
+        try {
+            while (true) {
+                Runnable task = queue.take();
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            // the writer has been closed
+        }
+    }
+
+    /**
+     * Writes a buffer to the output and gives it back to be reused.
+     *
+     * @param bb
+     */
+    private void writeBuffer(ByteBuffer bb) {
+        try {
+            if (out != null) {
+                out.write(bb.array(), 0, bb.limit());
+                out.flush();
+            } else {
+                while (bb.hasRemaining()) {
+                    channel.write(bb);
+                }
+            }
+        } catch (IOException e) {
+            error.compareAndSet(null, e);
+        } finally {
+            bb.clear();
+            free.offer(bb);
+        }
+    }
+
+    /**
+     * @return a buffer ready to be filled, waiting for the output if every
+     * buffer is in use
+     * @throws IOException if the output failed or the thread was interrupted
+     */
+    private ByteBuffer takeBuffer() throws IOException {
+        ByteBuffer bb = free.poll();
+        if (bb != null) {
+            return bb;
+        }
+        if (allocated < buffers) {
+            allocated++;
+            return ByteBuffer.allocate(bufferSize);
+        }
+        try {
+            return free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing reports", e);
+        }
+    }
+
+    /**
+     * Adds a task to the queue of the thread, waiting if it is full.
+     *
+     * @param task
+     * @throws IOException if the thread was interrupted
+     */
+    private void put(Runnable task) throws IOException {
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing reports", e);
+        }
+    }
+
+    /**
+     * Throws the first error of the thread not thrown yet, if any.
+     *
+     * @throws IOException the error of the output, or any other error of the
+     * thread as its cause
+     */
+    private void checkError() throws IOException {
+        Throwable e = error.getAndSet(null);
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e != null) {
+            throw new IOException("Error while writing reports", e);
+        }
+    }
+
+    /**
+     * Queues the bytes of a buffer to be written.
+     *
+     * @param src
+     * @return the number of bytes queued
+     * @throws ClosedChannelException if the writer has been closed
+     * @throws IOException if the output failed
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        checkError();
+        int written = src.remaining();
+        while (src.hasRemaining()) {
+            ByteBuffer bb = takeBuffer();
+            int length = Math.min(bb.remaining(), src.remaining());
+            ByteBuffer chunk = src.duplicate();
+            chunk.limit(chunk.position() + length);
+            bb.put(chunk);
+            src.position(src.position() + length);
+            bb.flip();
+            put(() -> writeBuffer(bb));
+        }
+        return written;
+    }
+
+    /**
+     * Waits until every buffer queued has been written. Nothing is waited
+     * for once the writer has been closed.
+     *
+     * @throws IOException if the output failed
+     */
+    void flush() throws IOException {
+        if (open) {
+            drain();
+        }
+    }
+
+    /**
+     * Waits until the thread has written every buffer queued.
+     *
+     * @throws IOException if the output failed
+     */
+    private void drain() throws IOException {
+        CountDownLatch written = new CountDownLatch(1);
+        put(() -> written.countDown());
+        try {
+            written.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing reports", e);
+        }
+        checkError();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Writes the buffers queued and stops the thread. The output is not
+     * closed.
+     *
+     * @throws IOException if the output failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            try {
+                drain();
+            } finally {
+                worker.interrupt();
+            }
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package pr6.model;
 
 import java.util.List;
-import pr6.ini.IniSection;
+import pr6.ini.SectionWriter;
 
 /**
  * Defines bike: a type of vehicle.
@@ -13,26 +13,28 @@ public class Bike extends Vehicle {
     private static final String TYPE = "bike";
 
     /**
-     * Class constructor specifying id, maximum speed and itinerary.
+     * Class constructor specifying the table where the bike is stored, id,
+     * maximum speed and itinerary.
      *
+     * @param table
      * @param id
      * @param maxSpeed
      * @param itinerary
      */
-    public Bike(String id, int maxSpeed, List<Junction> itinerary) {
-        super(id, maxSpeed, itinerary);
+    public Bike(VehicleTable table, String id, int maxSpeed, List<Junction> itinerary) {
+        super(table, id, maxSpeed, itinerary);
     }
 
     @Override
     public void makeFaulty(int counter) {
-        if (faulty > 0 || currentSpeed > maxSpeed / 2) {
+        if (getFaultyTime() > 0 || getSpeed() > getMaxSpeed() / 2) {
             super.makeFaulty(counter);
         }
     }
 
     @Override
-    public void fillReportDetails(IniSection sec) {
-        sec.setValue("type", TYPE);
-        super.fillReportDetails(sec);
+    protected void writeReportDetails(SectionWriter out) {
+        out.key("type").append(TYPE);
+        super.writeReportDetails(out);
     }
 }
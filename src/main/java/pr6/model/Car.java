@@ -2,7 +2,7 @@ package pr6.model;
 
 import java.util.List;
 import java.util.Random;
-import pr6.ini.IniSection;
+import pr6.ini.SectionWriter;
 
 /**
  * Defines car: a type of vehicle.
@@ -17,6 +17,10 @@ public class Car extends Vehicle {
      * Kilometres passed since the last breakdown
      */
     private int kmSinceFaulty;
+    /**
+     * Generator of random numbers, null when the car uses a counter based
+     * generator
+     */
     private Random randomGenerator;
     /**
      * Probability of breakdown
@@ -26,10 +30,31 @@ public class Car extends Vehicle {
     private final long seed; // just in case of reset
 
     /**
-     * Class constructor specifying id, maximum speed, itinerary, resistance,
-     * probability of breakdown, maximum fault duration and seed. kmSinceFaulty
-     * is zero-initialized and randomGenerator is made from seed.
+     * Class constructor specifying the table where the car is stored, id,
+     * maximum speed, itinerary, resistance, probability of breakdown, maximum
+     * fault duration and seed.
+     *
+     * @param table
+     * @param id
+     * @param maxSpeed
+     * @param itinerary
+     * @param resistance
+     * @param faultProbability
+     * @param maxFaultDuration
+     * @param seed Seed for random number generator
+     */
+    public Car(VehicleTable table, String id, int maxSpeed, List<Junction> itinerary,
+            int resistance, double faultProbability, int maxFaultDuration, long seed) {
+        this(table, id, maxSpeed, itinerary, resistance, faultProbability,
+                maxFaultDuration, seed, RandomMode.RANDOM);
+    }
+
+    /**
+     * Class constructor specifying the table where the car is stored, id,
+     * maximum speed, itinerary, resistance, probability of breakdown, maximum
+     * fault duration, seed and the kind of random number generator.
      *
+     * @param table
      * @param id
      * @param maxSpeed
      * @param itinerary
@@ -37,34 +62,107 @@ public class Car extends Vehicle {
      * @param faultProbability
      * @param maxFaultDuration
      * @param seed Seed for random number generator
+     * @param randomMode Kind of random number generator
      */
-    public Car(String id, int maxSpeed, List<Junction> itinerary, int resistance,
-            double faultProbability, int maxFaultDuration, long seed) {
+    public Car(VehicleTable table, String id, int maxSpeed, List<Junction> itinerary,
+            int resistance, double faultProbability, int maxFaultDuration, long seed,
+            RandomMode randomMode) {
 
-        super(id, maxSpeed, itinerary);
+        super(table, id, maxSpeed, itinerary);
         this.resistance = resistance;
         kmSinceFaulty = 0;
         this.faultProbability = faultProbability;
         this.maxFaultDuration = maxFaultDuration;
         this.seed = seed;
-        randomGenerator = new Random(seed);
+        randomGenerator = (randomMode == RandomMode.COUNTER) ? null
+                : new Random(seed);
+    }
+
+    @Override
+    protected boolean hasOwnAdvance() {
+        return true;
     }
 
     @Override
     protected void advance() {
-        if (0 == faulty && kilometrage - kmSinceFaulty > resistance
-                && randomGenerator.nextDouble() < faultProbability) {
+        if (0 == getFaultyTime() && getKilometrage() - kmSinceFaulty > resistance
+                && nextDouble() < faultProbability) {
             // shifting [1, maxFaultDuration]
-            super.makeFaulty(randomGenerator.nextInt(maxFaultDuration) + 1);
-            kmSinceFaulty = kilometrage;
+            super.makeFaulty(nextInt(maxFaultDuration) + 1);
+            kmSinceFaulty = getKilometrage();
         }
         super.advance();
 
     }
 
+    /**
+     * @return a random number in [0, 1)
+     */
+    private double nextDouble() {
+        if (randomGenerator != null) {
+            return randomGenerator.nextDouble();
+        }
+        return (draw(0) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * @param bound
+     * @return a random number in [0, bound)
+     */
+    private int nextInt(int bound) {
+        if (randomGenerator != null) {
+            return randomGenerator.nextInt(bound);
+        }
+        return (int) (((draw(1) >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Returns the random bits of the counter based generator for the current
+     * tick. They only depend on the seed, the handle of the car in its table,
+     * the time of the tick and the draw, so they are the same no matter which
+     * thread advances the car, in which order, or in how many ticks it has
+     * advanced before.
+     *
+     * @param draw Number of the draw in the current tick
+     * @return random bits
+     */
+    private long draw(int draw) {
+        long key = mix(seed ^ mix(handle));
+        return mix(key + (2L * table.time + draw) * 0x9e3779b97f4a7c15L);
+    }
+
+    /**
+     * Mixes the bits of a number as the SplitMix64 generator does.
+     *
+     * @param z
+     * @return mixed bits
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
     @Override
-    protected void fillReportDetails(IniSection sec) {
-        sec.setValue("type", TYPE);
-        super.fillReportDetails(sec);
+    protected void writeReportDetails(SectionWriter out) {
+        out.key("type").append(TYPE);
+        super.writeReportDetails(out);
     }
+
+    /**
+     * Kinds of random number generator used to decide the breakdowns.
+     */
+    public enum RandomMode {
+        /**
+         * A {@link Random} made from the seed, whose numbers depend on the
+         * number of draws made before
+         */
+        RANDOM,
+        /**
+         * A generator whose numbers only depend on the seed, the handle of
+         * the car in its table and the time of the tick, which allocates
+         * nothing
+         */
+        COUNTER
+    };
 }
@@ -0,0 +1,160 @@
+package pr6.model;
+
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import pr6.ini.DeltaReportReader;
+import pr6.ini.IniStreamWriter;
+import pr6.ini.ReportWriter;
+
+/**
+ * Writes the reports in delta mode: only the objects whose report changed
+ * since the previous tick are written, except in keyframes, where every
+ * object is written. Every tick starts with a comment telling its time and
+ * whether it is a keyframe.
+ *
+ * To find the objects which changed, the details of the report of every
+ * object are written to a buffer and compared with the last ones written, so
+ * only the changes reach the output. The reports of text are written copying
+ * the details from that buffer, so they are not formatted twice.
+ *
+ * @see DeltaReportReader
+ */
+class DeltaReports {
+
+    private final int keyframeInterval;
+    /**
+     * Details of the last report of every object
+     */
+    private final Map<SimulatedObject, byte[]> lastReports = new IdentityHashMap<>();
+    private final IniStreamWriter scratch = new IniStreamWriter((OutputStream) null, 256);
+    private int ticksSinceKeyframe;
+    /**
+     * Whether there were junctions, roads and vehicles in the last keyframe
+     */
+    private boolean junctions;
+    private boolean roads;
+    private boolean vehicles;
+
+    /**
+     * Class constructor specifying the number of ticks between keyframes.
+     *
+     * @param keyframeInterval
+     */
+    DeltaReports(int keyframeInterval) {
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        reset();
+    }
+
+    /**
+     * Forgets the reports written, so the next tick is a keyframe.
+     */
+    final void reset() {
+        lastReports.clear();
+        ticksSinceKeyframe = keyframeInterval;
+    }
+
+    /**
+     * Writes the reports of the objects which changed.
+     *
+     * @param time
+     * @param roadMap
+     * @param filter Objects reported
+     * @param out Writer receiving the comment of the tick
+     * @param writeReport Writes the report of an object, through
+     * {@link #writeReport(SimulatedObject, int, ReportWriter)}
+     */
+    void writeTick(int time, RoadMap roadMap, ReportFilter filter, ReportWriter out,
+            Consumer<SimulatedObject> writeReport) {
+        List<Junction> js = filter.reportsJunctions() ? roadMap.getJunctions()
+                : Collections.emptyList();
+        List<Road> rs = filter.reportsRoads() ? roadMap.getRoads()
+                : Collections.emptyList();
+        List<Vehicle> vs = filter.reportsVehicles() ? roadMap.getVehicles()
+                : Collections.emptyList();
+        // a keyframe is needed when a kind of object appears, to fix its order
+        boolean keyframe = ticksSinceKeyframe >= keyframeInterval
+                || (!junctions && anyReported(js, filter))
+                || (!roads && anyReported(rs, filter))
+                || (!vehicles && anyReported(vs, filter));
+        if (keyframe) {
+            ticksSinceKeyframe = 0;
+            junctions = anyReported(js, filter);
+            roads = anyReported(rs, filter);
+            vehicles = anyReported(vs, filter);
+        }
+        ticksSinceKeyframe++;
+        out.comment((keyframe ? DeltaReportReader.KEYFRAME : DeltaReportReader.DELTA)
+                + time);
+        writeChanged(js, filter, keyframe, writeReport);
+        writeChanged(rs, filter, keyframe, writeReport);
+        writeChanged(vs, filter, keyframe, writeReport);
+    }
+
+    /**
+     * @param objects
+     * @param filter
+     * @return true if any of the objects is reported
+     */
+    private static boolean anyReported(List<? extends SimulatedObject> objects,
+            ReportFilter filter) {
+        for (SimulatedObject o : objects) {
+            if (filter.reportsId(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the reports of the objects which changed, or of all of them in a
+     * keyframe.
+     *
+     * @param objects
+     * @param filter
+     * @param keyframe
+     * @param writeReport
+     */
+    private void writeChanged(List<? extends SimulatedObject> objects,
+            ReportFilter filter, boolean keyframe,
+            Consumer<SimulatedObject> writeReport) {
+        for (SimulatedObject o : objects) {
+            if (!filter.reportsId(o)) {
+                continue;
+            }
+            scratch.clear();
+            o.writeReportDetails(scratch);
+            scratch.endSection();
+            byte[] last = lastReports.get(o);
+            boolean changed = last == null || !scratch.contentEquals(last);
+            if (changed) {
+                lastReports.put(o, scratch.toByteArray());
+            }
+            if (changed || keyframe) {
+                writeReport.accept(o);
+            }
+        }
+    }
+
+    /**
+     * Writes the report of the object whose changes were checked last, while
+     * it is being written by {@link #writeTick}. The details of text reports
+     * are copied from the buffer they were checked in.
+     *
+     * @param o
+     * @param time
+     * @param out
+     */
+    void writeReport(SimulatedObject o, int time, ReportWriter out) {
+        if (out instanceof IniStreamWriter) {
+            o.writeReportHeader(time, out);
+            ((IniStreamWriter) out).appendContents(scratch);
+            out.endSection();
+        } else {
+            o.writeReport(time, out);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package pr6.model;
 
-import pr6.ini.IniSection;
+import pr6.ini.SectionWriter;
 
 /**
  * Defines a dirt road.
@@ -37,8 +37,8 @@ public class DirtRoad extends Road {
     }
 
     @Override
-    protected void fillReportDetails(IniSection sec) {
-        sec.setValue("type", TYPE);
-        super.fillReportDetails(sec);
+    protected void writeReportDetails(SectionWriter out) {
+        out.key("type").append(TYPE);
+        super.writeReportDetails(out);
     }
 }
@@ -0,0 +1,29 @@
+package pr6.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import pr6.events.Event;
+
+/**
+ * Source of events which are added to the simulator as the simulation reaches
+ * their time, instead of all of them before it starts. The events are given
+ * in the order of their time.
+ *
+ * @see TrafficSimulator#setEventSource(EventSource)
+ */
+public interface EventSource extends Closeable {
+
+    /**
+     * @return Time of the next event, null if there are no more events
+     * @throws IOException
+     */
+    public Integer nextTime() throws IOException;
+
+    /**
+     * Returns the next event and moves to the following one.
+     *
+     * @return the next event
+     * @throws IOException
+     */
+    public Event next() throws IOException;
+}
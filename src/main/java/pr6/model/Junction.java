@@ -6,7 +6,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import pr6.ini.IniSection;
+import pr6.ini.SectionWriter;
 
 /**
  * Defines one of the main types of Simulated Object.
@@ -45,12 +45,13 @@ public class Junction extends SimulatedObject {
         }
 
         /**
-         * Returns the state of the trafficlight.
+         * Returns the state of a trafficlight.
          *
+         * @param green
          * @return green/red
          */
-        protected String lightToString() {
-            return (greenLight) ? "green" : "red";
+        protected String lightToString(boolean green) {
+            return (green) ? "green" : "red";
         }
 
         /**
@@ -61,7 +62,8 @@ public class Junction extends SimulatedObject {
             if (movingVehicle == null) {
                 // empty queue
             } else {
-                movingVehicle.moveToNextRoad();
+                waitingVehicles--;
+                movingVehicle.moveToNextRoad(deferredTransfers);
             }
         }
 
@@ -95,6 +97,45 @@ public class Junction extends SimulatedObject {
             return greenLight;
         }
 
+        /**
+         * Writes the state of the trafficlight.
+         *
+         * @param out Writer receiving the report
+         * @param lights Lights of the junction
+         */
+        protected void writeLight(SectionWriter out, Lights lights) {
+            out.append(lightToString(lights.green == this));
+        }
+
+        /**
+         * Returns the time the light would stay green after some ticks
+         * without vehicles waiting, if it were green then.
+         *
+         * @param idleTicks
+         * @return time left, 0 if the light does not count time
+         */
+        protected int remainingTime(int idleTicks) {
+            return 0;
+        }
+
+        /**
+         * Writes the current state of the queue.
+         *
+         * @param out Writer receiving the report
+         */
+        protected void writeQueue(SectionWriter out) {
+            out.append('[');
+            boolean first = true;
+            for (Vehicle v : waiting) {
+                if (!first) {
+                    out.append(',');
+                }
+                out.append(v.getId());
+                first = false;
+            }
+            out.append(']');
+        }
+
         /**
          * Prints the current state of the queue.
          *
@@ -118,12 +159,47 @@ public class Junction extends SimulatedObject {
 
         @Override
         public String toString() {
-            return "(" + road.getId() + "," + (greenLight ? "green" : "red")
+            return toString(greenLight);
+        }
+
+        /**
+         * @param green State of the trafficlight
+         * @return the incoming road with the given state of its trafficlight
+         */
+        private String toString(boolean green) {
+            return "(" + road.getId() + "," + lightToString(green)
                     + printQueue() + ")";
         }
 
     } // End of the internal class IncomingRoad
 
+    /**
+     * State of the trafficlights of a junction at some time.
+     */
+    protected static final class Lights {
+
+        /**
+         * Incoming road with green light, null if there is none
+         */
+        protected final IncomingRoad green;
+        /**
+         * Time the light stays green, for the junctions counting it
+         */
+        protected final int remaining;
+
+        /**
+         * Class constructor specifying the road with green light and the time
+         * left.
+         *
+         * @param green
+         * @param remaining
+         */
+        protected Lights(IncomingRoad green, int remaining) {
+            this.green = green;
+            this.remaining = remaining;
+        }
+    }
+
     /**
      * Next road to turn it trafficlight green.
      *
@@ -147,6 +223,25 @@ public class Junction extends SimulatedObject {
      * @see Road
      */
     private Map<Junction, Road> outgoingRoadMap = new HashMap<>();
+    /**
+     * Buffer where the vehicles leaving and entering roads are recorded while
+     * the junction is advanced in parallel, null otherwise
+     */
+    private RoadTransfers deferredTransfers = null;
+    /**
+     * Number of vehicles waiting in the queues
+     */
+    private int waitingVehicles = 0;
+    /**
+     * Scheduler keeping track of the junctions with traffic, null if the
+     * junction does not belong to a road map
+     */
+    private ActiveSetScheduler scheduler = null;
+    private int schedulerIndex;
+    /**
+     * Number of ticks the junction has been advanced
+     */
+    private int advancedTicks;
 
     /**
      * Class constructor specifying id. The rest of attributes are
@@ -172,7 +267,11 @@ public class Junction extends SimulatedObject {
      * @param newVehicle
      */
     public void enter(Vehicle newVehicle) {
+        catchUp();
         incomingRoadMap.get(newVehicle.getRoad()).waiting.offer(newVehicle);
+        if (waitingVehicles++ == 0 && scheduler != null) {
+            scheduler.activateJunction(schedulerIndex);
+        }
     }
 
     /**
@@ -181,6 +280,7 @@ public class Junction extends SimulatedObject {
      * @param newRoad
      */
     public void addIncomingRoad(Road newRoad) {
+        catchUp();
         incomingRoadMap.put(newRoad, createIncomingRoadQueue(newRoad));
     }
 
@@ -224,6 +324,151 @@ public class Junction extends SimulatedObject {
         }
     }
 
+    /**
+     * Sets the scheduler keeping track of the junction.
+     *
+     * @param scheduler
+     * @param index Position of the junction in the scheduler
+     * @param ticks Number of ticks the rest of junctions have been advanced
+     */
+    void setScheduler(ActiveSetScheduler scheduler, int index, int ticks) {
+        this.scheduler = scheduler;
+        this.schedulerIndex = index;
+        this.advancedTicks = ticks;
+    }
+
+    /**
+     * @return Position of the junction in its scheduler
+     */
+    int getSchedulerIndex() {
+        return schedulerIndex;
+    }
+
+    /**
+     * @return true if there are no vehicles waiting in the junction
+     */
+    boolean isIdle() {
+        return waitingVehicles == 0;
+    }
+
+    /**
+     * @return Number of ticks the junction has been skipped by the scheduler
+     */
+    private int idleTicks() {
+        return (scheduler == null) ? 0 : scheduler.getJunctionTicks() - advancedTicks;
+    }
+
+    /**
+     * Brings the junction up to date with the ticks it has been skipped by the
+     * scheduler. As the queues were empty during those ticks, only the lights
+     * change, and they are computed at once.
+     */
+    protected void catchUp() {
+        int ticks = idleTicks();
+        if (ticks > 0) {
+            advancedTicks += ticks;
+            skipIdleTicks(ticks);
+        }
+    }
+
+    /**
+     * Returns the state of the lights after some ticks without vehicles
+     * waiting, without changing the junction. The lights go round the
+     * incoming roads one tick each.
+     *
+     * @param ticks
+     * @return state of the lights
+     */
+    protected Lights lightsAfter(int ticks) {
+        int n = incomingRoadMap.size();
+        if (ticks == 0 || n == 0) {
+            return new Lights(lastGreenLightRoad, (lastGreenLightRoad == null) ? 0
+                    : lastGreenLightRoad.remainingTime(0));
+        }
+        IncomingRoad green = incomingRoadAt(
+                Math.floorMod(indexOf(lastGreenLightRoad) + ticks, n));
+        return new Lights(green, green.remainingTime(ticks));
+    }
+
+    /**
+     * Changes the lights as some ticks without vehicles waiting would.
+     *
+     * @param ticks
+     */
+    protected void skipIdleTicks(int ticks) {
+        if (incomingRoadMap.isEmpty()) {
+            return;
+        }
+        IncomingRoad green = lightsAfter(ticks).green;
+        if (lastGreenLightRoad != null) {
+            lastGreenLightRoad.offGreenLight();
+        }
+        green.onGreenLight();
+        currentRoad = green;
+        lastGreenLightRoad = green;
+        nextRoad = iteratorAfter(indexOf(green));
+    }
+
+    /**
+     * @param ir
+     * @return Position of an incoming road in the order of the roads, -1 if
+     * null
+     */
+    protected int indexOf(IncomingRoad ir) {
+        int i = 0;
+        for (IncomingRoad other : incomingRoadMap.values()) {
+            if (other == ir) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * @param index
+     * @return Incoming road at a position of the order of the roads
+     */
+    protected IncomingRoad incomingRoadAt(int index) {
+        Iterator<IncomingRoad> it = incomingRoadMap.values().iterator();
+        for (int i = 0; i < index; i++) {
+            it.next();
+        }
+        return it.next();
+    }
+
+    /**
+     * @param index
+     * @return Iterator over the roads which has returned the road at the given
+     * position
+     */
+    protected Iterator<Road> iteratorAfter(int index) {
+        Iterator<Road> it = incomingRoadMap.keySet().iterator();
+        for (int i = 0; i <= index; i++) {
+            it.next();
+        }
+        return it;
+    }
+
+    /**
+     * Advances the junction for the current tick. When a buffer of transfers is
+     * given, the vehicles leaving and entering roads are recorded in it instead
+     * of changing the roads, so that several junctions can be advanced at the
+     * same time.
+     *
+     * @param transfers Buffer of transfers, null to change the roads directly
+     */
+    void step(RoadTransfers transfers) {
+        catchUp();
+        deferredTransfers = transfers;
+        try {
+            advance();
+        } finally {
+            deferredTransfers = null;
+        }
+        advancedTicks++;
+    }
+
     /**
      * Returns the next road on the incoming road map.
      *
@@ -254,36 +499,39 @@ public class Junction extends SimulatedObject {
      * @return true if road's traffic light has green light, false if not
      */
     public boolean isTrafficLightOn(Road road) {
-        return incomingRoadMap.get(road).isGreenLight();
+        IncomingRoad ir = incomingRoadMap.get(road);
+        return ir != null && lightsAfter(idleTicks()).green == ir;
     }
 
     @Override
-    protected void fillReportDetails(IniSection sec) {
-        StringBuilder sb = new StringBuilder();
-        if (!incomingRoadMap.isEmpty()) {
-            incomingRoadMap.values().forEach((ir) -> {
-                sb.append('(')
-                        .append(ir.road.getId()).append(',')
-                        .append(ir.lightToString()).append(',')
-                        .append(ir.printQueue())
-                        .append("),");
-            });
-            sec.setValue("queues", sb.substring(0, sb.length() - 1));
-        } else {
-            sec.setValue("queues", "");
+    protected void writeReportDetails(SectionWriter out) {
+        out.key("queues");
+        Lights lights = lightsAfter(idleTicks());
+        boolean first = true;
+        for (IncomingRoad ir : incomingRoadMap.values()) {
+            if (!first) {
+                out.append(',');
+            }
+            out.append('(').append(ir.road.getId()).append(',');
+            ir.writeLight(out, lights);
+            out.append(',');
+            ir.writeQueue(out);
+            out.append(')');
+            first = false;
         }
     }
 
     @Override
     public void describe(Map<String, String> out) {
         super.describe(out);
+        Lights lights = lightsAfter(idleTicks());
         ArrayList<String> green = new ArrayList<>();
         ArrayList<String> red = new ArrayList<>();
         incomingRoadMap.values().forEach(ir -> {
-            if (ir.greenLight) {
-                green.add(ir.toString());
+            if (ir == lights.green) {
+                green.add(ir.toString(true));
             } else {
-                red.add(ir.toString());
+                red.add(ir.toString(false));
             }
         });
         out.put("Green", "[" + String.join(",", green) + "]");
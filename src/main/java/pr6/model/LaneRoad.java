@@ -1,6 +1,6 @@
 package pr6.model;
 
-import pr6.ini.IniSection;
+import pr6.ini.SectionWriter;
 
 /**
  * Defines a road with several lanes.
@@ -37,12 +37,12 @@ public class LaneRoad extends Road {
     @Override
     protected int calculateBaseSpeed() {
         return (int) Math.min(maxSpeed,
-                (maxSpeed * numberOfLanes) / (Math.max(1, vehiclesList.sizeOfValues())) + 1);
+                (maxSpeed * numberOfLanes) / (Math.max(1, getStats().getOccupancy())) + 1);
     }
 
     @Override
-    protected void fillReportDetails(IniSection sec) {
-        sec.setValue("type", TYPE);
-        super.fillReportDetails(sec);
+    protected void writeReportDetails(SectionWriter out) {
+        out.key("type").append(TYPE);
+        super.writeReportDetails(out);
     }
 }
@@ -1,6 +1,6 @@
 package pr6.model;
 
-import pr6.ini.IniSection;
+import pr6.ini.SectionWriter;
 
 /**
  * Creates a new most crowded junction.
@@ -8,6 +8,10 @@ import pr6.ini.IniSection;
 public class MostCrowdedJunction extends TimeSliceJunction {
 
     private static final String TYPE = "mc";
+    /**
+     * Position of the road last returned by the iterator of the roads
+     */
+    private int nextRoadIndex = -1;
 
     /**
      * Class constructor specifying id.
@@ -26,7 +30,9 @@ public class MostCrowdedJunction extends TimeSliceJunction {
         if (incomingRoadMap.values().size() >= 1) {
             if (nextRoad == null || !nextRoad.hasNext()) {
                 nextRoad = incomingRoadMap.keySet().iterator();
+                nextRoadIndex = -1;
             }
+            nextRoadIndex++;
             TimeSliceIncomingRoad mostCrowdedRoad
                     = (TimeSliceIncomingRoad) incomingRoadMap.get(nextRoad.next());
             for (IncomingRoad ir : incomingRoadMap.values()) {
@@ -42,6 +48,7 @@ public class MostCrowdedJunction extends TimeSliceJunction {
     protected void switchLights() {
         if (currentRoad == null) {
             nextRoad = incomingRoadMap.keySet().iterator();
+            nextRoadIndex = 0;
             currentRoad = (TimeSliceIncomingRoad) incomingRoadMap.get(nextRoad.next());
             currentRoad.onGreenLight();
             currentRoad.setIntervalTime(Math.max(currentRoad.sizeOfQueue() / 2, 1));
@@ -57,8 +64,70 @@ public class MostCrowdedJunction extends TimeSliceJunction {
     }
 
     @Override
-    protected void fillReportDetails(IniSection sec) {
-        super.fillReportDetails(sec);
-        sec.setValue("type", TYPE);
+    protected Lights lightsAfter(int ticks) {
+        int[] lights = idleLights(ticks);
+        if (lights[0] < 0) {
+            return new Lights(null, 0);
+        }
+        return new Lights(incomingRoadAt(lights[0]), lights[2] - lights[1]);
+    }
+
+    @Override
+    protected void skipIdleTicks(int ticks) {
+        int[] lights = idleLights(ticks);
+        if (lights[0] < 0) {
+            return;
+        }
+        if (lights[3] > 0) {
+            if (currentRoad != null) {
+                currentRoad.offGreenLight();
+            }
+            currentRoad = (TimeSliceIncomingRoad) incomingRoadAt(lights[0]);
+            currentRoad.onGreenLight();
+            currentRoad.setIntervalTime(lights[2]);
+            nextRoad = iteratorAfter(lights[0]);
+            nextRoadIndex = lights[0];
+        }
+        currentRoad.skipEmptyAdvances(lights[1] - currentRoad.timeSpent);
+    }
+
+    /**
+     * Computes the lights after some ticks without vehicles waiting. The
+     * current light stays green for the rest of its interval, and then every
+     * road gets the green light for one tick, in order, as none of them is
+     * more crowded than the others.
+     *
+     * @param ticks
+     * @return Position of the road with green light, -1 if there is none,
+     * time spent by its light, its interval and number of times the lights
+     * have switched
+     */
+    private int[] idleLights(int ticks) {
+        int n = incomingRoadMap.size();
+        if (n == 0 || (ticks == 0 && currentRoad == null)) {
+            return new int[]{-1, 0, 0, 0};
+        }
+        if (currentRoad == null) {
+            // the first light is turned green, and then every road in turn
+            int green = (ticks - 1) % n;
+            return new int[]{green, 0, 1, ticks};
+        }
+        int green = indexOf(currentRoad);
+        int timeSpent = currentRoad.timeSpent;
+        int interval = currentRoad.getIntervalTime();
+        // every tick the time is counted once, and once more if it is not over
+        int length = Math.max(1, (interval - timeSpent + 2) / 2);
+        if (ticks < length) {
+            return new int[]{green, timeSpent + 2 * ticks, interval, 0};
+        }
+        ticks -= length;
+        green = (nextRoadIndex + 1 + ticks) % n;
+        return new int[]{green, 0, 1, ticks + 1};
+    }
+
+    @Override
+    protected void writeReportDetails(SectionWriter out) {
+        super.writeReportDetails(out);
+        out.key("type").append(TYPE);
     }
 }
@@ -0,0 +1,79 @@
+package pr6.model;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task processing a range of simulated objects split in chunks of
+ * fixed size. Chunk i always covers the objects [i * chunkSize, (i + 1) *
+ * chunkSize), so the work done by every chunk is the same no matter how the
+ * chunks are distributed among the threads.
+ */
+class ParallelAdvance extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+    private final int size;
+    private final int chunkSize;
+    private final int firstChunk;
+    private final int lastChunk;
+    private final ChunkAction action;
+
+    /**
+     * Action to be applied to a chunk of objects.
+     */
+    interface ChunkAction {
+
+        /**
+         * Processes the objects of a chunk.
+         *
+         * @param chunk Index of the chunk
+         * @param from First index (inclusive)
+         * @param to Last index (exclusive)
+         */
+        void advance(int chunk, int from, int to);
+    }
+
+    /**
+     * Class constructor specifying the number of objects, the size of the
+     * chunks and the action to be applied to each chunk.
+     *
+     * @param size Number of objects
+     * @param chunkSize Number of objects of each chunk
+     * @param action
+     */
+    ParallelAdvance(int size, int chunkSize, ChunkAction action) {
+        this(size, chunkSize, 0, numberOfChunks(size, chunkSize), action);
+    }
+
+    private ParallelAdvance(int size, int chunkSize, int firstChunk,
+            int lastChunk, ChunkAction action) {
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.firstChunk = firstChunk;
+        this.lastChunk = lastChunk;
+        this.action = action;
+    }
+
+    /**
+     * Returns the number of chunks needed to cover the objects.
+     *
+     * @param size Number of objects
+     * @param chunkSize Number of objects of each chunk
+     * @return number of chunks
+     */
+    static int numberOfChunks(int size, int chunkSize) {
+        return (size + chunkSize - 1) / chunkSize;
+    }
+
+    @Override
+    protected void compute() {
+        if (lastChunk - firstChunk <= 1) {
+            for (int c = firstChunk; c < lastChunk; c++) {
+                action.advance(c, c * chunkSize, Math.min(size, (c + 1) * chunkSize));
+            }
+        } else {
+            int middle = (firstChunk + lastChunk) >>> 1;
+            invokeAll(new ParallelAdvance(size, chunkSize, firstChunk, middle, action),
+                    new ParallelAdvance(size, chunkSize, middle, lastChunk, action));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package pr6.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Selects the ticks and the objects whose reports are written by the
+ * simulator. By default every object is reported every tick. The objects
+ * filtered out are not reported at all, so their reports are never
+ * generated.
+ *
+ * @see TrafficSimulator#setReportFilter(ReportFilter)
+ */
+public class ReportFilter {
+
+    private int interval = 1;
+    private int from = Integer.MIN_VALUE;
+    private int to = Integer.MAX_VALUE;
+    private boolean junctions = true;
+    private boolean roads = true;
+    private boolean vehicles = true;
+    /**
+     * Ids and prefixes of ids reported, null to report every id
+     */
+    private Set<String> ids = null;
+    private List<String> prefixes = null;
+
+    /**
+     * Reports only the ticks whose time is a multiple of the given number.
+     *
+     * @param ticks
+     * @return this filter
+     */
+    public ReportFilter every(int ticks) {
+        if (ticks < 1) {
+            throw new IllegalArgumentException("Invalid report interval: " + ticks);
+        }
+        interval = ticks;
+        return this;
+    }
+
+    /**
+     * Reports only the ticks whose time is within the given range, both
+     * included.
+     *
+     * @param from
+     * @param to
+     * @return this filter
+     */
+    public ReportFilter window(int from, int to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    /**
+     * Sets the kinds of object reported.
+     *
+     * @param junctions
+     * @param roads
+     * @param vehicles
+     * @return this filter
+     */
+    public ReportFilter kinds(boolean junctions, boolean roads, boolean vehicles) {
+        this.junctions = junctions;
+        this.roads = roads;
+        this.vehicles = vehicles;
+        return this;
+    }
+
+    /**
+     * Reports only the objects with the given ids. An id ending with '*' is
+     * a prefix: every id starting with it is reported.
+     *
+     * @param idsOrPrefixes
+     * @return this filter
+     */
+    public ReportFilter ids(Collection<String> idsOrPrefixes) {
+        ids = new HashSet<>();
+        prefixes = new ArrayList<>();
+        for (String id : idsOrPrefixes) {
+            if (id.endsWith("*")) {
+                prefixes.add(id.substring(0, id.length() - 1));
+            } else {
+                ids.add(id);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @param time
+     * @return true if the reports of the given tick are written
+     */
+    public boolean reportsTick(int time) {
+        return time >= from && time <= to && time % interval == 0;
+    }
+
+    /**
+     * @param first
+     * @param last
+     * @return the first tick reported within the given range, both included,
+     * null if none is reported
+     */
+    public Integer firstTick(int first, int last) {
+        long time = Math.max(first, from);
+        time += Math.floorMod(-time, interval);
+        return (time <= Math.min(last, to)) ? (Integer) (int) time : null;
+    }
+
+    /**
+     * @param first
+     * @param last
+     * @return the last tick reported within the given range, both included,
+     * null if none is reported
+     */
+    public Integer lastTick(int first, int last) {
+        long time = Math.min(last, to);
+        time -= Math.floorMod(time, interval);
+        return (time >= Math.max(first, from)) ? (Integer) (int) time : null;
+    }
+
+    /**
+     * @return true if junctions are reported
+     */
+    public boolean reportsJunctions() {
+        return junctions;
+    }
+
+    /**
+     * @return true if roads are reported
+     */
+    public boolean reportsRoads() {
+        return roads;
+    }
+
+    /**
+     * @return true if vehicles are reported
+     */
+    public boolean reportsVehicles() {
+        return vehicles;
+    }
+
+    /**
+     * @param o An object of a kind reported
+     * @return true if the id of the object is reported
+     */
+    public boolean reportsId(SimulatedObject o) {
+        if (ids == null || ids.contains(o.getId())) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (o.getId().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,9 +1,9 @@
 package pr6.model;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import pr6.ini.IniSection;
-import pr6.util.MultiTreeMap;
+import pr6.ini.SectionWriter;
 
 /**
  * Defines one of the main types of Simulated Object.
@@ -15,15 +15,49 @@ public class Road extends SimulatedObject {
     private static final String SECTION_TAG_NAME = "road_report";
     private final Junction sourceJunction;
     private final Junction destinationJunction;
-    private static final int INITIAL_POS = 0;
     /**
-     * List of vehicles ordered by insertion
+     * List of vehicles ordered by location, kept as handles in their table
      *
      * @see Vehicle
      */
-    protected MultiTreeMap<Integer, Vehicle> vehiclesList = new MultiTreeMap<>((a, b) -> b - a);
+    protected final RoadVehicleList vehiclesList = new RoadVehicleList();
     protected final int length;
     protected final int maxSpeed;
+    /**
+     * Vehicles that reached the end of the road while arrivals were deferred,
+     * in order of arrival
+     */
+    private final List<Vehicle> pendingArrivals = new ArrayList<>();
+    private boolean deferringArrivals = false;
+    /**
+     * Scheduler keeping track of the roads with traffic, null if the road does
+     * not belong to a road map
+     */
+    private ActiveSetScheduler scheduler = null;
+    private int schedulerIndex;
+    /**
+     * Number of faulty vehicles on the road
+     */
+    private int faultyVehicles = 0;
+    /**
+     * Read-only view of the traffic on the road
+     */
+    private final RoadStats stats = new RoadStats() {
+        @Override
+        public int getOccupancy() {
+            return vehiclesList.size();
+        }
+
+        @Override
+        public int getFaultyVehicles() {
+            return faultyVehicles;
+        }
+
+        @Override
+        public int getVehiclesAt(int location) {
+            return vehiclesList.countAt(location);
+        }
+    };
 
     /**
      * Class constructor specifying id, length, maximum speed, source junction
@@ -64,7 +98,13 @@ public class Road extends SimulatedObject {
      * @param newVehicle
      */
     public void enter(Vehicle newVehicle) {
-        vehiclesList.putValue(INITIAL_POS, newVehicle);
+        if (scheduler != null && vehiclesList.isEmpty()) {
+            scheduler.activateRoad(schedulerIndex);
+        }
+        vehiclesList.add(newVehicle);
+        if (newVehicle.getFaultyTime() > 0) {
+            faultyVehicles++;
+        }
     }
 
     /**
@@ -73,14 +113,89 @@ public class Road extends SimulatedObject {
      * @param exitVehicle Outgoing vehicle
      */
     public void exit(Vehicle exitVehicle) {
-        vehiclesList.removeValue(exitVehicle.getLocation(), exitVehicle);
+        exit(exitVehicle, exitVehicle.getLocation());
+    }
+
+    /**
+     * Takes a vehicle off the road given the location it was at.
+     *
+     * @param exitVehicle Outgoing vehicle
+     * @param location Location of the vehicle on the road
+     */
+    void exit(Vehicle exitVehicle, int location) {
+        Vehicle removed = vehiclesList.remove(exitVehicle, location);
+        if (removed != null && removed.getFaultyTime() > 0) {
+            faultyVehicles--;
+        }
+    }
+
+    /**
+     * Updates the number of faulty vehicles when a vehicle on the road breaks
+     * down or is repaired.
+     *
+     * @param faulty true if the vehicle has broken down, false if repaired
+     */
+    void faultChanged(boolean faulty) {
+        faultyVehicles += faulty ? 1 : -1;
+    }
+
+    /**
+     * Sets the scheduler keeping track of the road.
+     *
+     * @param scheduler
+     * @param index Position of the road in the scheduler
+     */
+    void setScheduler(ActiveSetScheduler scheduler, int index) {
+        this.scheduler = scheduler;
+        this.schedulerIndex = index;
+    }
+
+    /**
+     * Hands a vehicle which has reached the end of the road to the destination
+     * junction. While arrivals are deferred the vehicle is kept until
+     * {@link #commitArrivals()} is called.
+     *
+     * @param arrivedVehicle
+     */
+    void arrive(Vehicle arrivedVehicle) {
+        if (deferringArrivals) {
+            pendingArrivals.add(arrivedVehicle);
+        } else {
+            destinationJunction.enter(arrivedVehicle);
+        }
+    }
+
+    /**
+     * Advances the road without touching the destination junction, so that
+     * several roads can be advanced at the same time.
+     *
+     * @see #commitArrivals()
+     */
+    void advanceDeferringArrivals() {
+        deferringArrivals = true;
+        try {
+            advance();
+        } finally {
+            deferringArrivals = false;
+        }
+    }
+
+    /**
+     * Puts the vehicles that arrived during the last deferred advance in the
+     * destination junction, in the same order they reached the end of the road.
+     */
+    void commitArrivals() {
+        for (int i = 0; i < pendingArrivals.size(); i++) {
+            destinationJunction.enter(pendingArrivals.get(i));
+        }
+        pendingArrivals.clear();
     }
 
     /**
      * @return Base speed of the road
      */
     protected int calculateBaseSpeed() {
-        return (int) Math.min(maxSpeed, maxSpeed / (Math.max(1, vehiclesList.sizeOfValues())) + 1);
+        return (int) Math.min(maxSpeed, maxSpeed / (Math.max(1, stats.getOccupancy())) + 1);
     }
 
     /**
@@ -95,18 +210,23 @@ public class Road extends SimulatedObject {
 
     @Override
     public void advance() {
-        MultiTreeMap<Integer, Vehicle> updated = new MultiTreeMap<>((a, b) -> b - a);
+        if (vehiclesList.isEmpty()) {
+            return;
+        }
+        // the number of vehicles does not change while they advance
+        int baseSpeed = calculateBaseSpeed();
+        // faulty vehicles only slow down the ones behind them
         int brokenVehicles = 0;
-        for (Vehicle v : vehiclesList.innerValues()) {
-            if (v.getFaultyTime() > 0) {
+        VehicleTable table = vehiclesList.getTable();
+        for (int i = 0; i < vehiclesList.size(); i++) {
+            int v = vehiclesList.handle(i);
+            if (table.faulty[v] > 0) {
                 brokenVehicles++;
             }
-            v.setSpeed(calculateBaseSpeed() / reduceSpeedFactor(brokenVehicles));
-            v.advance();
-            updated.putValue(v.getLocation(), v);
+            table.setSpeed(v, baseSpeed / reduceSpeedFactor(brokenVehicles));
+            table.advance(v);
         }
-        vehiclesList.clear();
-        vehiclesList = updated;
+        vehiclesList.sortByLocation();
     }
 
     /**
@@ -122,16 +242,16 @@ public class Road extends SimulatedObject {
     }
 
     @Override
-    protected void fillReportDetails(IniSection sec) {
-        StringBuilder sb = new StringBuilder();
-        if (!vehiclesList.isEmpty()) {
-            vehiclesList.innerValues().forEach((Vehicle v)
-                    -> sb.append("(")
-                            .append(v.getId()).append(",").append(v.getLocation())
-                            .append("),"));
-            sec.setValue("state", sb.substring(0, sb.length() - 1));
-        } else {
-            sec.setValue("state", "");
+    protected void writeReportDetails(SectionWriter out) {
+        out.key("state");
+        VehicleTable table = vehiclesList.getTable();
+        for (int i = 0; i < vehiclesList.size(); i++) {
+            int v = vehiclesList.handle(i);
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('(').append(table.vehicle[v].getId()).append(',')
+                    .append(table.location[v]).append(')');
         }
     }
 
@@ -144,7 +264,7 @@ public class Road extends SimulatedObject {
         out.put("Max Speed", "" + maxSpeed);
         StringBuilder sb = new StringBuilder();
         if (!vehiclesList.isEmpty()) {
-            vehiclesList.innerValues().forEach((Vehicle v)
+            vehiclesList.asList().forEach((Vehicle v)
                     -> sb.append(v.getId()).append(","));
             out.put("Vehicles", "[" + sb.substring(0, sb.length() - 1) + "]");
         } else {
@@ -152,11 +272,19 @@ public class Road extends SimulatedObject {
         }
     }
 
+    /**
+     * @return Read-only view of the traffic on the road
+     * @see RoadStats
+     */
+    public RoadStats getStats() {
+        return stats;
+    }
+
     /**
      *
      * @return the list of vehicle on the road
      */
     public List<Vehicle> getVehicleList() {
-        return vehiclesList.valuesList();
+        return vehiclesList.asList();
     }
 }
@@ -1,35 +1,66 @@
 package pr6.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import pr6.exception.SimulatorError;
+import pr6.util.SymbolTable;
 
 /**
  * Contains every simulated object of the program.
+ *
+ * Objects are looked up by the handle of their id in the ids of the road map,
+ * either given directly or found from the id.
  */
 public class RoadMap {
 
     /**
-     * Map of simulated vehicles. id - vehicle
+     * List of simulated vehicles, in the order in which they were added
      *
      * @see Vehicle
      */
-    private Map<String, Vehicle> simulatedVehicles = new LinkedHashMap<>();
+    private List<Vehicle> simulatedVehicles = new ArrayList<>();
     /**
-     * Map of simulated roads. id- road
+     * List of simulated roads, in the order in which they were added
      *
      * @see Road
      */
-    private Map<String, Road> simulatedRoads = new LinkedHashMap<>();
+    private List<Road> simulatedRoads = new ArrayList<>();
     /**
-     * Map of simulated junctions. id - junction
+     * List of simulated junctions, in the order in which they were added
      *
      * @see Junction
      */
-    private Map<String, Junction> simulatedJunctions = new LinkedHashMap<>();
+    private List<Junction> simulatedJunctions = new ArrayList<>();
+    /**
+     * Ids of the simulated objects, also interned when the events are parsed
+     *
+     * @see #getIds()
+     */
+    private SymbolTable ids = new SymbolTable();
+    /**
+     * Simulated objects by the handle of their id
+     *
+     * @see SimulatedObject#getHandle()
+     */
+    private SimulatedObject[] objects = new SimulatedObject[0];
+    /**
+     * Table storing the state of the vehicles of the road map
+     *
+     * @see VehicleTable
+     */
+    private VehicleTable vehicleTable = new VehicleTable();
+    /**
+     * Scheduler keeping track of the roads and junctions with traffic
+     *
+     * @see ActiveSetScheduler
+     */
+    private ActiveSetScheduler scheduler = new ActiveSetScheduler();
+    /**
+     * Kind of random number generator of the cars which do not choose one
+     */
+    private Car.RandomMode randomMode = Car.RandomMode.RANDOM;
 
     /**
      * Class constructor.
@@ -43,9 +74,7 @@ public class RoadMap {
      * @param simObject
      */
     public void complainIfIdExists(SimulatedObject simObject) {
-        if (simulatedVehicles.get(simObject.getId()) != null
-                || simulatedRoads.get(simObject.getId()) != null
-                || simulatedJunctions.get(simObject.getId()) != null) {
+        if (find(ids.lookup(simObject.getId()), SimulatedObject.class) != null) {
             throw new IllegalArgumentException("The id " + simObject.getId()
                     + " has already been used to name other object in "
                     + "the simulation, you cannot create a "
@@ -59,7 +88,7 @@ public class RoadMap {
      * @see Vehicle
      */
     public Vehicle getVehicle(String vehicleId) {
-        Vehicle rslt = simulatedVehicles.get(vehicleId);
+        Vehicle rslt = find(ids.lookup(vehicleId), Vehicle.class);
         if (rslt == null) {
             throw new NullPointerException("Vehicle with " + vehicleId
                     + " id not found in roadmap");
@@ -67,13 +96,28 @@ public class RoadMap {
         return rslt;
     }
 
+    /**
+     * @param handle Handle of the id of the vehicle
+     * @return Vehicle associated to the handle
+     * @see Vehicle
+     * @see SimulatedObject#getHandle()
+     */
+    public Vehicle getVehicle(int handle) {
+        Vehicle rslt = find(handle, Vehicle.class);
+        if (rslt == null) {
+            throw new NullPointerException("Vehicle with handle " + handle
+                    + " not found in roadmap");
+        }
+        return rslt;
+    }
+
     /**
      * @param roadId
      * @return Road associated to roadId, null if not found
      * @see Road
      */
     public Road getRoad(String roadId) {
-        Road rslt = simulatedRoads.get(roadId);
+        Road rslt = find(ids.lookup(roadId), Road.class);
         if (rslt == null) {
             throw new NullPointerException("Road with " + roadId
                     + " id not found in roadmap");
@@ -81,13 +125,28 @@ public class RoadMap {
         return rslt;
     }
 
+    /**
+     * @param handle Handle of the id of the road
+     * @return Road associated to the handle
+     * @see Road
+     * @see SimulatedObject#getHandle()
+     */
+    public Road getRoad(int handle) {
+        Road rslt = find(handle, Road.class);
+        if (rslt == null) {
+            throw new NullPointerException("Road with handle " + handle
+                    + " not found in roadmap");
+        }
+        return rslt;
+    }
+
     /**
      * @param junctionId
      * @return Junction associated to junctionId, null if not found
      * @see Junction
      */
     public Junction getJunction(String junctionId) {
-        Junction rslt = simulatedJunctions.get(junctionId);
+        Junction rslt = find(ids.lookup(junctionId), Junction.class);
         if (rslt == null) {
             throw new NullPointerException("Junction with " + junctionId
                     + " id not found in roadmap");
@@ -95,6 +154,47 @@ public class RoadMap {
         return rslt;
     }
 
+    /**
+     * @param handle Handle of the id of the junction
+     * @return Junction associated to the handle
+     * @see Junction
+     * @see SimulatedObject#getHandle()
+     */
+    public Junction getJunction(int handle) {
+        Junction rslt = find(handle, Junction.class);
+        if (rslt == null) {
+            throw new NullPointerException("Junction with handle " + handle
+                    + " not found in roadmap");
+        }
+        return rslt;
+    }
+
+    /**
+     * @param handle Handle of the id of an object
+     * @param kind Class of the object
+     * @return Object of the handle, null if there is none of the given class
+     */
+    private <T extends SimulatedObject> T find(int handle, Class<T> kind) {
+        SimulatedObject o = (handle >= 0 && handle < objects.length)
+                ? objects[handle] : null;
+        return kind.isInstance(o) ? kind.cast(o) : null;
+    }
+
+    /**
+     * Keeps an object by the handle of its id, which is given to the object.
+     *
+     * @param simObject
+     */
+    private void put(SimulatedObject simObject) {
+        int handle = ids.intern(simObject.getId());
+        simObject.setHandle(handle);
+        if (handle >= objects.length) {
+            objects = Arrays.copyOf(objects,
+                    Math.max(handle + 1, Math.max(16, 2 * objects.length)));
+        }
+        objects[handle] = simObject;
+    }
+
     /**
      * Adds a new junction to list.
      *
@@ -106,7 +206,9 @@ public class RoadMap {
         } catch (IllegalArgumentException e) {
             throw e;
         }
-        simulatedJunctions.put(newJunction.getId(), newJunction);
+        simulatedJunctions.add(newJunction);
+        put(newJunction);
+        scheduler.addJunction(newJunction);
     }
 
     /**
@@ -120,7 +222,9 @@ public class RoadMap {
         } catch (IllegalArgumentException e) {
             throw e;
         }
-        simulatedRoads.put(newRoad.getId(), newRoad);
+        simulatedRoads.add(newRoad);
+        put(newRoad);
+        scheduler.addRoad(newRoad);
         newRoad.getDestination().addIncomingRoad(newRoad);
         newRoad.getSource().addOutGoingRoad(newRoad, newRoad.getDestination());
     }
@@ -136,7 +240,49 @@ public class RoadMap {
         } catch (IllegalArgumentException e) {
             throw e;
         }
-        simulatedVehicles.put(newVehicle.getId(), newVehicle);
+        simulatedVehicles.add(newVehicle);
+        put(newVehicle);
+    }
+
+    /**
+     * @return Ids of the simulated objects, where the ids of the events
+     * should be interned when they are parsed
+     */
+    public SymbolTable getIds() {
+        return ids;
+    }
+
+    /**
+     * @return Table where the vehicles of the road map should be stored
+     * @see VehicleTable
+     */
+    public VehicleTable getVehicleTable() {
+        return vehicleTable;
+    }
+
+    /**
+     * @return Kind of random number generator of the cars which do not
+     * choose one
+     */
+    public Car.RandomMode getRandomMode() {
+        return randomMode;
+    }
+
+    /**
+     * Sets the kind of random number generator of the cars which do not
+     * choose one.
+     *
+     * @param mode
+     */
+    public void setRandomMode(Car.RandomMode mode) {
+        randomMode = mode;
+    }
+
+    /**
+     * @return Scheduler keeping track of the roads and junctions with traffic
+     */
+    ActiveSetScheduler getScheduler() {
+        return scheduler;
     }
 
     /**
@@ -144,7 +290,7 @@ public class RoadMap {
      * @see Road
      */
     public List<Road> getRoads() {
-        return Collections.unmodifiableList(new ArrayList<>(simulatedRoads.values()));
+        return Collections.unmodifiableList(new ArrayList<>(simulatedRoads));
     }
 
     /**
@@ -152,7 +298,7 @@ public class RoadMap {
      * @see Vehicle
      */
     public List<Vehicle> getVehicles() {
-        return Collections.unmodifiableList(new ArrayList<>(simulatedVehicles.values()));
+        return Collections.unmodifiableList(new ArrayList<>(simulatedVehicles));
     }
 
     /**
@@ -160,16 +306,20 @@ public class RoadMap {
      * @see Junction
      */
     public List<Junction> getJunctions() {
-        return Collections.unmodifiableList(new ArrayList<>(simulatedJunctions.values()));
+        return Collections.unmodifiableList(new ArrayList<>(simulatedJunctions));
     }
 
     /**
      * Resets the lists.
      */
     public void clear() {
-        simulatedVehicles = new LinkedHashMap<>();
-        simulatedRoads = new LinkedHashMap<>();
-        simulatedJunctions = new LinkedHashMap<>();
+        simulatedVehicles = new ArrayList<>();
+        simulatedRoads = new ArrayList<>();
+        simulatedJunctions = new ArrayList<>();
+        ids = new SymbolTable();
+        objects = new SimulatedObject[0];
+        vehicleTable = new VehicleTable();
+        scheduler = new ActiveSetScheduler();
     }
 
     /**
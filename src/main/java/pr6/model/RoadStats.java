@@ -0,0 +1,29 @@
+package pr6.model;
+
+/**
+ * Read-only view of the traffic on a road. The values are kept up to date as
+ * vehicles enter, leave, move and break down, so reading them does not go
+ * through the vehicles.
+ *
+ * @see Road
+ */
+public interface RoadStats {
+
+    /**
+     * @return Number of vehicles on the road
+     */
+    public int getOccupancy();
+
+    /**
+     * @return Number of faulty vehicles on the road
+     */
+    public int getFaultyVehicles();
+
+    /**
+     * Returns the number of vehicles at a location of the road.
+     *
+     * @param location
+     * @return number of vehicles
+     */
+    public int getVehiclesAt(int location);
+}
@@ -0,0 +1,71 @@
+package pr6.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffer of vehicles leaving and entering roads. Junctions advanced in
+ * parallel record here the changes they would make to the roads, and the
+ * changes are applied later on a single thread in the same order they were
+ * recorded.
+ */
+class RoadTransfers {
+
+    /**
+     * Marks an entry in the list of locations
+     */
+    private static final int ENTRY = -1;
+    private final List<Road> roads = new ArrayList<>();
+    private final List<Vehicle> vehicles = new ArrayList<>();
+    /**
+     * Location the vehicle leaves the road from, ENTRY for vehicles entering
+     */
+    private int[] locations = new int[16];
+
+    /**
+     * Records a vehicle leaving a road.
+     *
+     * @param road
+     * @param vehicle
+     * @param location Location of the vehicle when leaving the road
+     */
+    void exit(Road road, Vehicle vehicle, int location) {
+        add(road, vehicle, location);
+    }
+
+    /**
+     * Records a vehicle entering a road.
+     *
+     * @param road
+     * @param vehicle
+     */
+    void enter(Road road, Vehicle vehicle) {
+        add(road, vehicle, ENTRY);
+    }
+
+    private void add(Road road, Vehicle vehicle, int location) {
+        if (roads.size() == locations.length) {
+            int[] aux = new int[2 * locations.length];
+            System.arraycopy(locations, 0, aux, 0, locations.length);
+            locations = aux;
+        }
+        locations[roads.size()] = location;
+        roads.add(road);
+        vehicles.add(vehicle);
+    }
+
+    /**
+     * Applies the recorded changes in order and empties the buffer.
+     */
+    void apply() {
+        for (int i = 0; i < roads.size(); i++) {
+            if (locations[i] == ENTRY) {
+                roads.get(i).enter(vehicles.get(i));
+            } else {
+                roads.get(i).exit(vehicles.get(i), locations[i]);
+            }
+        }
+        roads.clear();
+        vehicles.clear();
+    }
+}
@@ -0,0 +1,197 @@
+package pr6.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * List of the vehicles on a road, ordered by location from the end of the road
+ * to its beginning. Vehicles at the same location keep the order in which they
+ * got there.
+ *
+ * The list keeps the handles of the vehicles in the {@link VehicleTable} they
+ * are stored in, which has to be the same for every vehicle of the list. It is
+ * updated in place: vehicles are moved by the road and then put back in order
+ * with {@link #sortByLocation()}, which is linear when the order barely
+ * changes, and the arrays are only reallocated when they are full.
+ *
+ * @see Road
+ */
+public class RoadVehicleList {
+
+    private static final int DEFAULT_CAPACITY = 8;
+    /**
+     * Table of the vehicles, null until the first one is added
+     */
+    private VehicleTable table = null;
+    private int[] handles = new int[DEFAULT_CAPACITY];
+    /**
+     * Location of every vehicle when the list was last ordered
+     */
+    private int[] locations = new int[DEFAULT_CAPACITY];
+    private int size = 0;
+    /**
+     * Read-only view of the list
+     */
+    private final List<Vehicle> view = new AbstractList<Vehicle>() {
+        @Override
+        public Vehicle get(int index) {
+            return RoadVehicleList.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    /**
+     * Adds a vehicle at the beginning of the road, after every other vehicle.
+     *
+     * @param newVehicle
+     * @throws IllegalArgumentException if the vehicle is stored in a table
+     * other than the one of the vehicles of the list
+     */
+    public void add(Vehicle newVehicle) {
+        if (table == null) {
+            table = newVehicle.table;
+        } else if (table != newVehicle.table) {
+            throw new IllegalArgumentException("The vehicle " + newVehicle.getId()
+                    + " is not stored in the table of the road map");
+        }
+        if (size == handles.length) {
+            handles = Arrays.copyOf(handles, 2 * size);
+            locations = Arrays.copyOf(locations, 2 * size);
+        }
+        handles[size] = newVehicle.handle;
+        locations[size] = 0;
+        size++;
+    }
+
+    /**
+     * Removes the given vehicle if it is found at the given location.
+     *
+     * @param exitVehicle
+     * @param location
+     * @return the vehicle removed, null if not found
+     */
+    public Vehicle remove(Vehicle exitVehicle, int location) {
+        if (table != exitVehicle.table) {
+            return null;
+        }
+        for (int i = 0; i < size && locations[i] >= location; i++) {
+            if (locations[i] == location && handles[i] == exitVehicle.handle) {
+                size--;
+                System.arraycopy(handles, i + 1, handles, i, size - i);
+                System.arraycopy(locations, i + 1, locations, i, size - i);
+                return exitVehicle;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of vehicles at a location. Locations are kept in
+     * order, so the vehicles are found by binary search.
+     *
+     * @param location
+     * @return number of vehicles
+     */
+    public int countAt(int location) {
+        return firstBelow(location - 1) - firstBelow(location);
+    }
+
+    /**
+     * @param location
+     * @return position of the first vehicle whose location is lower or equal
+     * to the given one
+     */
+    private int firstBelow(int location) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (locations[middle] > location) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Puts the vehicles back in order after they have moved. Vehicles at the
+     * same location keep their relative order.
+     */
+    public void sortByLocation() {
+        if (table == null) {
+            return;
+        }
+        int[] tableLocations = table.location;
+        for (int i = 0; i < size; i++) {
+            int handle = handles[i];
+            int location = tableLocations[handle];
+            int j = i;
+            while (j > 0 && locations[j - 1] < location) {
+                handles[j] = handles[j - 1];
+                locations[j] = locations[j - 1];
+                j--;
+            }
+            handles[j] = handle;
+            locations[j] = location;
+        }
+    }
+
+    /**
+     * @param index
+     * @return Vehicle at the given position
+     */
+    public Vehicle get(int index) {
+        return table.vehicle[handle(index)];
+    }
+
+    /**
+     * @param index
+     * @return Handle in the table of the vehicle at the given position
+     */
+    int handle(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index
+                    + " is out of bounds");
+        }
+        return handles[index];
+    }
+
+    /**
+     * @return Table of the vehicles of the list, null if no vehicle has been
+     * added yet
+     */
+    VehicleTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return Number of vehicles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if there are no vehicles
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the vehicles as a read-only list. Changes to this structure will
+     * be immediately reflected in the list.
+     *
+     * @return list of vehicles
+     */
+    public List<Vehicle> asList() {
+        return view;
+    }
+}
@@ -1,6 +1,6 @@
 package pr6.model;
 
-import pr6.ini.IniSection;
+import pr6.ini.SectionWriter;
 import pr6.model.Junction.IncomingRoad;
 
 /**
@@ -36,6 +36,7 @@ public class RoundRobinJunction extends TimeSliceJunction {
 
     @Override
     public void addIncomingRoad(Road newRoad) {
+        catchUp();
         incomingRoadMap.put(newRoad, createIncomingRoadQueue(newRoad));
     }
 
@@ -62,8 +63,111 @@ public class RoundRobinJunction extends TimeSliceJunction {
     }
 
     @Override
-    protected void fillReportDetails(IniSection sec) {
-        super.fillReportDetails(sec);
-        sec.setValue("type", TYPE);
+    protected Lights lightsAfter(int ticks) {
+        int[] intervals = intervals();
+        int[] lights = idleLights(ticks, intervals);
+        if (lights[0] < 0) {
+            return new Lights(null, 0);
+        }
+        return new Lights(incomingRoadAt(lights[0]), intervals[lights[0]] - lights[1]);
+    }
+
+    @Override
+    protected void skipIdleTicks(int ticks) {
+        int[] intervals = intervals();
+        int[] lights = idleLights(ticks, intervals);
+        if (lights[0] < 0) {
+            return;
+        }
+        int i = 0;
+        for (IncomingRoad ir : incomingRoadMap.values()) {
+            ((TimeSliceIncomingRoad) ir).setIntervalTime(intervals[i++]);
+        }
+        if (lights[2] > 0) {
+            if (currentRoad != null) {
+                currentRoad.offGreenLight();
+                currentRoad.reset();
+            }
+            currentRoad = (TimeSliceIncomingRoad) incomingRoadAt(lights[0]);
+            currentRoad.onGreenLight();
+            currentRoad.skipEmptyAdvances(lights[1]);
+            nextRoad = iteratorAfter(lights[0]);
+        } else {
+            currentRoad.skipEmptyAdvances(lights[1] - currentRoad.timeSpent);
+        }
+    }
+
+    /**
+     * @return Interval of every incoming road, in order
+     */
+    private int[] intervals() {
+        int[] intervals = new int[incomingRoadMap.size()];
+        int i = 0;
+        for (IncomingRoad ir : incomingRoadMap.values()) {
+            intervals[i++] = ((TimeSliceIncomingRoad) ir).getIntervalTime();
+        }
+        return intervals;
+    }
+
+    /**
+     * Computes the lights after some ticks without vehicles waiting. Every
+     * light stays green for its interval and, as it is not used, its interval
+     * is reduced down to the minimum time slice; once every interval is the
+     * minimum the lights repeat the same cycle, which is skipped at once.
+     *
+     * @param ticks
+     * @param intervals Interval of every road, which is updated
+     * @return Position of the road with green light, -1 if there is none,
+     * time spent by its light and number of times the lights have switched
+     */
+    private int[] idleLights(int ticks, int[] intervals) {
+        int n = intervals.length;
+        int green = indexOf(currentRoad);
+        if (n == 0 || (ticks == 0 && green < 0)) {
+            return new int[]{-1, 0, 0};
+        }
+        int timeSpent = 0;
+        boolean used = false;
+        int switches = 0;
+        if (green < 0) {
+            // the first light is turned green
+            green = 0;
+            ticks--;
+            switches++;
+        } else {
+            timeSpent = currentRoad.timeSpent;
+            used = currentRoad.used();
+        }
+        int unstable = 0;
+        for (int interval : intervals) {
+            if (interval != minTimeSlice) {
+                unstable++;
+            }
+        }
+        int length = Math.max(intervals[green] - timeSpent, 1);
+        while (ticks >= length) {
+            ticks -= length;
+            if (!used && intervals[green] != minTimeSlice) {
+                intervals[green] = Math.max(intervals[green] - 1, minTimeSlice);
+                if (intervals[green] == minTimeSlice) {
+                    unstable--;
+                }
+            }
+            used = false;
+            green = (green + 1) % n;
+            timeSpent = 0;
+            switches++;
+            if (unstable == 0) {
+                ticks %= n * Math.max(minTimeSlice, 1);
+            }
+            length = Math.max(intervals[green], 1);
+        }
+        return new int[]{green, timeSpent + ticks, switches};
+    }
+
+    @Override
+    protected void writeReportDetails(SectionWriter out) {
+        super.writeReportDetails(out);
+        out.key("type").append(TYPE);
     }
 }
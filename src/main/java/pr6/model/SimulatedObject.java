@@ -1,6 +1,8 @@
 package pr6.model;
 
 import pr6.ini.IniSection;
+import pr6.ini.IniSectionWriter;
+import pr6.ini.SectionWriter;
 import java.util.Map;
 import java.util.Objects;
 import pr6.view.Describable;
@@ -11,6 +13,11 @@ import pr6.view.Describable;
 public abstract class SimulatedObject implements Describable {
 
     protected final String id;
+    /**
+     * Handle of the id in the ids of the road map of the object, -1 until it
+     * is added to one
+     */
+    protected int handle = -1;
 
     /**
      * Class constructor specifying id.
@@ -28,6 +35,22 @@ public abstract class SimulatedObject implements Describable {
         return id;
     }
 
+    /**
+     * @return Handle of the identifier in the road map of the object, -1 if
+     * it has not been added to one
+     * @see RoadMap#getIds()
+     */
+    public int getHandle() {
+        return handle;
+    }
+
+    /**
+     * @param handle Handle of the identifier in the road map of the object
+     */
+    void setHandle(int handle) {
+        this.handle = handle;
+    }
+
     @Override
     public int hashCode() {
         return 59 * 3 + Objects.hashCode(this.id);
@@ -51,11 +74,34 @@ public abstract class SimulatedObject implements Describable {
      * @see IniSection
      */
     public IniSection generateReport(int time) {
-        IniSection ini = new IniSection(getReportSectionTag());
-        ini.setValue("id", id);
-        ini.setValue("time", time);
-        fillReportDetails(ini);
-        return ini;
+        IniSectionWriter writer = new IniSectionWriter();
+        writeReport(time, writer);
+        return writer.getSection();
+    }
+
+    /**
+     * Writes the report section by section, without building it first.
+     *
+     * @param time
+     * @param out Writer receiving the report
+     * @see SectionWriter
+     */
+    public void writeReport(int time, SectionWriter out) {
+        writeReportHeader(time, out);
+        writeReportDetails(out);
+        out.endSection();
+    }
+
+    /**
+     * Writes the beginning of the report, up to its time.
+     *
+     * @param time
+     * @param out Writer receiving the report
+     */
+    void writeReportHeader(int time, SectionWriter out) {
+        out.beginSection(getReportSectionTag());
+        out.key("id").append(id);
+        out.key("time").append(time);
     }
 
     /**
@@ -69,11 +115,11 @@ public abstract class SimulatedObject implements Describable {
     abstract void advance();
 
     /**
-     * Fills in the report.
+     * Writes the details of the report, after its id and time.
      *
-     * @param sec Section
+     * @param out Writer receiving the report
      */
-    protected abstract void fillReportDetails(IniSection sec);
+    protected abstract void writeReportDetails(SectionWriter out);
 
     @Override
     public void describe(Map<String, String> out) {
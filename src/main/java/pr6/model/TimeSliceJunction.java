@@ -1,6 +1,6 @@
 package pr6.model;
 
-import pr6.ini.IniSection;
+import pr6.ini.SectionWriter;
 
 /**
  * Defines a time slice junction.
@@ -53,6 +53,20 @@ public class TimeSliceJunction extends Junction {
             timeSpent = 0;
         }
 
+        @Override
+        protected void writeLight(SectionWriter out, Lights lights) {
+            super.writeLight(out, lights);
+            if (lights.green == this) {
+                out.append(':').append(lights.remaining);
+            }
+        }
+
+        @Override
+        protected int remainingTime(int idleTicks) {
+            // the light has just been turned green after idle ticks
+            return intervalTime - ((idleTicks > 0) ? 0 : timeSpent);
+        }
+
         /**
          * @return if time is greater than the interval of time.
          */
@@ -60,6 +74,19 @@ public class TimeSliceJunction extends Junction {
             return timeSpent >= intervalTime;
         }
 
+        /**
+         * Counts some times the first vehicle would have been advanced while
+         * the queue was empty.
+         *
+         * @param advances
+         */
+        protected void skipEmptyAdvances(int advances) {
+            if (advances > 0) {
+                timeSpent += advances;
+                completelyUsed = false;
+            }
+        }
+
         @Override
         protected void advanceFirstVehicle() {
             timeSpent++;
@@ -133,29 +160,4 @@ public class TimeSliceJunction extends Junction {
         }
 
     }
-
-    @Override
-    protected void fillReportDetails(IniSection sec) {
-        StringBuilder sb = new StringBuilder();
-        if (!incomingRoadMap.isEmpty()) {
-            incomingRoadMap.values().forEach((ir) -> {
-                if (ir.isGreenLight()) {
-                    sb.append('(').
-                            append(ir.road.getId()).append(',').append(ir.lightToString())
-                            .append(":").append(
-                            ((TimeSliceIncomingRoad) ir).getIntervalTime()
-                            - ((TimeSliceIncomingRoad) ir).timeSpent)
-                            .append(',').append(ir.printQueue())
-                            .append("),");
-                } else {
-                    sb.append('(').append(ir.road.getId()).append(',')
-                            .append(ir.lightToString()).append(',').append(ir.printQueue())
-                            .append("),");
-                }
-            });
-            sec.setValue("queues", sb.substring(0, sb.length() - 1));
-        } else {
-            sec.setValue("queues", "");
-        }
-    }
 }
@@ -2,13 +2,23 @@ package pr6.model;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
 import javax.swing.SwingUtilities;
 import pr6.events.Event;
 import pr6.exception.SimulatorError;
 import pr6.ini.Ini;
+import pr6.ini.BinaryReportWriter;
+import pr6.ini.CompressedReportStream;
+import pr6.ini.IniStreamWriter;
+import pr6.ini.ReportIndexWriter;
+import pr6.ini.ReportWriter;
 import pr6.util.MultiTreeMap;
+import pr6.util.SymbolTable;
 
 /**
  * Simulates a system of vehicles driving through some roads and around
@@ -16,12 +26,81 @@ import pr6.util.MultiTreeMap;
  */
 public class TrafficSimulator {
 
-    private OutputStream output;
+    /**
+     * Writer of the reports to the output, null if there is no output
+     */
+    private ReportWriter reportWriter;
+    /**
+     * Format of the reports
+     */
+    private ReportFormat reportFormat = ReportFormat.INI;
+    /**
+     * Number of bytes of reports kept before writing them to the output
+     */
+    private static final int DEFAULT_REPORT_BUFFER_SIZE = 1 << 16;
+    private int reportBufferSize = DEFAULT_REPORT_BUFFER_SIZE;
+    /**
+     * Output of the reports, either a stream or a channel
+     */
+    private OutputStream reportOutput = null;
+    private WritableByteChannel reportChannel = null;
+    /**
+     * Number of buffers of reports which can be waiting to be written by the
+     * report writer thread, 0 to write them on the simulation thread
+     */
+    private int asyncReportBuffers = 0;
+    /**
+     * Number of ticks between keyframes of the binary format
+     */
+    private int keyframeInterval = BinaryReportWriter.DEFAULT_KEYFRAME_INTERVAL;
+    /**
+     * Writer of the reports in delta mode, null to write every report
+     */
+    private DeltaReports deltaReports = null;
+    /**
+     * Ticks and objects reported
+     */
+    private ReportFilter reportFilter = new ReportFilter();
+    /**
+     * Writer thread of the reports, null if they are written on the
+     * simulation thread
+     */
+    private AsyncReportWriter asyncReportWriter = null;
+    /**
+     * Whether the reports are compressed, and how much
+     */
+    private boolean compressReports = false;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    /**
+     * Compressor of the reports, null if they are not compressed
+     */
+    private CompressedReportStream compressedOutput = null;
+    /**
+     * Writer of the reports when they are written as uncompressed text, null
+     * otherwise, and number of bytes of the output written by the previous
+     * ones
+     */
+    private IniStreamWriter textReportWriter = null;
+    private long reportBytes = 0;
+    /**
+     * Index of the reports of the output, null if they are not indexed
+     */
+    private ReportIndexWriter reportIndex = null;
+    /**
+     * Whether the reports are written to the output at the end of every tick
+     * or only when the buffer is full
+     */
+    private boolean flushEveryTick = true;
     /**
      * Map of events to be executed ordered by the time when they will be
      * executed
      */
     private MultiTreeMap<Integer, Event> mapOfEvents = new MultiTreeMap<>((a, b) -> a - b);
+    /**
+     * Source of the events not added yet, null if every event is added
+     * before running
+     */
+    private EventSource eventSource = null;
     /**
      * Internal counter, current number of ticks executed
      */
@@ -34,6 +113,37 @@ public class TrafficSimulator {
      * List of observers to be used during the GUI execution
      */
     private final List<TrafficSimulatorListener> listeners = new ArrayList<>();
+    /**
+     * Pool used to advance the roads in parallel, null when the simulation
+     * runs on a single thread
+     */
+    private ForkJoinPool pool = null;
+    /**
+     * Number of objects given to each task of the pool, at least
+     */
+    private static final int MIN_OBJECTS_PER_TASK = 64;
+    /**
+     * Buffers of road transfers, one per chunk of junctions advanced in
+     * parallel
+     */
+    private final List<RoadTransfers> junctionTransfers = new ArrayList<>();
+    /**
+     * How the ticks without traffic nor events are simulated
+     */
+    private FastForward fastForward = FastForward.OFF;
+    /**
+     * Kind of random number generator of the cars which do not choose one
+     */
+    private Car.RandomMode randomMode = Car.RandomMode.RANDOM;
+    /**
+     * Listeners are notified of the advances every notifyTicks ticks, or
+     * earlier when notifyMillis milliseconds have passed. Values lower or
+     * equal to zero disable each condition.
+     */
+    private int notifyTicks = 1;
+    private long notifyMillis = 0;
+    private int lastNotifiedTick = 0;
+    private long lastNotifiedMillis = 0;
 
     /**
      * Class Constructor specifying output stream.
@@ -41,7 +151,7 @@ public class TrafficSimulator {
      * @param output
      */
     public TrafficSimulator(OutputStream output) {
-        this.output = output;
+        setOutputStream(output);
     }
 
     /**
@@ -57,18 +167,166 @@ public class TrafficSimulator {
     }
 
     /**
-     * Given a certain SimulatedObject it generates its report.
+     * Given a certain SimulatedObject it writes its report. Reports are kept
+     * in a buffer which is written to the output when it is full.
      *
      * @param simObject
      * @throws SimulatorError Thrown when there is a problem with the output
      */
     private void writeReport(SimulatedObject simObject) throws SimulatorError {
+        if (indexesReports()) {
+            try {
+                reportIndex.object(simObject.getId(), reportPosition());
+            } catch (IOException e) {
+                throw new SimulatorError("Error while storing report...", e);
+            }
+        }
+        if (deltaReports != null) {
+            deltaReports.writeReport(simObject, ticks, reportWriter);
+        } else {
+            simObject.writeReport(ticks, reportWriter);
+        }
+        reportWriter.separator();
+        if (reportWriter.size() >= reportBufferSize) {
+            flushReports();
+        }
+    }
+
+    /**
+     * @return true if the reports are indexed, which needs an index and full
+     * reports of uncompressed text
+     */
+    private boolean indexesReports() {
+        return reportIndex != null && textReportWriter != null
+                && deltaReports == null;
+    }
+
+    /**
+     * @return Offset in the output of the next report written
+     */
+    private long reportPosition() {
+        return reportBytes + textReportWriter.position();
+    }
+
+    /**
+     * Writes the reports kept in the buffer to the output.
+     *
+     * @throws SimulatorError Thrown when there is a problem with the output
+     */
+    private void flushReports() throws SimulatorError {
         try {
-            simObject.generateReport(ticks).store(output);
-            output.write('\n');
+            reportWriter.flush();
         } catch (IOException e) {
-            throw new SimulatorError("Error with " + simObject.getClass()
-                    + " while storing report...", e);
+            throw new SimulatorError("Error while storing report...", e);
+        }
+    }
+
+    /**
+     * Waits until the report writer thread, if any, has written every report.
+     *
+     * @throws SimulatorError Thrown when there is a problem with the output
+     */
+    private void waitForReports() throws SimulatorError {
+        if (asyncReportWriter != null) {
+            try {
+                asyncReportWriter.flush();
+            } catch (IOException e) {
+                throw new SimulatorError("Error while storing report...", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the pending reports and the end of the format to the current
+     * output and stops its writer thread, if any.
+     *
+     * @throws SimulatorError Thrown when there is a problem with the output
+     */
+    private void closeReportWriter() throws SimulatorError {
+        if (reportWriter != null) {
+            try {
+                reportWriter.finish();
+                if (asyncReportWriter != null) {
+                    asyncReportWriter.close();
+                }
+                if (compressedOutput != null) {
+                    compressedOutput.finish();
+                }
+            } catch (IOException e) {
+                throw new SimulatorError("Error while storing report...", e);
+            } finally {
+                if (textReportWriter != null) {
+                    reportBytes += textReportWriter.position();
+                }
+                reportWriter = null;
+                asyncReportWriter = null;
+                compressedOutput = null;
+                textReportWriter = null;
+            }
+        }
+    }
+
+    /**
+     * Writes the end of the index of the reports, if any, which is not
+     * written to anymore.
+     *
+     * @throws SimulatorError Thrown when there is a problem with the index
+     */
+    private void finishReportIndex() throws SimulatorError {
+        if (reportIndex != null) {
+            try {
+                reportIndex.finish(reportBytes);
+            } catch (IOException e) {
+                throw new SimulatorError("Error while storing report...", e);
+            } finally {
+                reportIndex = null;
+            }
+        }
+    }
+
+    /**
+     * Creates the writer of the reports for the current output.
+     */
+    private void openReportWriter() {
+        if (deltaReports != null) {
+            deltaReports.reset();
+        }
+        if (reportOutput == null && reportChannel == null) {
+            reportWriter = null;
+            return;
+        }
+        if (compressReports) {
+            // the writer thread compresses the reports as it writes them
+            compressedOutput = new CompressedReportStream((reportChannel == null)
+                    ? reportOutput : Channels.newOutputStream(reportChannel),
+                    compressionLevel, reportBufferSize);
+            asyncReportWriter = new AsyncReportWriter(compressedOutput,
+                    reportBufferSize, Math.max(1, asyncReportBuffers));
+        } else if (asyncReportBuffers > 0) {
+            asyncReportWriter = (reportChannel == null)
+                    ? new AsyncReportWriter(reportOutput, reportBufferSize,
+                            asyncReportBuffers)
+                    : new AsyncReportWriter(reportChannel, reportBufferSize,
+                            asyncReportBuffers);
+        }
+        if (reportFormat == ReportFormat.BINARY) {
+            OutputStream out = (asyncReportWriter != null)
+                    ? Channels.newOutputStream(asyncReportWriter)
+                    : (reportChannel != null) ? Channels.newOutputStream(reportChannel)
+                    : reportOutput;
+            reportWriter = new BinaryReportWriter(out, reportBufferSize,
+                    keyframeInterval);
+        } else {
+            IniStreamWriter writer;
+            if (asyncReportWriter != null) {
+                writer = new IniStreamWriter(asyncReportWriter, reportBufferSize);
+            } else if (reportChannel == null) {
+                writer = new IniStreamWriter(reportOutput, reportBufferSize);
+            } else {
+                writer = new IniStreamWriter(reportChannel, reportBufferSize);
+            }
+            reportWriter = writer;
+            textReportWriter = compressReports ? null : writer;
         }
     }
 
@@ -83,28 +341,314 @@ public class TrafficSimulator {
     public void run(int numberOfTicks) {
         int timeLimit = ticks + numberOfTicks;
         try {
+            lastNotifiedMillis = System.currentTimeMillis();
             while (ticks < timeLimit) {
+                // Add the streamed events of the current time
+                pullEvents();
+                // Jump over the ticks in which nothing happens
+                if (fastForward != FastForward.OFF && isQuiescent()) {
+                    skipTicks(timeLimit);
+                    continue;
+                }
                 // Execute the events for the current time
                 advanceEvents();
                 // Invoke method advance for roads
-                roadMap.getRoads().forEach((Road r) -> r.advance());
+                roadMap.getVehicleTable().time = ticks;
+                advanceRoads();
                 // Invoke method advance for junction
-                roadMap.getJunctions().forEach((Junction j) -> j.advance());
+                advanceJunctions();
                 // Current time increases
                 ticks++;
                 // listeners are notified
-                notifyAdvanced();
+                notifyAdvanced(false);
                 // Write report
-                if (output != null) {
-                    roadMap.getJunctions().forEach((Junction j) -> writeReport(j));
-                    roadMap.getRoads().forEach((Road r) -> writeReport(r));
-                    roadMap.getVehicles().forEach((Vehicle v) -> writeReport(v));
-                }
+                writeReports();
             }
+            if (reportWriter != null) {
+                flushReports();
+                waitForReports();
+            }
+            // the last state is always notified
+            notifyAdvanced(true);
         } catch (Exception e) {
             notifyError(new SimulatorError("Error in TrafficSimulator at "
                     + ticks + " time: \n-> " + e.getMessage(), e));
         }
+        flushListeners();
+    }
+
+    /**
+     * Writes the report of every object in the simulation for the current
+     * time, if there is an output.
+     */
+    private void writeReports() {
+        if (reportWriter != null && reportFilter.reportsTick(ticks)) {
+            reportWriter.beginTick(ticks);
+            if (indexesReports()) {
+                try {
+                    reportIndex.tick(ticks, reportPosition());
+                } catch (IOException e) {
+                    throw new SimulatorError("Error while storing report...", e);
+                }
+            }
+            if (deltaReports != null) {
+                deltaReports.writeTick(ticks, roadMap, reportFilter, reportWriter,
+                        (SimulatedObject o) -> writeReport(o));
+            } else {
+                if (reportFilter.reportsJunctions()) {
+                    writeReports(roadMap.getJunctions());
+                }
+                if (reportFilter.reportsRoads()) {
+                    writeReports(roadMap.getRoads());
+                }
+                if (reportFilter.reportsVehicles()) {
+                    writeReports(roadMap.getVehicles());
+                }
+            }
+            if (flushEveryTick) {
+                flushReports();
+            }
+        }
+    }
+
+    /**
+     * Writes the reports of the objects whose id is reported.
+     *
+     * @param objects
+     */
+    private void writeReports(List<? extends SimulatedObject> objects) {
+        for (SimulatedObject o : objects) {
+            if (reportFilter.reportsId(o)) {
+                writeReport(o);
+            }
+        }
+    }
+
+    /**
+     * @return true if there are no events for the current time and no vehicle
+     * is moving or waiting in a junction
+     */
+    private boolean isQuiescent() {
+        return !mapOfEvents.containsKey(ticks)
+                && roadMap.getScheduler().isQuiescent();
+    }
+
+    /**
+     * Jumps to the time of the next event, or to the time limit if it comes
+     * first, without advancing the roads nor the junctions. The junctions
+     * compute the lights of the skipped ticks from the number of ticks. The
+     * listeners are notified once. Depending on the fast forward mode, either
+     * the reports of every skipped tick are written or the reports are
+     * replaced by a comment with the range of reported ticks skipped,
+     * followed by the reports of the last one. The comment does not tell the
+     * reports of the skipped ticks, which may differ from the ones around
+     * them as the lights of the junctions keep changing.
+     *
+     * @param timeLimit
+     * @throws SimulatorError Thrown when there is a problem with the output
+     */
+    private void skipTicks(int timeLimit) throws SimulatorError {
+        Integer nextEvent = mapOfEvents.higherKey(ticks);
+        Integer nextStreamed = nextStreamedTime();
+        if (nextStreamed != null && (nextEvent == null || nextStreamed < nextEvent)) {
+            nextEvent = nextStreamed;
+        }
+        int target = (nextEvent == null) ? timeLimit : Math.min(nextEvent, timeLimit);
+        ActiveSetScheduler scheduler = roadMap.getScheduler();
+        if (fastForward == FastForward.REPORTS) {
+            // the lights of every report depend on the ticks skipped so far
+            for (ticks++; ticks < target; ticks++) {
+                scheduler.skipJunctionTicks(1);
+                writeReports();
+            }
+            scheduler.skipJunctionTicks(1);
+        } else {
+            Integer first = reportFilter.firstTick(ticks + 1, target - 1);
+            if (reportWriter != null && first != null) {
+                reportWriter.comment(" skipped ticks from time " + first + " to "
+                        + reportFilter.lastTick(ticks + 1, target - 1));
+                reportWriter.separator();
+            }
+            scheduler.skipJunctionTicks(target - ticks);
+        }
+        ticks = target;
+        notifyAdvanced(false);
+        writeReports();
+    }
+
+    /**
+     * Invokes method advance for every road with vehicles on it. When running
+     * in parallel the roads are split across the pool and the vehicles
+     * reaching a junction are put in it afterwards, following the order of the
+     * roads, so the result is the same as when running on a single thread.
+     */
+    private void advanceRoads() {
+        List<Road> roads = roadMap.getScheduler().getRoadsToAdvance();
+        if (pool == null || roads.size() <= MIN_OBJECTS_PER_TASK) {
+            roads.forEach((Road r) -> r.advance());
+        } else {
+            pool.invoke(new ParallelAdvance(roads.size(), chunkSize(roads.size()),
+                    (chunk, from, to) -> {
+                        for (int i = from; i < to; i++) {
+                            roads.get(i).advanceDeferringArrivals();
+                        }
+                    }));
+            roads.forEach((Road r) -> r.commitArrivals());
+        }
+    }
+
+    /**
+     * Invokes method advance for every junction with vehicles waiting. The
+     * rest of junctions compute their lights from the ticks skipped when they
+     * are used again. When running in parallel every chunk of junctions
+     * records the vehicles leaving and entering roads in its own buffer, and
+     * the buffers are applied afterwards following the order of the
+     * junctions, so the result is the same as when running on a single
+     * thread.
+     */
+    private void advanceJunctions() {
+        ActiveSetScheduler scheduler = roadMap.getScheduler();
+        List<Junction> junctions = scheduler.getJunctionsToAdvance();
+        if (pool == null || junctions.size() <= MIN_OBJECTS_PER_TASK) {
+            junctions.forEach((Junction j) -> j.step(null));
+        } else {
+            int chunkSize = chunkSize(junctions.size());
+            int chunks = ParallelAdvance.numberOfChunks(junctions.size(), chunkSize);
+            while (junctionTransfers.size() < chunks) {
+                junctionTransfers.add(new RoadTransfers());
+            }
+            pool.invoke(new ParallelAdvance(junctions.size(), chunkSize,
+                    (chunk, from, to) -> {
+                        RoadTransfers transfers = junctionTransfers.get(chunk);
+                        for (int i = from; i < to; i++) {
+                            junctions.get(i).step(transfers);
+                        }
+                    }));
+            for (int c = 0; c < chunks; c++) {
+                junctionTransfers.get(c).apply();
+            }
+        }
+        scheduler.junctionsAdvanced();
+    }
+
+    /**
+     * Returns the number of objects given to each task of the pool.
+     *
+     * @param size Number of objects to be advanced
+     * @return size of the chunks
+     */
+    private int chunkSize(int size) {
+        return Math.max(MIN_OBJECTS_PER_TASK, size / (4 * pool.getParallelism()));
+    }
+
+    /**
+     * Sets the number of threads used to advance the simulation. Values lower
+     * or equal to one make the simulator run on a single thread.
+     *
+     * @param parallelism Number of threads
+     */
+    public void setParallelism(int parallelism) {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        pool = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+    }
+
+    /**
+     * @return Pool of the threads which advance the simulation, null when it
+     * runs on a single thread
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets how the ticks without traffic nor events are simulated.
+     *
+     * @param mode
+     * @see FastForward
+     */
+    public void setFastForward(FastForward mode) {
+        fastForward = mode;
+    }
+
+    /**
+     * Sets the kind of random number generator of the cars which do not
+     * choose one in their event. It applies to the cars added afterwards.
+     *
+     * @param mode
+     * @see Car.RandomMode
+     */
+    public void setRandomMode(Car.RandomMode mode) {
+        randomMode = mode;
+        roadMap.setRandomMode(mode);
+    }
+
+    /**
+     * Sets how often the listeners are notified of the advances of the
+     * simulation: every given number of ticks, or earlier if the given time
+     * has passed. Values lower or equal to zero disable each condition, and
+     * if both are disabled the listeners are only notified at the end of
+     * every run. By default they are notified every tick.
+     *
+     * @param ticksInterval Number of ticks between notifications
+     * @param millisInterval Milliseconds between notifications
+     */
+    public void setNotificationInterval(int ticksInterval, long millisInterval) {
+        notifyTicks = ticksInterval;
+        notifyMillis = millisInterval;
+    }
+
+    /**
+     * Adds the events of the event source up to the current time, if any.
+     *
+     * @throws SimulatorError Thrown when the events can not be read
+     */
+    private void pullEvents() throws SimulatorError {
+        Integer time;
+        while ((time = nextStreamedTime()) != null && time <= ticks) {
+            try {
+                addEvent(eventSource.next());
+            } catch (IOException e) {
+                throw new SimulatorError("Error while loading events...", e);
+            }
+        }
+    }
+
+    /**
+     * @return Time of the next event of the event source, null if there is
+     * none
+     * @throws SimulatorError Thrown when the events can not be read
+     */
+    private Integer nextStreamedTime() throws SimulatorError {
+        try {
+            return (eventSource == null) ? null : eventSource.nextTime();
+        } catch (IOException e) {
+            throw new SimulatorError("Error while loading events...", e);
+        }
+    }
+
+    /**
+     * Sets the source of the events added as the simulation reaches their
+     * time. Only the events of the current tick are taken from it, and they
+     * are dropped once executed, so the events in memory are the ones of the
+     * next ticks and not all of them. The previous source, if any, is closed.
+     *
+     * @param source Source of events, null to stop streaming events
+     * @throws SimulatorError Thrown when the previous source can not be
+     * closed
+     */
+    public void setEventSource(EventSource source) {
+        if (eventSource != null) {
+            try {
+                eventSource.close();
+            } catch (IOException e) {
+                throw new SimulatorError("Error while loading events...", e);
+            } finally {
+                eventSource = null;
+            }
+        }
+        eventSource = source;
     }
 
     /**
@@ -118,14 +662,27 @@ public class TrafficSimulator {
         notifyEventAdded();
     }
 
+    /**
+     * @return Ids of the simulated objects, where the ids of the events are
+     * interned when they are parsed. A new table is used after every reset.
+     * @see RoadMap#getIds()
+     */
+    public SymbolTable getIds() {
+        return roadMap.getIds();
+    }
+
     /**
      * Sets to its initial value the simulation.
      */
     public void reset() {
+        setEventSource(null);
         mapOfEvents = new MultiTreeMap<>((a, b) -> a - b);
         roadMap = new RoadMap();
-        this.output = null;
+        roadMap.setRandomMode(randomMode);
+        setOutputStream(null);
         ticks = 0;
+        lastNotifiedTick = 0;
+        lastNotifiedMillis = 0;
         notifyReset();
     }
 
@@ -136,7 +693,157 @@ public class TrafficSimulator {
      * @param output Output stream
      */
     public void setOutputStream(OutputStream output) {
-        this.output = output;
+        closeReportWriter();
+        finishReportIndex();
+        reportBytes = 0;
+        reportOutput = output;
+        reportChannel = null;
+        reportBufferSize = DEFAULT_REPORT_BUFFER_SIZE;
+        openReportWriter();
+    }
+
+    /**
+     * Changes the output to a channel, such as a
+     * {@link java.nio.channels.FileChannel}. Reports are kept in a buffer of
+     * the given size, which is written to the channel when it is full and,
+     * unless disabled, at the end of every tick.
+     *
+     * @param channel Output channel
+     * @param bufferSize Number of bytes of the buffer
+     * @see #setFlushEveryTick(boolean)
+     */
+    public void setOutputChannel(WritableByteChannel channel, int bufferSize) {
+        closeReportWriter();
+        finishReportIndex();
+        reportBytes = 0;
+        reportOutput = null;
+        reportChannel = channel;
+        reportBufferSize = bufferSize;
+        openReportWriter();
+    }
+
+    /**
+     * Sets the format of the reports. The binary format is much smaller than
+     * the text and is converted back to it by
+     * {@link pr6.ini.BinaryReportReader}.
+     *
+     * @param format
+     * @param keyframeInterval Number of ticks between the points from which
+     * a binary report can be read, ignored by the text format
+     * @see ReportFormat
+     */
+    public void setReportFormat(ReportFormat format, int keyframeInterval) {
+        closeReportWriter();
+        reportFormat = format;
+        this.keyframeInterval = keyframeInterval;
+        openReportWriter();
+    }
+
+    /**
+     * Sets the delta mode, in which only the objects whose report changed
+     * since the previous tick are written, with a full report every so many
+     * ticks. {@link pr6.ini.DeltaReportReader} rebuilds the full reports.
+     *
+     * @param keyframeInterval Number of ticks between full reports, 0 to
+     * write every report every tick
+     */
+    public void setDeltaReports(int keyframeInterval) {
+        deltaReports = (keyframeInterval > 0) ? new DeltaReports(keyframeInterval)
+                : null;
+    }
+
+    /**
+     * Sets the ticks and objects whose reports are written.
+     *
+     * @param filter Ticks and objects reported, null to report everything
+     * @see ReportFilter
+     */
+    public void setReportFilter(ReportFilter filter) {
+        reportFilter = (filter == null) ? new ReportFilter() : filter;
+    }
+
+    /**
+     * Writes the pending reports followed by whatever the format needs at
+     * the end of the output, and stops writing reports. The output is not
+     * closed.
+     */
+    public void closeOutput() {
+        closeReportWriter();
+        finishReportIndex();
+        reportBytes = 0;
+        reportOutput = null;
+        reportChannel = null;
+    }
+
+    /**
+     * Sets whether the reports are written to the output by a thread of its
+     * own, so the simulation does not wait for the output. Every time the
+     * buffer of reports is flushed, it is copied to one of the given number
+     * of buffers and queued to be written; the simulator only waits when
+     * every buffer is queued and at the end of every run. Errors of the
+     * output are notified as errors of the simulation.
+     *
+     * @param buffers Number of buffers which can be waiting to be written, 0
+     * to write the reports on the simulation thread
+     */
+    public void setAsyncReports(int buffers) {
+        closeReportWriter();
+        asyncReportBuffers = buffers;
+        openReportWriter();
+    }
+
+    /**
+     * Sets whether the reports are compressed in the gzip format, which
+     * {@link pr6.ini.CompressedReportStream#open(java.io.InputStream)} reads
+     * back. The reports are compressed by the report writer thread, which is
+     * used with one buffer if {@link #setAsyncReports(int)} did not set more.
+     * Every time the reports are written to the output they are flushed
+     * from the compressor, so with the default flush policy the output can
+     * be read up to the last tick while the simulation runs.
+     *
+     * @param compress
+     * @param level From 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public void setCompressedReports(boolean compress, int level) {
+        closeReportWriter();
+        compressReports = compress;
+        compressionLevel = level;
+        openReportWriter();
+    }
+
+    /**
+     * Sets the output of the index of the reports of the current output,
+     * which {@link pr6.ini.IndexedReportReader} uses to read any tick or
+     * object without reading the reports before it. The index is written as
+     * the reports are, and ended when the output is changed or closed. Only
+     * uncompressed text reports are indexed, and not in delta mode, where a
+     * tick only holds the objects which changed.
+     *
+     * @param index Output of the index, which is not closed, null to stop
+     * indexing the reports
+     * @see pr6.ini.ReportIndexWriter
+     */
+    public void setReportIndex(OutputStream index) {
+        closeReportWriter();
+        finishReportIndex();
+        try {
+            reportIndex = (index == null) ? null : new ReportIndexWriter(index);
+        } catch (IOException e) {
+            throw new SimulatorError("Error while storing report...", e);
+        } finally {
+            openReportWriter();
+        }
+    }
+
+    /**
+     * Sets whether the reports are written to the output at the end of every
+     * tick, the default, or only when the buffer is full and at the end of
+     * every run.
+     *
+     * @param flush
+     */
+    public void setFlushEveryTick(boolean flush) {
+        flushEveryTick = flush;
     }
 
     /**
@@ -150,21 +857,59 @@ public class TrafficSimulator {
         SwingUtilities.invokeLater(() -> newListener.registered(ue));
     }
 
+    /**
+     * Adds a new simulator listener which is notified on a thread of its own.
+     * Notifications of advances and new events are coalesced when the
+     * listener falls behind, and the simulator only waits for the listener
+     * when too many other notifications are pending and at the end of every
+     * run. As the simulation goes on while the listener runs, it must not
+     * use the road map nor the events of the notifications.
+     *
+     * @param newListener
+     * @see UpdateEvent#getRoadMap()
+     * @see AsyncListener
+     */
+    public void addAsyncSimulatorListener(TrafficSimulatorListener newListener) {
+        AsyncListener asyncListener = new AsyncListener(newListener,
+                AsyncListener.DEFAULT_QUEUE_CAPACITY);
+        listeners.add(asyncListener);
+        asyncListener.registered(new UpdateEvent(EventType.REGISTERED));
+    }
+
     /**
      * Removes a simulator listener from the simulation.
      *
      * @param newListener
      */
     public void removeSimulatorListener(TrafficSimulatorListener newListener) {
-        listeners.remove(newListener);
+        listeners.removeIf((l) -> {
+            if (l instanceof AsyncListener && ((AsyncListener) l).wraps(newListener)) {
+                ((AsyncListener) l).close();
+                return true;
+            }
+            return l == newListener;
+        });
+    }
+
+    /**
+     * Waits until the asynchronous listeners have received every
+     * notification.
+     */
+    private void flushListeners() {
+        listeners.forEach((l) -> {
+            if (l instanceof AsyncListener) {
+                ((AsyncListener) l).flush();
+            }
+        });
     }
 
     /**
      * Notifies the listeners in case of resetting the simulator.
      */
     private void notifyReset() {
+        UpdateEvent ue = new UpdateEvent(EventType.RESET);
         listeners.forEach((l) -> {
-            l.reset(new UpdateEvent(EventType.RESET));
+            l.reset(ue);
         });
     }
 
@@ -172,26 +917,41 @@ public class TrafficSimulator {
      * Notifies the listeners in case of adding a new event to the simulator.
      */
     private void notifyEventAdded() {
+        UpdateEvent ue = new UpdateEvent(EventType.NEW_EVENT);
         listeners.forEach((l) -> {
-            l.newEvent(new UpdateEvent(EventType.NEW_EVENT));
+            l.newEvent(ue);
         });
     }
 
     /**
-     * Notifies the listeners in case of advancing the simulator.
+     * Notifies the listeners in case of advancing the simulator, if the
+     * notification interval has passed.
+     *
+     * @param force Notifies the current time even if the interval has not
+     * passed, unless it has already been notified
      */
-    private void notifyAdvanced() {
-        listeners.forEach((l) -> {
-            l.advanced(new UpdateEvent(EventType.ADVANCED));
-        });
+    private void notifyAdvanced(boolean force) {
+        long now = (notifyMillis > 0) ? System.currentTimeMillis() : 0;
+        boolean due = (notifyTicks > 0 && ticks - lastNotifiedTick >= notifyTicks)
+                || (notifyMillis > 0 && now - lastNotifiedMillis >= notifyMillis)
+                || (force && ticks != lastNotifiedTick);
+        if (due) {
+            lastNotifiedTick = ticks;
+            lastNotifiedMillis = now;
+            UpdateEvent ue = new UpdateEvent(EventType.ADVANCED);
+            listeners.forEach((l) -> {
+                l.advanced(ue);
+            });
+        }
     }
 
     /**
      * Notifies the listeners when an error occurs during the simulation.
      */
     private void notifyError(SimulatorError e) {
+        UpdateEvent ue = new UpdateEvent(EventType.ERROR);
         listeners.forEach((l) -> {
-            l.error(new UpdateEvent(EventType.ERROR), e);
+            l.error(ue, e);
         });
     }
 
@@ -210,6 +970,10 @@ public class TrafficSimulator {
                             + "\" cannot be proccesed", ex));
                 }
             });
+            if (eventSource != null) {
+                // streamed events are not kept once executed
+                mapOfEvents.remove(ticks);
+            }
         }
     }
 
@@ -264,11 +1028,52 @@ public class TrafficSimulator {
     };
 
     /**
-     * Contains the information of the event.
+     * Ways of simulating the ticks in which there are no events and no vehicle
+     * is moving or waiting in a junction.
+     */
+    public enum FastForward {
+        /**
+         * Every tick is simulated
+         */
+        OFF,
+        /**
+         * The ticks are skipped and their reports replaced by a comment which
+         * tells that they were skipped
+         */
+        MARKERS,
+        /**
+         * The ticks are skipped but their reports are written
+         */
+        REPORTS
+    };
+
+    /**
+     * Formats of the reports.
+     */
+    public enum ReportFormat {
+        /**
+         * INI sections, the same as {@link pr6.ini.IniSection} stores
+         */
+        INI,
+        /**
+         * Compact binary columns, see {@link pr6.ini.BinaryReportWriter}
+         */
+        BINARY
+    };
+
+    /**
+     * Contains the information of the event. The road map and the events are
+     * the ones of the simulator, not copies, so they can only be used while
+     * the simulator does not run: by listeners notified synchronously, not by
+     * asynchronous ones.
      */
     public class UpdateEvent {
 
         private final EventType type;
+        /**
+         * Time of the simulation when the event was created
+         */
+        private final int time;
 
         /**
          * Class constructor specifying the type of event.
@@ -277,6 +1082,7 @@ public class TrafficSimulator {
          */
         public UpdateEvent(EventType eventType) {
             this.type = eventType;
+            this.time = ticks;
         }
 
         /**
@@ -287,14 +1093,15 @@ public class TrafficSimulator {
         }
 
         /**
-         * @return the road map
+         * @return the road map, which is not a copy
          */
         public RoadMap getRoadMap() {
             return roadMap;
         }
 
         /**
-         * @return the queue of events up to the current time
+         * @return the queue of events up to the current time, which is not a
+         * copy
          */
         public List<Event> getEventQueue() {
             List<Event> list = new ArrayList(mapOfEvents.valuesList());
@@ -310,10 +1117,10 @@ public class TrafficSimulator {
         }
 
         /**
-         * @return the current time
+         * @return the time of the simulation when the event was created
          */
         public int getCurrentTime() {
-            return ticks;
+            return time;
         }
     }
 }
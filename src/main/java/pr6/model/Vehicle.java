@@ -1,9 +1,8 @@
 package pr6.model;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import pr6.ini.IniSection;
+import pr6.ini.SectionWriter;
 
 /**
  * Defines one of the main types of Simulated Object.
@@ -13,52 +12,67 @@ import pr6.ini.IniSection;
 public class Vehicle extends SimulatedObject {
 
     private static final String SECTION_TAG_NAME = "vehicle_report";
-    private final String itineraryToString;
-    protected final int maxSpeed;
-    protected final ArrayList<Junction> itinerary;
-    protected int currentJunction = 0;
-    protected int currentSpeed = 0;
-    protected int kilometrage = 0;
-    protected int location;
-    protected int faulty = 0;
     /**
-     * Shows if the vehicle has arrived to its destination
+     * Table where the state of the vehicle is stored
      */
-    protected boolean hasArrived;
-    protected Road currentRoad;
+    protected final VehicleTable table;
+    /**
+     * Position of the vehicle in the table
+     */
+    protected final int handle;
 
     /**
-     * Class constructor. The rest of attributes are zero-initialized.
+     * Class constructor specifying the table where the vehicle is stored. The
+     * rest of attributes are zero-initialized.
      *
+     * @param table
      * @param id
      * @param maxSpeed
      * @param itinerary
      */
-    public Vehicle(String id, int maxSpeed, List<Junction> itinerary) {
+    public Vehicle(VehicleTable table, String id, int maxSpeed,
+            List<Junction> itinerary) {
         super(id);
-        this.itinerary = new ArrayList(itinerary);
-        this.maxSpeed = maxSpeed;
+        this.table = table;
+        this.handle = table.add(this, maxSpeed, itinerary, hasOwnAdvance());
         moveToNextRoad();
-        ArrayList<String> aux = new ArrayList<>();
-        itinerary.forEach((j) -> {
-            aux.add(j.getId());
-        });
-        itineraryToString = "[" + String.join(",", aux) + "]";
     }
 
     /**
      * Moves itself to next road.
      */
     public final void moveToNextRoad() {
+        moveToNextRoad(null);
+    }
+
+    /**
+     * Moves itself to next road. When a buffer of transfers is given, the
+     * changes to the roads are recorded in it instead of being made.
+     *
+     * @param transfers Buffer of transfers, null to change the roads directly
+     */
+    final void moveToNextRoad(RoadTransfers transfers) {
+        Junction[] itinerary = table.itinerary[handle];
+        int currentJunction = table.currentJunction[handle];
         if (currentJunction > 0) {
-            currentRoad.exit(this);
+            if (transfers == null) {
+                table.road[handle].exit(this);
+            } else {
+                transfers.exit(table.road[handle], this, table.location[handle]);
+            }
         }
-        location = 0;
-        if (currentJunction < itinerary.size() - 1) {
-            currentRoad = itinerary.get(currentJunction).roadTo(itinerary.get(++currentJunction));
-            currentRoad.enter(this);
+        table.location[handle] = 0;
+        if (currentJunction < itinerary.length - 1) {
+            Road nextRoad = itinerary[currentJunction].roadTo(itinerary[currentJunction + 1]);
+            table.currentJunction[handle] = currentJunction + 1;
+            table.road[handle] = nextRoad;
+            if (transfers == null) {
+                nextRoad.enter(this);
+            } else {
+                transfers.enter(nextRoad, this);
+            }
         } else {
-            hasArrived = true;
+            table.arrived[handle] = true;
         }
 
     }
@@ -69,7 +83,11 @@ public class Vehicle extends SimulatedObject {
      * @param duration
      */
     public void makeFaulty(int duration) {
-        faulty += duration;
+        boolean wasFaulty = table.faulty[handle] > 0;
+        table.faulty[handle] += duration;
+        if (wasFaulty != (table.faulty[handle] > 0) && !table.arrived[handle]) {
+            table.road[handle].faultChanged(!wasFaulty);
+        }
         setSpeed(0);
     }
 
@@ -79,22 +97,42 @@ public class Vehicle extends SimulatedObject {
      * @param newSpeed
      */
     public void setSpeed(int newSpeed) {
-        currentSpeed = (getFaultyTime() == 0 && currentRoad.getLength() != location)
-                ? Math.min(maxSpeed, newSpeed) : 0;
+        table.setSpeed(handle, newSpeed);
     }
 
     /**
      * @return breakdown duration
      */
     public int getFaultyTime() {
-        return faulty;
+        return table.faulty[handle];
     }
 
     /**
      * @return Location
      */
     public int getLocation() {
-        return location;
+        return table.location[handle];
+    }
+
+    /**
+     * @return Current speed
+     */
+    public int getSpeed() {
+        return table.speed[handle];
+    }
+
+    /**
+     * @return Maximum speed
+     */
+    public int getMaxSpeed() {
+        return table.maxSpeed[handle];
+    }
+
+    /**
+     * @return Distance travelled
+     */
+    public int getKilometrage() {
+        return table.kilometrage[handle];
     }
 
     /**
@@ -102,53 +140,59 @@ public class Vehicle extends SimulatedObject {
      * @see Road
      */
     public Road getRoad() {
-        return currentRoad;
+        return table.road[handle];
     }
 
     @Override
     protected void advance() {
-        if (faulty > 0) {
-            makeFaulty(-1);
-        } else if (location != currentRoad.getLength()) {
-            kilometrage -= location;
-            location = Math.min(currentRoad.getLength(), location + currentSpeed);
-            kilometrage += location;
-            if (location == currentRoad.getLength()) {
-                currentSpeed = 0;
-                itinerary.get(currentJunction).enter(this);
-            }
+        if (table.move(handle)) {
+            table.road[handle].arrive(this);
         }
     }
 
+    /**
+     * Tells whether the vehicle advances in a way of its own, so roads have to
+     * call {@link #advance()} instead of moving it through its table. Called
+     * from the constructor, so it can not depend on the fields of subclasses.
+     *
+     * @return true if {@link #advance()} or {@link #makeFaulty(int)} are
+     * overridden with a different behaviour
+     */
+    protected boolean hasOwnAdvance() {
+        return false;
+    }
+
     @Override
     protected String getReportSectionTag() {
         return SECTION_TAG_NAME;
     }
 
     @Override
-    protected void fillReportDetails(IniSection sec) {
-        sec.setValue("speed", "" + currentSpeed);
-        sec.setValue("kilometrage", "" + kilometrage);
-        sec.setValue("faulty", "" + faulty);
-        if (!hasArrived) {
-            StringBuilder sb = new StringBuilder();
-            sb.append('(')
-                    .append(currentRoad.getId()).append(',').append(location)
-                    .append(')');
-            sec.setValue("location", sb.toString());
+    protected void writeReportDetails(SectionWriter out) {
+        out.key("speed").append(getSpeed());
+        out.key("kilometrage").append(getKilometrage());
+        out.key("faulty").append(getFaultyTime());
+        out.key("location");
+        if (!table.arrived[handle]) {
+            out.append('(').append(getRoad().getId()).append(',')
+                    .append(getLocation()).append(')');
         } else {
-            sec.setValue("location", "arrived");
+            out.append("arrived");
         }
     }
 
     @Override
     public void describe(Map<String, String> out) {
         super.describe(out);
-        out.put("Road", currentRoad.getId());
-        out.put("Location", "" + location);
-        out.put("Speed", "" + currentSpeed);
-        out.put("Km", "" + kilometrage);
-        out.put("Faulty Units", "" + faulty);
-        out.put("Itinerary", itineraryToString);
+        out.put("Road", getRoad().getId());
+        out.put("Location", "" + getLocation());
+        out.put("Speed", "" + getSpeed());
+        out.put("Km", "" + getKilometrage());
+        out.put("Faulty Units", "" + getFaultyTime());
+        StringBuilder sb = new StringBuilder();
+        for (Junction j : table.itinerary[handle]) {
+            sb.append(j.getId()).append(',');
+        }
+        out.put("Itinerary", "[" + sb.substring(0, Math.max(0, sb.length() - 1)) + "]");
     }
 }
@@ -0,0 +1,179 @@
+package pr6.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores the state of the vehicles column by column. Every vehicle is given an
+ * integer handle when it is added, and its fields are kept at that position of
+ * the arrays of the table. Roads keep the handles of their vehicles and move
+ * them through the columns, so the objects of the vehicles are only used by
+ * the vehicles which advance in a way of their own.
+ *
+ * @see Vehicle
+ */
+public class VehicleTable {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final Junction[] NO_JUNCTIONS = new Junction[0];
+    /**
+     * Number of vehicles stored
+     */
+    private int size = 0;
+    int[] maxSpeed;
+    int[] speed;
+    int[] location;
+    int[] kilometrage;
+    int[] faulty;
+    /**
+     * Position in the itinerary of the junction the vehicle is going to
+     */
+    int[] currentJunction;
+    boolean[] arrived;
+    Road[] road;
+    Junction[][] itinerary;
+    /**
+     * Object of every vehicle, and whether it overrides the way vehicles
+     * advance
+     */
+    Vehicle[] vehicle;
+    boolean[] ownAdvance;
+    /**
+     * Time of the tick in which the vehicles are advanced
+     */
+    int time = 0;
+
+    /**
+     * Class constructor. The table grows as vehicles are added.
+     */
+    public VehicleTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Class constructor specifying the number of vehicles the table can store
+     * before growing.
+     *
+     * @param capacity
+     */
+    public VehicleTable(int capacity) {
+        capacity = Math.max(1, capacity);
+        maxSpeed = new int[capacity];
+        speed = new int[capacity];
+        location = new int[capacity];
+        kilometrage = new int[capacity];
+        faulty = new int[capacity];
+        currentJunction = new int[capacity];
+        arrived = new boolean[capacity];
+        road = new Road[capacity];
+        itinerary = new Junction[capacity][];
+        vehicle = new Vehicle[capacity];
+        ownAdvance = new boolean[capacity];
+    }
+
+    /**
+     * Adds a new vehicle to the table. The rest of its fields are
+     * zero-initialized.
+     *
+     * @param newVehicle
+     * @param newMaxSpeed
+     * @param newItinerary
+     * @param newOwnAdvance Whether the vehicle overrides the way vehicles
+     * advance
+     * @return handle of the vehicle
+     */
+    int add(Vehicle newVehicle, int newMaxSpeed, List<Junction> newItinerary,
+            boolean newOwnAdvance) {
+        if (size == maxSpeed.length) {
+            grow();
+        }
+        int handle = size++;
+        maxSpeed[handle] = newMaxSpeed;
+        itinerary[handle] = newItinerary.toArray(NO_JUNCTIONS);
+        vehicle[handle] = newVehicle;
+        ownAdvance[handle] = newOwnAdvance;
+        return handle;
+    }
+
+    /**
+     * Sets the speed of a vehicle, which is zero while it is faulty or at the
+     * end of its road.
+     *
+     * @param handle
+     * @param newSpeed
+     */
+    void setSpeed(int handle, int newSpeed) {
+        speed[handle] = (faulty[handle] == 0
+                && road[handle].getLength() != location[handle])
+                ? Math.min(maxSpeed[handle], newSpeed) : 0;
+    }
+
+    /**
+     * Advances a vehicle on its road, either through the columns or through
+     * its object if it advances in a way of its own.
+     *
+     * @param handle
+     */
+    void advance(int handle) {
+        if (ownAdvance[handle]) {
+            vehicle[handle].advance();
+        } else if (move(handle)) {
+            road[handle].arrive(vehicle[handle]);
+        }
+    }
+
+    /**
+     * Moves a vehicle at its speed, or repairs it for one tick if it is
+     * faulty.
+     *
+     * @param handle
+     * @return true if the vehicle has reached the end of its road
+     */
+    boolean move(int handle) {
+        if (faulty[handle] > 0) {
+            if (--faulty[handle] == 0 && !arrived[handle]) {
+                road[handle].faultChanged(false);
+            }
+            speed[handle] = 0;
+            return false;
+        }
+        Road r = road[handle];
+        int oldLocation = location[handle];
+        if (oldLocation == r.getLength()) {
+            return false;
+        }
+        int newLocation = Math.min(r.getLength(), oldLocation + speed[handle]);
+        kilometrage[handle] += newLocation - oldLocation;
+        location[handle] = newLocation;
+        if (newLocation == r.getLength()) {
+            speed[handle] = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Doubles the capacity of the table.
+     */
+    private void grow() {
+        int capacity = 2 * maxSpeed.length;
+        maxSpeed = Arrays.copyOf(maxSpeed, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        location = Arrays.copyOf(location, capacity);
+        kilometrage = Arrays.copyOf(kilometrage, capacity);
+        faulty = Arrays.copyOf(faulty, capacity);
+        currentJunction = Arrays.copyOf(currentJunction, capacity);
+        arrived = Arrays.copyOf(arrived, capacity);
+        road = Arrays.copyOf(road, capacity);
+        itinerary = Arrays.copyOf(itinerary, capacity);
+        vehicle = Arrays.copyOf(vehicle, capacity);
+        ownAdvance = Arrays.copyOf(ownAdvance, capacity);
+    }
+
+    /**
+     * @return Number of vehicles stored
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,88 @@
+package pr6.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns strings, giving every different string a handle: the consecutive
+ * integer from 0 in the order in which strings are added. Every string is
+ * kept once, so equal strings interned can share the same instance, and
+ * handles can be used as indexes of arrays instead of looking the strings up
+ * in maps.
+ *
+ * Strings are never removed. The table can be used by several threads at the
+ * same time; looking up a string already interned does not block.
+ */
+public class SymbolTable {
+
+    private final ConcurrentHashMap<String, Integer> handles = new ConcurrentHashMap<>();
+    /**
+     * Strings by handle
+     */
+    private volatile String[] symbols = new String[64];
+    private int size = 0;
+
+    /**
+     * Adds a string if it is not in the table yet.
+     *
+     * @param s
+     * @return handle of the string
+     */
+    public int intern(String s) {
+        Integer handle = handles.get(s);
+        if (handle != null) {
+            return handle;
+        }
+        synchronized (this) {
+            handle = handles.get(s);
+            if (handle == null) {
+                if (size == symbols.length) {
+                    symbols = Arrays.copyOf(symbols, 2 * size);
+                }
+                symbols[size] = s;
+                handle = size++;
+                handles.put(s, handle);
+            }
+            return handle;
+        }
+    }
+
+    /**
+     * @param s
+     * @return the instance of a string kept by the table, which is added if
+     * it is not in the table yet
+     */
+    public String internString(String s) {
+        return symbol(intern(s));
+    }
+
+    /**
+     * @param s
+     * @return handle of a string, -1 if it is not in the table
+     */
+    public int lookup(String s) {
+        Integer handle = handles.get(s);
+        return (handle == null) ? -1 : handle;
+    }
+
+    /**
+     * @param handle
+     * @return string of a handle
+     * @throws IndexOutOfBoundsException if there is no string with the handle
+     */
+    public String symbol(int handle) {
+        String[] s = symbols;
+        if (handle < 0 || handle >= s.length || s[handle] == null) {
+            throw new IndexOutOfBoundsException("No symbol with handle " + handle);
+        }
+        return s[handle];
+    }
+
+    /**
+     * @return Number of strings in the table, which is the handle of the next
+     * string added
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,92 @@
+package pr6.control;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import org.junit.Test;
+import pr6.model.TrafficSimulatorTest;
+import pr6.util.SymbolTable;
+
+public class ControllerTest {
+
+    /**
+     * Loads some events and runs them.
+     *
+     * @param events
+     * @param parallelism
+     * @return the error thrown, null if there is none
+     */
+    private static String load(String events, int parallelism) throws Exception {
+        Controller controller = new Controller(new ByteArrayOutputStream());
+        controller.setParallelism(parallelism);
+        try {
+            controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+        return null;
+    }
+
+    @Test
+    /**
+     * Checks that parsing the events in parallel reports the first wrong
+     * section, as when parsing on a single thread.
+     */
+    public void parallelParseErrorTest() throws Exception {
+        String[] sections = TrafficSimulatorTest.generateNetwork().split("\n\n");
+        String[] errors = {"[new_junction]\ntime = 0\nid = bad id",
+            "[new_road]\ntime = x\nid = r", "[unknown]\ntime = 0"};
+        for (int i = 0; i < errors.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int s = 0; s < sections.length; s++) {
+                // wrong sections in several chunks, the first one changing
+                if (s == sections.length - 10 - i * 200 || s == sections.length - 5
+                        || s == sections.length - 400 + i * 150) {
+                    sb.append(errors[(s + i) % errors.length]).append("\n\n");
+                }
+                sb.append(sections[s]).append("\n\n");
+            }
+            String expected = load(sb.toString(), 1);
+            assertNotNull("The events should be wrong", expected);
+            for (int parallelism = 2; parallelism <= 8; parallelism *= 2) {
+                assertEquals("The first wrong section should be reported",
+                        expected, load(sb.toString(), parallelism));
+            }
+        }
+    }
+
+    /**
+     * @param events
+     * @param parallelism
+     * @return the ids of the simulated objects after loading some events, by
+     * handle
+     */
+    private static List<String> ids(String events, int parallelism) throws Exception {
+        Controller controller = new Controller(new ByteArrayOutputStream());
+        controller.setParallelism(parallelism);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        SymbolTable ids = controller.getIds();
+        List<String> symbols = new ArrayList<>();
+        for (int handle = 0; handle < ids.size(); handle++) {
+            symbols.add(ids.symbol(handle));
+        }
+        return symbols;
+    }
+
+    @Test
+    /**
+     * Checks that parsing the events in parallel gives the ids the handles
+     * given on a single thread.
+     */
+    public void parallelParseIdsTest() throws Exception {
+        String events = TrafficSimulatorTest.generateNetwork();
+        List<String> expected = ids(events, 1);
+        for (int parallelism = 2; parallelism <= 8; parallelism *= 2) {
+            assertEquals("The handles should not depend on the threads",
+                    expected, ids(events, parallelism));
+        }
+    }
+}
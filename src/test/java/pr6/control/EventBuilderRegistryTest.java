@@ -0,0 +1,136 @@
+package pr6.control;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import pr6.events.BikeEvent;
+import pr6.events.CarEvent;
+import pr6.events.Event;
+import pr6.events.JunctionEvent;
+import pr6.events.RoundRobinJunctionEvent;
+import pr6.events.VehicleEvent;
+import pr6.ini.Ini;
+import pr6.ini.IniSection;
+import pr6.model.RoadMap;
+import pr6.model.TrafficSimulatorTest;
+import pr6.util.SymbolTable;
+
+public class EventBuilderRegistryTest {
+
+    private final SymbolTable ids = new SymbolTable();
+
+    /**
+     * Event registered through the service loader, which does nothing.
+     */
+    public static class NothingEvent extends Event {
+
+        public NothingEvent(int time) {
+            super(time);
+        }
+
+        @Override
+        public void execute(RoadMap roadmap) {
+        }
+
+        public static class Builder implements Event.Builder {
+
+            @Override
+            public String getTag() {
+                return "nothing";
+            }
+
+            @Override
+            public Event parse(IniSection sec) {
+                return new NothingEvent(parseInt(sec, "time", 0));
+            }
+        }
+    }
+
+    /**
+     * @param text
+     * @return the first section of an INI text
+     * @throws IOException
+     */
+    private static IniSection section(String text) throws IOException {
+        return new Ini(new ByteArrayInputStream(text.getBytes())).getSections().get(0);
+    }
+
+    @Test
+    /**
+     * Checks that every section of the generated network gets the event of
+     * the builder that parses it in the list of available builders.
+     */
+    public void sameAsListTest() throws IOException {
+        for (IniSection sec : new Ini(new ByteArrayInputStream(
+                TrafficSimulatorTest.generateNetwork().getBytes())).getSections()) {
+            Event expected = null;
+            for (int i = 0; expected == null
+                    && i < Controller.availableEventBuilders.length; i++) {
+                expected = Controller.availableEventBuilders[i].parse(sec, ids);
+            }
+            assertEquals("The registry should find the same builder",
+                    expected.getClass(), Controller.eventBuilders.parse(sec, ids).getClass());
+        }
+    }
+
+    @Test
+    /**
+     * Checks the builders of any type, the sections without builder and the
+     * builders found by the service loader.
+     */
+    public void lookupTest() throws IOException {
+        EventBuilderRegistry registry = Controller.eventBuilders;
+        assertTrue("Types should have their builder", registry.parse(section(
+                "[new_junction]\ntime = 0\nid = j1\ntype = rr\n"
+                + "min_time_slice = 1\nmax_time_slice = 2\n"), ids)
+                instanceof RoundRobinJunctionEvent);
+        assertEquals("Unknown types should use the builder of any type",
+                JunctionEvent.class, registry.parse(section(
+                        "[new_junction]\ntime = 0\nid = j1\ntype = other\n"), ids)
+                        .getClass());
+        assertEquals("Sections without type should use the builder of any type",
+                VehicleEvent.class, registry.parse(section(
+                        "[new_vehicle]\ntime = 0\nid = v1\nmax_speed = 1\n"
+                        + "itinerary = j1,j2\n"), ids).getClass());
+        assertNull("Unknown tags should have no builder",
+                registry.parse(section("[unknown]\ntime = 0\n"), ids));
+        assertTrue("Builders should be found by the service loader",
+                registry.parse(section("[nothing]\ntime = 3\nid = n1\n"), ids)
+                        instanceof NothingEvent);
+        assertTrue("The ids of builders without the ids should be interned",
+                ids.lookup("n1") >= 0);
+    }
+
+    @Test
+    /**
+     * Checks that a builder replaces the one of the same tag and type.
+     */
+    public void registerTest() throws IOException {
+        EventBuilderRegistry registry = new EventBuilderRegistry()
+                .register(new VehicleEvent.Builder())
+                .register(new CarEvent.Builder());
+        IniSection bike = section("[new_vehicle]\ntime = 0\nid = v1\nmax_speed = 1\n"
+                + "itinerary = j1,j2\ntype = bike\n");
+        assertEquals("Types without builder should use the builder of any type",
+                VehicleEvent.class, registry.parse(bike, ids).getClass());
+        registry.register(new BikeEvent.Builder());
+        assertEquals("Registered types should use their builder",
+                BikeEvent.class, registry.parse(bike, ids).getClass());
+        registry.register(new NothingEvent.Builder() {
+            @Override
+            public String getTag() {
+                return "new_vehicle";
+            }
+
+            @Override
+            public String getType() {
+                return "bike";
+            }
+        });
+        assertTrue("Builders should replace the ones of their tag and type",
+                registry.parse(bike, ids) instanceof NothingEvent);
+    }
+}
@@ -0,0 +1,154 @@
+package pr6.control;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import pr6.events.Event;
+import pr6.exception.SimulatorError;
+import pr6.ini.Ini;
+import pr6.ini.IniSection;
+import pr6.model.TrafficSimulatorTest;
+import pr6.util.SymbolTable;
+
+public class StreamingEventLoaderTest {
+
+    /**
+     * @param event
+     * @return description of an event
+     */
+    private static Map<String, String> describe(Event event) {
+        Map<String, String> description = new LinkedHashMap<>();
+        event.describe(description);
+        return description;
+    }
+
+    @Test
+    /**
+     * Checks that shuffled events are read sorted by time through several
+     * runs, keeping the order of the file between events of the same time.
+     */
+    public void externalSortTest() throws Exception {
+        List<String> sections = new ArrayList<>();
+        for (String s : TrafficSimulatorTest.generateNetwork().split("\n\n")) {
+            sections.add(s + "\n\n");
+        }
+        Collections.shuffle(sections, new Random(1));
+        String events = String.join("", sections);
+        SymbolTable ids = new SymbolTable();
+        List<Event> expected = new ArrayList<>();
+        for (IniSection section : new Ini(new ByteArrayInputStream(events.getBytes()))
+                .getSections()) {
+            expected.add(Controller.parseEvent(section, ids));
+        }
+        // the sort of lists is stable
+        expected.sort((a, b) -> Integer.compare(a.getScheduleTime(), b.getScheduleTime()));
+        Path file = Files.createTempFile("events", ".ini");
+        try {
+            Files.write(file, events.getBytes());
+            try (StreamingEventLoader loader = new StreamingEventLoader(file, ids, 50)) {
+                for (Event e : expected) {
+                    assertEquals("Events should be read by time",
+                            (Integer) e.getScheduleTime(), loader.nextTime());
+                    assertEquals("Events of the same time should keep their order",
+                            describe(e), describe(loader.next()));
+                }
+                assertNull("Every event should have been read", loader.nextTime());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * @return the temporary files of events
+     * @throws IOException
+     */
+    private static Set<Path> temporaryFiles() throws IOException {
+        Set<Path> files = new HashSet<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(
+                Paths.get(System.getProperty("java.io.tmpdir")), "events*.ini")) {
+            dir.forEach(files::add);
+        }
+        return files;
+    }
+
+    @Test
+    /**
+     * Checks that the temporary files of the runs are deleted when closing
+     * before the last event.
+     */
+    public void closeTest() throws Exception {
+        List<String> sections = new ArrayList<>();
+        for (String s : TrafficSimulatorTest.generateNetwork().split("\n\n")) {
+            sections.add(s + "\n\n");
+        }
+        Collections.shuffle(sections, new Random(2));
+        Path file = Files.createTempFile("input", ".ini");
+        try {
+            Files.write(file, String.join("", sections).getBytes());
+            Set<Path> before = temporaryFiles();
+            Set<Path> runs;
+            try (StreamingEventLoader loader = new StreamingEventLoader(file,
+                    new SymbolTable(), 50)) {
+                loader.next();
+                runs = temporaryFiles();
+                runs.removeAll(before);
+                assertTrue("The events should be sorted in runs", runs.size() > 1);
+            }
+            for (Path run : runs) {
+                assertFalse("The runs should be deleted", Files.exists(run));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    /**
+     * Checks that sorted events are read one window ahead, and that an event
+     * earlier than the events already read is an error.
+     */
+    public void lateEventTest() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < 100; t++) {
+            sb.append("[new_junction]\ntime = ").append(t).append("\nid = j")
+                    .append(t).append("\n\n");
+        }
+        sb.append("[new_junction]\ntime = 0\nid = late\n\n");
+        Path file = Files.createTempFile("input", ".ini");
+        try {
+            Files.write(file, sb.toString().getBytes());
+            try (StreamingEventLoader loader = new StreamingEventLoader(file,
+                    new SymbolTable(), 10)) {
+                for (int t = 0; t < 100; t++) {
+                    assertEquals("Sorted events should be read in order",
+                            (Integer) t, loader.nextTime());
+                    loader.next();
+                }
+                fail("An event earlier than the ones read should be an error");
+            } catch (SimulatorError e) {
+                assertTrue("The error should tell the event is out of order",
+                        e.getMessage().contains("out of order"));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package pr6.events;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class IdsTest {
+
+    private static final String[] LISTS = {"", "j1", "j1,j2", "j1, j2 ,j3",
+        ",j1", " ,j1,,j2", "j1,", "j1, ,", ",", ", ,", "j1  j2", "a,b,,c, ",
+        "j-1,j_2", "é1,j2"};
+
+    @Test
+    /**
+     * Checks that ids are split and checked as with the regular expressions.
+     */
+    public void sameAsPatternsTest() {
+        for (String list : LISTS) {
+            assertArrayEquals("The list '" + list + "' should be split as by the pattern",
+                    list.split("[, ]+"), Ids.split(list));
+            for (String id : list.split("[, ]+")) {
+                assertEquals("The id '" + id + "' should be checked as by the pattern",
+                        id.matches("[a-zA-Z0-9_]+"), Ids.isValid(id));
+            }
+            assertEquals("The list '" + list + "' should be checked as by the pattern",
+                    list.matches("[a-zA-Z0-9_]+"), Ids.isValid(list));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package pr6.ini;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NavigableMap;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class BinaryReportTest {
+
+    private static final int TICKS = 20;
+    private static final int KEYFRAME_INTERVAL = 4;
+
+    /**
+     * Writes the reports of some ticks, with objects appearing and moving.
+     *
+     * @param out
+     * @param from First tick written
+     */
+    private static void writeTicks(ReportWriter out, int from) {
+        for (int t = from; t < TICKS; t++) {
+            out.beginTick(t);
+            if (t == 7) {
+                out.comment(" skipped ticks from time 5 to 6");
+                out.separator();
+            }
+            for (int v = 0; v <= t % 6; v++) {
+                out.beginSection("vehicle_report");
+                out.key("id").append("v" + v);
+                out.key("time").append(t);
+                out.key("kilometrage").append(t * (v + 3) - 40);
+                out.key("numbers").append(Integer.MIN_VALUE).append(',')
+                        .append(Integer.MAX_VALUE);
+                out.key("empty");
+                out.key("location").append('(').append("r" + (t + v) % 3)
+                        .append(',').append(t * v % 17).append(')');
+                out.key("text").append("camión").append('ñ');
+                out.endSection();
+                out.separator();
+            }
+        }
+    }
+
+    @Test
+    /**
+     * Checks that a binary report is converted to exactly the same text.
+     */
+    public void sameTextTest() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        IniStreamWriter text = new IniStreamWriter(expected);
+        writeTicks(text, 0);
+        text.finish();
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryReportWriter writer = new BinaryReportWriter(binary, 16,
+                KEYFRAME_INTERVAL);
+        writeTicks(writer, 0);
+        writer.finish();
+        assertTrue("The binary report should be smaller",
+                binary.size() < expected.size() / 2);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        BinaryReportReader.toIni(new ByteArrayInputStream(binary.toByteArray()),
+                result);
+        assertArrayEquals("The text should be equal", expected.toByteArray(),
+                result.toByteArray());
+    }
+
+    @Test
+    /**
+     * Checks that a binary report can be read from the middle through the
+     * index of the keyframes.
+     */
+    public void indexTest() throws IOException {
+        Path file = Files.createTempFile("report", ".bin");
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                BinaryReportWriter writer = new BinaryReportWriter(
+                        Channels.newOutputStream(channel), 16,
+                        KEYFRAME_INTERVAL);
+                writeTicks(writer, 0);
+                writer.finish();
+            }
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            IniStreamWriter text = new IniStreamWriter(expected);
+            writeTicks(text, 9);
+            text.finish();
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                NavigableMap<Integer, Long> index = BinaryReportReader.readIndex(channel);
+                assertEquals("Every keyframe should be indexed", "[0, 4, 8, 12, 16]",
+                        index.keySet().toString());
+                BinaryReportReader reader = BinaryReportReader.openAt(channel, 9);
+                assertTrue("The keyframe should be read", reader.next(null));
+                assertEquals("The reader should start at a keyframe", 8,
+                        reader.getTime());
+                ByteArrayOutputStream result = new ByteArrayOutputStream();
+                reader.copyTo(new IniStreamWriter(result));
+                assertArrayEquals("The text should be equal from the keyframe on",
+                        expected.toByteArray(), result.toByteArray());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
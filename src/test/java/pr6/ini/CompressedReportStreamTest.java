@@ -0,0 +1,150 @@
+package pr6.ini;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class CompressedReportStreamTest {
+
+    private static final int TICKS = 50;
+
+    /**
+     * @param time
+     * @return the text of the reports of a tick
+     */
+    private static byte[] tick(int time) {
+        StringBuilder sb = new StringBuilder();
+        for (int v = 0; v < 10; v++) {
+            sb.append("[vehicle_report]\nid = v").append(v).append("\ntime = ")
+                    .append(time).append("\nlocation = (r").append(v % 3)
+                    .append(',').append(time * v % 17).append(")\n\n");
+        }
+        return sb.toString().getBytes();
+    }
+
+    /**
+     * Compresses the reports of every tick, flushing after each of them.
+     *
+     * @param expected Returns the text of the reports
+     * @param finish Whether the end of the compressed stream is written
+     * @return the compressed reports
+     * @throws IOException
+     */
+    private static byte[] compress(ByteArrayOutputStream expected, boolean finish)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedReportStream stream = new CompressedReportStream(out,
+                Deflater.BEST_COMPRESSION, 16);
+        for (int t = 1; t <= TICKS; t++) {
+            byte[] text = tick(t);
+            expected.write(text);
+            stream.write(text);
+            stream.flush();
+        }
+        if (finish) {
+            stream.finish();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads some reports up to their end or to the first error, one byte at a
+     * time so that no byte read before the error is lost.
+     *
+     * @param reports Reports, either compressed or not
+     * @param result Returns the bytes read
+     * @return the error which stopped the reading, null if the end was reached
+     */
+    private static IOException read(byte[] reports, ByteArrayOutputStream result) {
+        try {
+            InputStream in = CompressedReportStream.open(
+                    new ByteArrayInputStream(reports));
+            int b;
+            while ((b = in.read()) >= 0) {
+                result.write(b);
+            }
+            return null;
+        } catch (IOException e) {
+            return e;
+        }
+    }
+
+    @Test
+    /**
+     * Checks that compressed reports are decompressed to the same text and
+     * that reports not compressed are read as they are.
+     */
+    public void roundTripTest() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        byte[] compressed = compress(expected, true);
+        assertTrue("Compressed reports should be smaller",
+                compressed.length < expected.size() / 4);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        assertEquals("The whole stream should be read", null,
+                read(compressed, result));
+        assertArrayEquals("Compressed reports should be decompressed",
+                expected.toByteArray(), result.toByteArray());
+
+        result.reset();
+        read(expected.toByteArray(), result);
+        assertArrayEquals("Reports not compressed should be read as they are",
+                expected.toByteArray(), result.toByteArray());
+    }
+
+    @Test
+    /**
+     * Checks that nothing is written until the first report.
+     */
+    public void emptyTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedReportStream stream = new CompressedReportStream(out,
+                Deflater.DEFAULT_COMPRESSION, 0);
+        stream.flush();
+        stream.finish();
+        assertEquals("An output without reports should stay empty", 0, out.size());
+        try {
+            new CompressedReportStream(out, 10, 0);
+            fail("The compression level should be checked");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    /**
+     * Checks that the reports flushed before the end of the stream is written
+     * can be read, and that a stream cut at any point gives only whole bytes
+     * of the text before failing.
+     */
+    public void truncatedTest() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        byte[] unfinished = compress(expected, false);
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        IOException error = read(unfinished, result);
+        assertTrue("The missing end should be an error",
+                error instanceof EOFException);
+        assertArrayEquals("Every tick flushed should be readable",
+                expected.toByteArray(), result.toByteArray());
+
+        byte[] text = expected.toByteArray();
+        byte[] compressed = compress(new ByteArrayOutputStream(), true);
+        for (int length = 2; length < compressed.length; length += 7) {
+            result.reset();
+            error = read(Arrays.copyOf(compressed, length), result);
+            assertTrue("A truncated stream should be an error", error != null);
+            assertTrue("Only text of the reports should be read",
+                    result.size() <= text.length && Arrays.equals(
+                            Arrays.copyOf(text, result.size()), result.toByteArray()));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package pr6.ini;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexedReportReaderTest {
+
+    private static final int TICKS = 12;
+    private Path report;
+    private Path index;
+    private byte[] reportBytes;
+    private byte[] indexBytes;
+
+    /**
+     * Writes a report of some ticks, with objects appearing, and its index.
+     */
+    @Before
+    public void writeReport() throws IOException {
+        ByteArrayOutputStream reportOut = new ByteArrayOutputStream();
+        ByteArrayOutputStream indexOut = new ByteArrayOutputStream();
+        IniStreamWriter writer = new IniStreamWriter(reportOut);
+        ReportIndexWriter indexWriter = new ReportIndexWriter(indexOut);
+        for (int t = 1; t <= TICKS; t++) {
+            indexWriter.tick(t, writer.position());
+            for (int v = 0; v <= t % 4; v++) {
+                indexWriter.object("v" + v, writer.position());
+                writer.beginSection("vehicle_report");
+                writer.key("id").append("v" + v);
+                writer.key("time").append(t);
+                writer.key("location").append("(r").append(v).append(',')
+                        .append(t * v).append(')');
+                writer.endSection();
+                writer.separator();
+            }
+            writer.flush();
+        }
+        indexWriter.finish(writer.position());
+        reportBytes = reportOut.toByteArray();
+        indexBytes = indexOut.toByteArray();
+        report = Files.createTempFile("report", ".ini");
+        index = IndexedReportReader.indexPath(report);
+        Files.write(report, reportBytes);
+        Files.write(index, indexBytes);
+    }
+
+    @After
+    public void deleteReport() throws IOException {
+        Files.deleteIfExists(report);
+        Files.deleteIfExists(index);
+    }
+
+    @Test
+    /**
+     * Checks that every tick and object is read through the index.
+     */
+    public void readTest() throws IOException {
+        List<IniSection> all = new Ini(new ByteArrayInputStream(reportBytes))
+                .getSections();
+        try (IndexedReportReader reader = new IndexedReportReader(report)) {
+            assertEquals("Every tick should be indexed", TICKS, reader.getTickCount());
+            for (int t = 1; t <= TICKS; t++) {
+                List<IniSection> tick = new ArrayList<>();
+                for (IniSection sec : all) {
+                    if (sec.getValue("time").equals(Integer.toString(t))) {
+                        tick.add(sec);
+                    }
+                }
+                assertEquals("The reports of the tick should be read", tick,
+                        reader.readTick(t));
+                for (IniSection sec : tick) {
+                    assertEquals("The report of the object should be read", sec,
+                            reader.readObject(t, sec.getValue("id")));
+                }
+            }
+            assertEquals("Missing ticks should not be read", null,
+                    reader.readTick(TICKS + 1));
+            assertEquals("Objects missing from a tick should not be read", null,
+                    reader.readObject(4, "v3"));
+            assertEquals("Unknown objects should not be read", null,
+                    reader.readObject(1, "none"));
+        }
+    }
+
+    /**
+     * Writes the index changed and checks that it is rejected when opened.
+     *
+     * @param message
+     * @param corrupted
+     */
+    private void assertRejected(String message, byte[] corrupted) throws IOException {
+        Files.write(index, corrupted);
+        try (IndexedReportReader reader = new IndexedReportReader(report)) {
+            fail(message);
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    /**
+     * Checks that truncated and corrupted indexes are rejected with an
+     * IOException, not read beyond their entries.
+     */
+    public void corruptedIndexTest() throws IOException {
+        int trailer = indexBytes.length - ReportIndexWriter.TRAILER_SIZE;
+        assertRejected("An empty index should be rejected", new byte[0]);
+        assertRejected("A truncated index should be rejected",
+                Arrays.copyOf(indexBytes, indexBytes.length - 1));
+        byte[] b = indexBytes.clone();
+        b[0] = 'X';
+        assertRejected("An index without magic should be rejected", b);
+        b = indexBytes.clone();
+        ByteBuffer.wrap(b).putInt(ReportIndexWriter.MAGIC.length, 2);
+        assertRejected("Other versions should be rejected", b);
+        b = indexBytes.clone();
+        ByteBuffer.wrap(b).putLong(trailer, indexBytes.length);
+        assertRejected("Ids beyond the index should be rejected", b);
+        b = indexBytes.clone();
+        ByteBuffer.wrap(b).putInt(trailer + 16, TICKS + 1);
+        assertRejected("A wrong number of ticks should be rejected", b);
+
+        ByteBuffer bb = ByteBuffer.wrap(indexBytes);
+        long idsOffset = bb.getLong(trailer);
+        long ticksOffset = bb.getLong(trailer + 8);
+        b = indexBytes.clone();
+        ByteBuffer.wrap(b).putInt((int) idsOffset + 4, Integer.MAX_VALUE);
+        assertRejected("Ids longer than the index should be rejected", b);
+        b = indexBytes.clone();
+        ByteBuffer.wrap(b).putInt((int) ticksOffset + ReportIndexWriter.TICK_SIZE - 4,
+                1 << 20);
+        assertRejected("Objects beyond the index should be rejected", b);
+        b = indexBytes.clone();
+        ByteBuffer.wrap(b).putInt((int) ticksOffset + ReportIndexWriter.TICK_SIZE, 0);
+        assertRejected("Ticks out of order should be rejected", b);
+        b = indexBytes.clone();
+        ByteBuffer.wrap(b).putLong((int) ticksOffset + 4, reportBytes.length + 1);
+        assertRejected("Ticks beyond the report should be rejected", b);
+
+        Files.write(index, indexBytes);
+        Files.write(report, Arrays.copyOf(reportBytes, reportBytes.length - 1));
+        try (IndexedReportReader reader = new IndexedReportReader(report)) {
+            fail("A report shorter than its index should be rejected");
+        } catch (IOException e) {
+            assertTrue("The error should tell the report is short",
+                    e.getMessage().contains("shorter"));
+        }
+    }
+
+    @Test
+    /**
+     * Checks that the offset of an object outside of the report is an error
+     * of the read.
+     */
+    public void corruptedObjectTest() throws IOException {
+        byte[] b = indexBytes.clone();
+        ByteBuffer.wrap(b).putLong(ReportIndexWriter.HEADER_SIZE + 4, -1);
+        Files.write(index, b);
+        try (IndexedReportReader reader = new IndexedReportReader(report)) {
+            assertEquals("Other objects should be read", "v1",
+                    reader.readObject(1, "v1").getValue("id"));
+            reader.readObject(1, "v0");
+            fail("An object outside of the report should be rejected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package pr6.ini;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class IniSectionReaderTest {
+
+    private static IniSectionReader reader(String text) {
+        return new IniSectionReader(new ByteArrayInputStream(text.getBytes()));
+    }
+
+    @Test
+    /**
+     * Checks that the sections are read one at a time with the comments
+     * before them.
+     */
+    public void sectionsTest() throws IOException {
+        IniSectionReader reader = reader(";first\n\n[a]\nx = 1\n; inside\ny=2 \n"
+                + ";before b\n[!ignored]\nz = 3\n;before c\n  [ c ]  \n;last\n");
+        IniSection a = reader.next();
+        assertEquals("The tag should be read", "a", a.getTag());
+        assertEquals("The values should be trimmed", "2", a.getValue("y"));
+        assertEquals("The comments before and inside should be kept",
+                Arrays.asList("first", " inside"), reader.getComments());
+        IniSection c = reader.next();
+        assertEquals("Ignored sections should be skipped", "c", c.getTag());
+        assertEquals("The comments of ignored sections should be kept",
+                Arrays.asList("before b", "before c"), reader.getComments());
+        assertNull("There should be no more sections", reader.next());
+        assertEquals("The comments at the end should be kept",
+                Collections.singletonList("last"), reader.getComments());
+    }
+
+    @Test
+    /**
+     * Checks that invalid lines are rejected as by Ini.
+     */
+    public void syntaxErrorTest() throws IOException {
+        for (String text : new String[]{"x = 1\n[a]\n", "[a]\nnot a key value\n"}) {
+            try {
+                IniSectionReader reader = reader(text);
+                while (reader.next() != null) {
+                }
+                fail("A syntax error should be thrown");
+            } catch (IniError e) {
+                assertEquals("The line should be reported", "Syntax error: "
+                        + text.split("\n")[text.startsWith("x") ? 0 : 1], e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the sections of a text line by line with the patterns of the
+     * syntax, as a reference for the reader.
+     *
+     * @param text
+     * @return description of the sections, or of the error
+     */
+    private static String readWithPatterns(String text) throws IOException {
+        Pattern section = Pattern.compile("\\s*\\[([^]]*)\\]\\s*");
+        Pattern keyValue = Pattern.compile("\\s*([^=]*)=(.*)");
+        Pattern whitespaces = Pattern.compile("\\s*");
+        Pattern comment = Pattern.compile("[;,#](.*)");
+        StringBuilder sb = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(text.getBytes())));
+        boolean skipped = false;
+        boolean started = false;
+        int current = 0;
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                if (comment.matcher(line).matches()
+                        || whitespaces.matcher(line).matches()) {
+                    continue;
+                }
+                Matcher m = section.matcher(line);
+                if (m.matches()) {
+                    String tag = m.group(1).trim();
+                    skipped = tag.startsWith("!");
+                    started = true;
+                    current = sb.length();
+                    if (!skipped) {
+                        sb.append('[').append(tag).append("]\n");
+                    }
+                    continue;
+                }
+                m = keyValue.matcher(line);
+                if (!started || !m.matches()) {
+                    throw new IniError("Syntax error: " + line);
+                }
+                if (m.group(1).trim().isEmpty()) {
+                    throw new IniError("Invalid key: ");
+                }
+                if (!skipped) {
+                    sb.append(m.group(1).trim()).append('=')
+                            .append(m.group(2).trim()).append('\n');
+                }
+            }
+        } catch (IniError e) {
+            // the section being read is not returned
+            sb.setLength(current);
+            sb.append("error: ").append(e.getMessage());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param reader
+     * @return description of the sections read, or of the error
+     */
+    private static String describe(IniSectionReader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try {
+            IniSection section;
+            while ((section = reader.next()) != null) {
+                sb.append('[').append(section.getTag()).append("]\n");
+                for (String key : section.getKeys()) {
+                    sb.append(key).append('=').append(section.getValue(key))
+                            .append('\n');
+                }
+            }
+        } catch (IniError e) {
+            sb.append("error: ").append(e.getMessage());
+        }
+        return sb.toString();
+    }
+
+    @Test
+    /**
+     * Checks that the lines are read as the patterns of the syntax read them,
+     * whatever their line ends and white spaces, from a stream or a mapped
+     * file.
+     */
+    public void sameAsPatternsTest() throws IOException {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            longValue.append((char) ('a' + i % 26));
+        }
+        String[] texts = {
+            "[a]\r\nx = 1\r\n\r\n[b]\ry=2\rz =\r",
+            " \t[ spaced tag ] \t\nkey with spaces =  value with spaces \t\nlast=1",
+            "[a]\nx=1=2\n=\ty\n",
+            "[a]\n[b] x\n",
+            "[a]\n[b]=c\n\u000b\f\n#c\n,d\n;e\n [!skip]\nq=1\n[c]\nk=v",
+            "[caf\u00e9]\nclé = \u00e9t\u00e9\n;\u00fc\n\u00a0\n",
+            "[a]\nx\u2028=1\ny=\u2028\n",
+            "\u00e9\n[a]\n",
+            "[a]\nv=" + longValue + "\nw=" + longValue + "\r\n[b]\n",
+            "",
+            "\n\r\n\r"
+        };
+        for (String text : texts) {
+            String expected = readWithPatterns(text);
+            assertEquals("The stream should be read as with the patterns",
+                    expected, describe(reader(text)));
+            Path file = Files.createTempFile("ini", ".ini");
+            try {
+                Files.write(file, text.getBytes());
+                try (FileChannel channel = FileChannel.open(file)) {
+                    assertEquals("The mapped file should be read as the stream",
+                            expected, describe(new IniSectionReader(channel)));
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+}
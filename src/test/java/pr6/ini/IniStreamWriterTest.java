@@ -0,0 +1,96 @@
+package pr6.ini;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class IniStreamWriterTest {
+
+    /**
+     * Writes a section with every kind of value.
+     *
+     * @param out
+     */
+    private static void writeSection(SectionWriter out) {
+        out.beginSection("vehicle_report");
+        out.key("id").append("v1");
+        out.key("time").append(0);
+        out.key("empty");
+        out.key("numbers").append(Integer.MIN_VALUE).append(',').append(-42)
+                .append(',').append(Integer.MAX_VALUE).append(',').append(7);
+        out.key("location").append('(').append("r1").append(',').append(10)
+                .append(')');
+        out.key("text").append("camión").append('ñ');
+        out.endSection();
+    }
+
+    @Test
+    /**
+     * Checks that sections are written exactly as IniSection stores them.
+     */
+    public void sameBytesTest() throws IOException {
+        IniSectionWriter sectionWriter = new IniSectionWriter();
+        writeSection(sectionWriter);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        sectionWriter.getSection().store(expected);
+        expected.write('\n');
+        sectionWriter.getSection().store(expected);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        // a small buffer which has to grow
+        IniStreamWriter streamWriter = new IniStreamWriter(result, 16);
+        writeSection(streamWriter);
+        streamWriter.separator();
+        writeSection(streamWriter);
+        assertEquals("Nothing should be written before flushing", 0, result.size());
+        streamWriter.flush();
+        assertArrayEquals("The sections should be equal", expected.toByteArray(),
+                result.toByteArray());
+    }
+
+    @Test
+    /**
+     * Checks that sections written to a channel through a buffer smaller than
+     * them are the same as the ones written to a stream.
+     */
+    public void channelTest() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        IniStreamWriter streamWriter = new IniStreamWriter(expected);
+        writeSection(streamWriter);
+        streamWriter.separator();
+        writeSection(streamWriter);
+        streamWriter.flush();
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        IniStreamWriter channelWriter = new IniStreamWriter(
+                Channels.newChannel(result), 16);
+        writeSection(channelWriter);
+        channelWriter.separator();
+        channelWriter.flush();
+        writeSection(channelWriter);
+        channelWriter.flush();
+        assertArrayEquals("The sections should be equal", expected.toByteArray(),
+                result.toByteArray());
+    }
+
+    @Test
+    /**
+     * Checks the section built by the section writer.
+     */
+    public void iniSectionTest() {
+        IniSectionWriter sectionWriter = new IniSectionWriter();
+        writeSection(sectionWriter);
+        IniSection section = sectionWriter.getSection();
+        assertEquals("The tag should be set", "vehicle_report", section.getTag());
+        assertEquals("The keys should keep their order", "[id, time, empty, "
+                + "numbers, location, text]", section.getKeys().toString());
+        assertEquals("The value should be empty", "", section.getValue("empty"));
+        assertEquals("The values should be appended", "-2147483648,-42,2147483647,7",
+                section.getValue("numbers"));
+        assertEquals("The values should be appended", "(r1,10)",
+                section.getValue("location"));
+    }
+}
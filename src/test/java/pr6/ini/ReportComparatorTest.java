@@ -0,0 +1,65 @@
+package pr6.ini;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class ReportComparatorTest {
+
+    private static final String REPORT = "[junction_report]\nid = j1\ntime = 1\n"
+            + "queues = (r1,red,[])\n\n[vehicle_report]\nid = v1\ntime = 1\n"
+            + "speed = 10\nlocation = (r1,10)\n\n";
+
+    private static String compare(String actual, String expected) throws IOException {
+        String difference = ReportComparator.compare(
+                new ByteArrayInputStream(actual.getBytes()),
+                new ByteArrayInputStream(expected.getBytes()));
+        assertEquals("The comparison should agree with Ini.equals",
+                new Ini(new ByteArrayInputStream(actual.getBytes())).equals(
+                        new Ini(new ByteArrayInputStream(expected.getBytes()))),
+                difference == null);
+        return difference;
+    }
+
+    @Test
+    /**
+     * Checks that the order of the keys does not matter.
+     */
+    public void equalTest() throws IOException {
+        assertNull("Equal reports should have no difference",
+                compare(REPORT, REPORT));
+        assertNull("The order of the keys should not matter", compare(REPORT,
+                REPORT.replace("speed = 10\nlocation = (r1,10)",
+                        "location = (r1,10)\nspeed = 10")));
+        assertNull("Empty reports should be equal", compare("", ""));
+    }
+
+    @Test
+    /**
+     * Checks that the first difference is described.
+     */
+    public void differenceTest() throws IOException {
+        assertEquals("Different values should be described",
+                "Section 2, [vehicle_report] id = v1, time = 1: key 'speed' is"
+                + " '11', expected '10'",
+                compare(REPORT.replace("speed = 10", "speed = 11"), REPORT));
+        assertEquals("Missing keys should be described",
+                "Section 2, [vehicle_report] id = v1, time = 1: key 'speed' is"
+                + " missing, expected '10'",
+                compare(REPORT.replace("speed = 10\n", ""), REPORT));
+        assertEquals("Extra keys should be described",
+                "Section 1, [junction_report] id = j1, time = 1: key 'extra' is"
+                + " not expected",
+                compare(REPORT.replace("queues", "extra = 1\nqueues"), REPORT));
+        assertEquals("Missing sections should be described",
+                "The report ends after 1 sections, expected [vehicle_report]"
+                + " id = v1, time = 1 at section 2",
+                compare(REPORT.substring(0, REPORT.indexOf("[vehicle")), REPORT));
+        assertEquals("Extra sections should be described",
+                "The report has more sections than expected, [vehicle_report]"
+                + " id = v1, time = 1 at section 2",
+                compare(REPORT, REPORT.substring(0, REPORT.indexOf("[vehicle"))));
+    }
+}
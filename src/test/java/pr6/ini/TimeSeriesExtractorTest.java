@@ -0,0 +1,137 @@
+package pr6.ini;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeSeriesExtractorTest {
+
+    private static final int TICKS = 6;
+    private static final List<String> IDS = Arrays.asList("j1", "v1", "v2", "none");
+    private Path dir;
+    private Path report;
+    private Path index;
+
+    /**
+     * Writes a report with its index: a junction whose queues have commas,
+     * and vehicles with quotes in their values, one of them appearing later.
+     */
+    @Before
+    public void writeReport() throws IOException {
+        dir = Files.createTempDirectory("series");
+        report = dir.resolve("report.ini");
+        index = IndexedReportReader.indexPath(report);
+        Files.createDirectory(dir.resolve("streamed"));
+        Files.createDirectory(dir.resolve("indexed"));
+        ByteArrayOutputStream reportOut = new ByteArrayOutputStream();
+        ByteArrayOutputStream indexOut = new ByteArrayOutputStream();
+        IniStreamWriter writer = new IniStreamWriter(reportOut);
+        ReportIndexWriter indexWriter = new ReportIndexWriter(indexOut);
+        for (int t = 1; t <= TICKS; t++) {
+            indexWriter.tick(t, writer.position());
+            indexWriter.object("j1", writer.position());
+            writer.beginSection("junction_report");
+            writer.key("id").append("j1");
+            writer.key("time").append(t);
+            writer.key("queues").append("(r1,green,[v1,v2])");
+            writer.endSection();
+            writer.separator();
+            for (int v = 1; v <= 3; v++) {
+                if (v == 2 && t < 3) {
+                    continue;
+                }
+                indexWriter.object("v" + v, writer.position());
+                writer.beginSection("vehicle_report");
+                writer.key("id").append("v" + v);
+                writer.key("time").append(t);
+                writer.key("speed").append(t * v);
+                writer.key("name").append("the \"fast\" one");
+                writer.key("empty");
+                writer.endSection();
+                writer.separator();
+            }
+        }
+        writer.flush();
+        indexWriter.finish(writer.position());
+        Files.write(report, reportOut.toByteArray());
+        Files.write(index, indexOut.toByteArray());
+    }
+
+    @After
+    public void deleteReport() throws IOException {
+        for (String sub : Arrays.asList("streamed", "indexed")) {
+            for (String id : IDS) {
+                Files.deleteIfExists(dir.resolve(sub).resolve(id
+                        + TimeSeriesExtractor.EXTENSION));
+            }
+            Files.deleteIfExists(dir.resolve(sub));
+        }
+        Files.deleteIfExists(report);
+        Files.deleteIfExists(index);
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    /**
+     * Checks the rows of the series, with the values which need quotes.
+     */
+    public void csvTest() throws IOException {
+        Path streamed = dir.resolve("streamed");
+        try (TimeSeriesExtractor extractor = new TimeSeriesExtractor(streamed, IDS);
+                InputStream in = Files.newInputStream(report)) {
+            extractor.extract(in);
+            assertEquals("Every tick should be extracted", TICKS,
+                    extractor.getRows("j1"));
+            assertEquals("Only the ticks of the object should be extracted",
+                    TICKS - 2, extractor.getRows("v2"));
+            assertEquals("Missing objects should have no rows", 0,
+                    extractor.getRows("none"));
+        }
+        assertEquals("Values with commas should be quoted", Arrays.asList(
+                "time,queues", "1,\"(r1,green,[v1,v2])\""),
+                Files.readAllLines(streamed.resolve("j1.csv")).subList(0, 2));
+        assertEquals("Quotes should be doubled and empty values kept",
+                Arrays.asList("time,speed,name,empty", "3,6,\"the \"\"fast\"\" one\","),
+                Files.readAllLines(streamed.resolve("v2.csv")).subList(0, 2));
+        assertTrue("Missing objects should have no file",
+                !Files.exists(streamed.resolve("none.csv")));
+    }
+
+    @Test
+    /**
+     * Checks that the series extracted through the index are the ones
+     * extracted reading the whole report.
+     */
+    public void indexedTest() throws IOException {
+        Path streamed = dir.resolve("streamed");
+        Path indexed = dir.resolve("indexed");
+        try (TimeSeriesExtractor extractor = new TimeSeriesExtractor(streamed, IDS)) {
+            extractor.extract(new ByteArrayInputStream(Files.readAllBytes(report)));
+        }
+        try (TimeSeriesExtractor extractor = new TimeSeriesExtractor(indexed, IDS);
+                IndexedReportReader reader = new IndexedReportReader(report)) {
+            extractor.extract(reader);
+            assertEquals("Missing objects should have no rows", 0,
+                    extractor.getRows("none"));
+        }
+        for (String id : IDS.subList(0, 3)) {
+            String file = id + TimeSeriesExtractor.EXTENSION;
+            assertArrayEquals("The index should give the same series",
+                    Files.readAllBytes(streamed.resolve(file)),
+                    Files.readAllBytes(indexed.resolve(file)));
+        }
+        assertTrue("Missing objects should have no file",
+                !Files.exists(indexed.resolve("none.csv")));
+    }
+}
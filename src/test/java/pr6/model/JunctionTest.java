@@ -18,9 +18,10 @@ public class JunctionTest {
         sourceJunction.addOutGoingRoad(road, destinationJunction);
         destinationJunction.addIncomingRoad(road);
         ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
         itinerary.add(sourceJunction);
         itinerary.add(destinationJunction);
-        Vehicle vehicle = new Vehicle("v1", 15, itinerary);
+        Vehicle vehicle = new Vehicle(table, "v1", 15, itinerary);
         IniSection result = sourceJunction.generateReport(0);
         IniSection correct = new IniSection("junction_report");
         correct.setValue("id", "j1");
@@ -42,12 +43,13 @@ public class JunctionTest {
         sourceJunction.addOutGoingRoad(road, destinationJunction);
         destinationJunction.addIncomingRoad(road);
         ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
         itinerary.add(sourceJunction);
         itinerary.add(destinationJunction);
-        destinationJunction.enter(new Vehicle("v1", 15, itinerary));
-        destinationJunction.enter(new Vehicle("v2", 15, itinerary));
-        destinationJunction.enter(new Vehicle("v3", 15, itinerary));
-        destinationJunction.enter(new Vehicle("v4", 15, itinerary));
+        destinationJunction.enter(new Vehicle(table, "v1", 15, itinerary));
+        destinationJunction.enter(new Vehicle(table, "v2", 15, itinerary));
+        destinationJunction.enter(new Vehicle(table, "v3", 15, itinerary));
+        destinationJunction.enter(new Vehicle(table, "v4", 15, itinerary));
         IniSection result = destinationJunction.generateReport(0);
         IniSection correct = new IniSection("junction_report");
         correct.setValue("id", "j2");
@@ -55,4 +57,77 @@ public class JunctionTest {
         correct.setValue("queues", "(r1,red,[v1,v2,v3,v4])");
         assertEquals("The junction's state should be ", correct, result);
     }
+
+    /**
+     * Creates a junction of the given type.
+     *
+     * @param type
+     * @return junction with three incoming roads
+     */
+    private Junction generateJunction(int type) {
+        Junction j;
+        switch (type) {
+            case 0:
+                j = new Junction("j1");
+                break;
+            case 1:
+                j = new RoundRobinJunction("j1", 1, 3);
+                break;
+            case 2:
+                j = new RoundRobinJunction("j1", 2, 6);
+                break;
+            default:
+                j = new MostCrowdedJunction("j1");
+        }
+        Junction source = new Junction("j0");
+        j.addIncomingRoad(new Road("r1", 40, 20, source, j));
+        j.addIncomingRoad(new Road("r2", 40, 20, source, j));
+        j.addIncomingRoad(new Road("r3", 40, 20, source, j));
+        return j;
+    }
+
+    @Test
+    /**
+     * Checks that junctions skipped by the scheduler while idle report the
+     * same lights as junctions advanced every tick, whether they are reported
+     * every tick or not, and keep them once they are advanced again.
+     */
+    public void skippedJunctionTest() {
+        for (int type = 0; type < 4; type++) {
+            ActiveSetScheduler scheduler = new ActiveSetScheduler();
+            Junction skipped = generateJunction(type);
+            Junction unreported = generateJunction(type);
+            Junction advanced = generateJunction(type);
+            scheduler.addJunction(skipped);
+            scheduler.addJunction(unreported);
+            Road r2 = advanced.incomingRoadMap.keySet().toArray(new Road[0])[1];
+            for (int time = 1; time <= 40; time++) {
+                assertEquals("The junction should be idle ", 0,
+                        scheduler.getJunctionsToAdvance().size());
+                scheduler.junctionsAdvanced();
+                advanced.advance();
+                assertEquals("The junction's state should be ",
+                        advanced.generateReport(time), skipped.generateReport(time));
+                assertEquals("The light should be the same ",
+                        advanced.isTrafficLightOn(r2),
+                        skipped.isTrafficLightOn(skipped.incomingRoadMap.keySet()
+                                .toArray(new Road[0])[1]));
+                if (time % 17 == 0) {
+                    assertEquals("The junction's state should be ",
+                            advanced.generateReport(time), unreported.generateReport(time));
+                }
+            }
+            for (int time = 41; time <= 60; time++) {
+                scheduler.getJunctionsToAdvance();
+                skipped.step(null);
+                unreported.step(null);
+                scheduler.junctionsAdvanced();
+                advanced.advance();
+                assertEquals("The junction's state should be ",
+                        advanced.generateReport(time), skipped.generateReport(time));
+                assertEquals("The junction's state should be ",
+                        advanced.generateReport(time), unreported.generateReport(time));
+            }
+        }
+    }
 }
@@ -2,6 +2,8 @@ package pr6.model;
 
 import java.util.ArrayList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 
 public class RoadMapTest {
@@ -25,9 +27,9 @@ public class RoadMapTest {
         roadmap.addRoad(r1);
         roadmap.addRoad(r2);
         roadmap.addRoad(r3);
-        roadmap.addVehicle(new Car("car1", 20, itinerary1, 20, 0.2, 10, 123456789));
-        roadmap.addVehicle(new Car("car2", 15, itinerary1, 15, 0.3, 10, 123456789));
-        roadmap.addVehicle(new Bike("bike1", 20, itinerary1));
+        roadmap.addVehicle(new Car(roadmap.getVehicleTable(), "car1", 20, itinerary1, 20, 0.2, 10, 123456789));
+        roadmap.addVehicle(new Car(roadmap.getVehicleTable(), "car2", 15, itinerary1, 15, 0.3, 10, 123456789));
+        roadmap.addVehicle(new Bike(roadmap.getVehicleTable(), "bike1", 20, itinerary1));
         return roadmap;
     }
 
@@ -45,6 +47,38 @@ public class RoadMapTest {
         assertEquals("The road map should contain ", ids, sb.substring(0, sb.length() - 1));
     }
 
+    @Test
+    /**
+     * Checks that the objects are found by the handles of their ids, which
+     * belong to the road map.
+     */
+    public void handleLookupTest() {
+        RoadMap roadmap = generateCommonRoadMap();
+        for (Junction j : roadmap.getJunctions()) {
+            assertSame("Junctions should be found by handle", j,
+                    roadmap.getJunction(j.getHandle()));
+            assertSame("Junctions should be found by id", j,
+                    roadmap.getJunction(new String(j.getId())));
+        }
+        Road road = roadmap.getRoad("dirt1");
+        assertSame("Roads should be found by handle", road,
+                roadmap.getRoad(roadmap.getIds().lookup("dirt1")));
+        assertSame("Vehicles should be found by handle", roadmap.getVehicle("bike1"),
+                roadmap.getVehicle(roadmap.getVehicle("bike1").getHandle()));
+        try {
+            roadmap.getVehicle(road.getHandle());
+            fail("A road should not be found as a vehicle");
+        } catch (NullPointerException e) {
+            assertEquals("Vehicle with handle " + road.getHandle()
+                    + " not found in roadmap", e.getMessage());
+        }
+        assertEquals("The handles should be numbered by the road map", 0,
+                generateCommonRoadMap().getJunction("j1").getHandle());
+        roadmap.clear();
+        assertEquals("The ids should be forgotten when clearing", 0,
+                roadmap.getIds().size());
+    }
+
     @Test
     /**
      * Checks if excepctions are correctly controlled.
@@ -71,7 +105,7 @@ public class RoadMapTest {
             Junction j1 = new Junction("j");
             ArrayList<Junction> path = new ArrayList<Junction>();
             path.add(j1);
-            roadmap.addVehicle(new Car("car2", 15, path, 15, 0.3, 10, 123456789));
+            roadmap.addVehicle(new Car(roadmap.getVehicleTable(), "car2", 15, path, 15, 0.3, 10, 123456789));
         } catch (java.lang.IllegalArgumentException e) {
             System.err.println("- Expected exception while adding vehicle in method exceptionsWithIdTest");
         }
@@ -18,9 +18,10 @@ public class RoadTest {
         sourceJunction.addOutGoingRoad(oneVehicleRoad, destinationJunction);
         destinationJunction.addIncomingRoad(oneVehicleRoad);
         ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
         itinerary.add(sourceJunction);
         itinerary.add(destinationJunction);
-        Vehicle vehicle = new Vehicle("v1", 10, itinerary);
+        Vehicle vehicle = new Vehicle(table, "v1", 10, itinerary);
         IniSection result = oneVehicleRoad.generateReport(0);
         IniSection correct = new IniSection("road_report");
 
@@ -55,12 +56,13 @@ public class RoadTest {
         sourceJunction.addOutGoingRoad(MultipleVehicleRoad, destinationJunction);
         destinationJunction.addIncomingRoad(MultipleVehicleRoad);
         ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
         itinerary.add(sourceJunction);
         itinerary.add(destinationJunction);
-        Vehicle v1 = new Vehicle("v1", 10, itinerary);
-        Vehicle v2 = new Vehicle("v2", 15, itinerary);
-        Vehicle v3 = new Vehicle("v3", 20, itinerary);
-        Vehicle v4 = new Vehicle("v4", 5, itinerary);
+        Vehicle v1 = new Vehicle(table, "v1", 10, itinerary);
+        Vehicle v2 = new Vehicle(table, "v2", 15, itinerary);
+        Vehicle v3 = new Vehicle(table, "v3", 20, itinerary);
+        Vehicle v4 = new Vehicle(table, "v4", 5, itinerary);
         IniSection result = MultipleVehicleRoad.generateReport(0);
         IniSection correct = new IniSection("road_report");
 
@@ -101,12 +103,13 @@ public class RoadTest {
         sourceJunction.addOutGoingRoad(CrowedRoadWithFaultyVehicles, destinationJunction);
         destinationJunction.addIncomingRoad(CrowedRoadWithFaultyVehicles);
         ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
         itinerary.add(sourceJunction);
         itinerary.add(destinationJunction);
-        Vehicle v1 = new Vehicle("v1", 10, itinerary);
-        Vehicle v2 = new Vehicle("v2", 15, itinerary);
-        Vehicle v3 = new Vehicle("v3", 20, itinerary);
-        Vehicle v4 = new Vehicle("v4", 5, itinerary);
+        Vehicle v1 = new Vehicle(table, "v1", 10, itinerary);
+        Vehicle v2 = new Vehicle(table, "v2", 15, itinerary);
+        Vehicle v3 = new Vehicle(table, "v3", 20, itinerary);
+        Vehicle v4 = new Vehicle(table, "v4", 5, itinerary);
         v3.makeFaulty(3);
         v2.makeFaulty(2);
         IniSection result = CrowedRoadWithFaultyVehicles.generateReport(0);
@@ -132,4 +135,38 @@ public class RoadTest {
         assertEquals("The road's status should be ", correct, result);
     }
 
+    @Test
+    /**
+     * Checks that the stats of the road follow the vehicles.
+     */
+    public void statsTest() {
+        Junction sourceJunction = new Junction("j1");
+        Junction destinationJunction = new Junction("j2");
+        Road road = new Road("r1", 20, 20, sourceJunction, destinationJunction);
+        sourceJunction.addOutGoingRoad(road, destinationJunction);
+        destinationJunction.addIncomingRoad(road);
+        ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
+        itinerary.add(sourceJunction);
+        itinerary.add(destinationJunction);
+        Vehicle v1 = new Vehicle(table, "v1", 10, itinerary);
+        Vehicle v2 = new Vehicle(table, "v2", 15, itinerary);
+        v2.makeFaulty(1);
+
+        assertEquals("There should be two vehicles", 2, road.getStats().getOccupancy());
+        assertEquals("There should be one faulty vehicle", 1, road.getStats().getFaultyVehicles());
+        assertEquals("Both vehicles should be at 0", 2, road.getStats().getVehiclesAt(0));
+
+        road.advance();
+        assertEquals("v2 should have been repaired", 0, road.getStats().getFaultyVehicles());
+        assertEquals("v1 should be at 10", 1, road.getStats().getVehiclesAt(10));
+        assertEquals("v2 should be at 0", 1, road.getStats().getVehiclesAt(0));
+
+        road.advance();
+        road.advance();
+        destinationJunction.advance();
+        destinationJunction.advance();
+        assertEquals("v1 should have left the road", 1, road.getStats().getOccupancy());
+        assertEquals("v2 should be at the end", 1, road.getStats().getVehiclesAt(20));
+    }
 }
@@ -0,0 +1,105 @@
+package pr6.model;
+
+import java.util.ArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class RoadVehicleListTest {
+
+    /**
+     * @return itinerary of two junctions connected by a long road
+     */
+    private ArrayList<Junction> generateItinerary() {
+        Junction sourceJunction = new Junction("j1");
+        Junction destinationJunction = new Junction("j2");
+        Road road = new Road("r1", 1000, 100, sourceJunction, destinationJunction);
+        sourceJunction.addOutGoingRoad(road, destinationJunction);
+        destinationJunction.addIncomingRoad(road);
+        ArrayList<Junction> itinerary = new ArrayList<>();
+        itinerary.add(sourceJunction);
+        itinerary.add(destinationJunction);
+        return itinerary;
+    }
+
+    /**
+     * @param list
+     * @return ids of the vehicles of the list
+     */
+    private String ids(RoadVehicleList list) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < list.size(); i++) {
+            sb.append(list.get(i).getId());
+        }
+        return sb.toString();
+    }
+
+    @Test
+    /**
+     * Checks that vehicles are ordered by location and that vehicles at the
+     * same location keep their previous order.
+     */
+    public void stableOrderTest() {
+        ArrayList<Junction> itinerary = generateItinerary();
+        VehicleTable table = new VehicleTable();
+        RoadVehicleList list = new RoadVehicleList();
+        Vehicle a = new Vehicle(table, "a", 10, itinerary);
+        Vehicle b = new Vehicle(table, "b", 10, itinerary);
+        Vehicle c = new Vehicle(table, "c", 10, itinerary);
+        Vehicle d = new Vehicle(table, "d", 10, itinerary);
+        list.add(a);
+        list.add(b);
+        list.add(c);
+        list.add(d);
+        assertEquals("Vehicles should keep order of insertion", "abcd", ids(list));
+
+        table.location[c.handle] = 7;
+        table.location[b.handle] = 3;
+        table.location[d.handle] = 7;
+        list.sortByLocation();
+        assertEquals("Vehicles should be ordered by location", "cdba", ids(list));
+
+        table.location[a.handle] = 7;
+        list.sortByLocation();
+        assertEquals("Ties should keep previous order", "cdab", ids(list));
+    }
+
+    @Test
+    /**
+     * Checks that vehicles are counted and removed by location.
+     */
+    public void locationTest() {
+        ArrayList<Junction> itinerary = generateItinerary();
+        VehicleTable table = new VehicleTable();
+        RoadVehicleList list = new RoadVehicleList();
+        Vehicle a = new Vehicle(table, "a", 10, itinerary);
+        Vehicle b = new Vehicle(table, "b", 10, itinerary);
+        list.add(a);
+        list.add(b);
+        table.location[a.handle] = 5;
+        list.sortByLocation();
+
+        assertEquals("There should be one vehicle at 5", 1, list.countAt(5));
+        assertEquals("There should be one vehicle at 0", 1, list.countAt(0));
+        assertEquals("There should be no vehicles at 4", 0, list.countAt(4));
+        assertNull("Nothing should be removed from an empty location",
+                list.remove(a, 4));
+        assertSame("The vehicle should be removed", a, list.remove(a, 5));
+        assertEquals("Only one vehicle should be left", "b", ids(list));
+        assertEquals("The list view should reflect changes", 1, list.asList().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    /**
+     * Checks that vehicles stored in different tables can not share a list.
+     */
+    public void otherTableTest() {
+        // vehicles which arrive at once, so they are not put on any road
+        ArrayList<Junction> itinerary = new ArrayList<>();
+        itinerary.add(new Junction("j1"));
+        RoadVehicleList list = new RoadVehicleList();
+        list.add(new Vehicle(new VehicleTable(), "a", 10, itinerary));
+        list.add(new Vehicle(new VehicleTable(), "b", 10, itinerary));
+    }
+}
@@ -0,0 +1,612 @@
+package pr6.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import pr6.control.Controller;
+import pr6.ini.BinaryReportReader;
+import pr6.ini.CompressedReportStream;
+import pr6.ini.DeltaReportReader;
+import pr6.ini.IndexedReportReader;
+import pr6.ini.Ini;
+import pr6.ini.IniSection;
+import pr6.ini.TimeSeriesExtractor;
+
+public class TrafficSimulatorTest {
+
+    private static final int JUNCTIONS = 100;
+    private static final int VEHICLES = 300;
+    private static final int TICKS = 60;
+
+    /**
+     * Generates a ring of junctions where every junction is connected to the
+     * next one and to the one after it, with every kind of junction, road and
+     * vehicle.
+     *
+     * @return events of the network
+     */
+    public static String generateNetwork() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < JUNCTIONS; i++) {
+            sb.append("[new_junction]\ntime = 0\nid = j").append(i).append('\n');
+            if (i % 3 == 1) {
+                sb.append("type = rr\nmin_time_slice = 1\nmax_time_slice = 3\n");
+            } else if (i % 3 == 2) {
+                sb.append("type = mc\n");
+            }
+            sb.append('\n');
+        }
+        for (int i = 0; i < JUNCTIONS; i++) {
+            for (int step = 1; step <= 2; step++) {
+                sb.append("[new_road]\ntime = 0\nid = r").append(i).append('_')
+                        .append(step).append("\nsrc = j").append(i)
+                        .append("\ndest = j").append((i + step) % JUNCTIONS)
+                        .append("\nmax_speed = ").append(20 + (i % 3) * 10)
+                        .append("\nlength = ").append(20 + (i % 7) * 10).append('\n');
+                if (i % 3 == 1) {
+                    sb.append("type = lanes\nlanes = 2\n");
+                } else if (i % 3 == 2) {
+                    sb.append("type = dirt\n");
+                }
+                sb.append('\n');
+            }
+        }
+        for (int i = 0; i < VEHICLES; i++) {
+            int junction = (i * 7) % JUNCTIONS;
+            sb.append("[new_vehicle]\ntime = ").append(i % 5).append("\nid = v")
+                    .append(i).append("\nmax_speed = ").append(10 + i % 25)
+                    .append("\nitinerary = j").append(junction);
+            for (int k = 0; k < 4; k++) {
+                junction = (junction + 1 + (i + k) % 2) % JUNCTIONS;
+                sb.append(",j").append(junction);
+            }
+            sb.append('\n');
+            if (i % 3 == 1) {
+                sb.append("type = car\nresistance = 10\nfault_probability = 0.3\n"
+                        + "max_fault_duration = 3\nseed = ").append(i).append('\n');
+                if (i % 2 == 0) {
+                    sb.append("rng = counter\n");
+                }
+            } else if (i % 3 == 2) {
+                sb.append("type = bike\n");
+            }
+            sb.append('\n');
+        }
+        for (int t = 2; t < TICKS; t += 7) {
+            sb.append("[make_vehicle_faulty]\ntime = ").append(t)
+                    .append("\nvehicles = v").append(t).append(",v").append(t + 1)
+                    .append("\nduration = 2\n\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Runs the given events and returns the reports written.
+     *
+     * @param events
+     * @param parallelism
+     * @return Output of the simulation
+     * @throws Exception
+     */
+    public static byte[] simulate(String events, int parallelism) throws Exception {
+        return simulate(events, parallelism, TrafficSimulator.FastForward.OFF);
+    }
+
+    /**
+     * Runs the given events skipping the ticks without traffic as indicated
+     * and returns the reports written.
+     *
+     * @param events
+     * @param parallelism
+     * @param fastForward
+     * @return Output of the simulation
+     * @throws Exception
+     */
+    public static byte[] simulate(String events, int parallelism,
+            TrafficSimulator.FastForward fastForward) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Controller controller = new Controller(out);
+        controller.setParallelism(parallelism);
+        controller.setFastForward(fastForward);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        controller.run(TICKS);
+        return out.toByteArray();
+    }
+
+    @Test
+    /**
+     * Checks that advancing the roads and junctions in parallel writes exactly
+     * the same reports as the sequential simulation.
+     */
+    public void parallelAdvanceTest() throws Exception {
+        String events = generateNetwork();
+        byte[] sequential = simulate(events, 1);
+        assertTrue("The simulation should write reports", sequential.length > 0);
+        assertArrayEquals("Parallel reports should be equal to sequential ones",
+                sequential, simulate(events, 4));
+    }
+
+    @Test
+    /**
+     * Checks that writing the reports to a channel only when the buffer is
+     * full writes the same reports.
+     */
+    public void outputChannelTest() throws Exception {
+        String events = generateNetwork();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Controller controller = new Controller(null);
+        controller.setOutputChannel(Channels.newChannel(out), 4096);
+        controller.setFlushEveryTick(false);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        controller.run(TICKS);
+        assertArrayEquals("Reports written to a channel should be equal",
+                simulate(events, 1), out.toByteArray());
+    }
+
+    @Test
+    /**
+     * Checks that the reports written by a thread of their own are the same,
+     * that errors of the output are notified, also when they are not
+     * IOExceptions, and that nothing is written once the writer is closed.
+     */
+    public void asyncReportsTest() throws Exception {
+        String events = generateNetwork();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Controller controller = new Controller(null);
+        controller.setOutputChannel(Channels.newChannel(out), 1024);
+        controller.setAsyncReports(2);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        controller.run(TICKS);
+        assertArrayEquals("Reports written by a thread should be equal",
+                simulate(events, 1), out.toByteArray());
+
+        RecordingListener listener = new RecordingListener();
+        controller = new Controller(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Disk full");
+            }
+        });
+        controller.setAsyncReports(2);
+        controller.addSimulatorListener(listener);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        controller.run(TICKS);
+        assertEquals("The error of the output should be notified", 1,
+                listener.errors);
+
+        AsyncReportWriter failing = new AsyncReportWriter(new OutputStream() {
+            @Override
+            public void write(int b) {
+                throw new IllegalStateException("Broken output");
+            }
+        }, 16, 1);
+        for (int i = 0; i < 2; i++) {
+            try {
+                failing.write(ByteBuffer.wrap(events.getBytes()));
+                failing.flush();
+                fail("Other errors of the output should be thrown");
+            } catch (IOException e) {
+                assertTrue("The error should be the cause",
+                        e.getCause() instanceof IllegalStateException);
+            }
+        }
+        failing.close();
+
+        AsyncReportWriter writer = new AsyncReportWriter(
+                Channels.newChannel(new ByteArrayOutputStream()), 16, 1);
+        writer.close();
+        writer.flush();
+        try {
+            writer.write(ByteBuffer.wrap(events.getBytes()));
+            fail("Writing to a closed writer should fail");
+        } catch (ClosedChannelException e) {
+            // expected
+        }
+    }
+
+    @Test
+    /**
+     * Checks that the random number generator of the simulator is the one of
+     * the cars which do not choose one.
+     */
+    public void randomModeTest() throws Exception {
+        String events = generateNetwork().replace("rng = counter\n", "");
+        String counter = events.replaceAll("(seed = \\d+\n)", "$1rng = counter\n");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Controller controller = new Controller(out);
+        controller.setRandomMode(Car.RandomMode.COUNTER);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        controller.run(TICKS);
+        assertArrayEquals("The cars should use the generator of the simulator",
+                simulate(counter, 1), out.toByteArray());
+        assertFalse("The generators should give other faults",
+                Arrays.equals(simulate(events, 1), out.toByteArray()));
+    }
+
+    @Test
+    /**
+     * Checks that the binary reports are converted to the same text.
+     */
+    public void binaryReportTest() throws Exception {
+        String events = generateNetwork();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Controller controller = new Controller(out);
+        controller.setReportFormat(TrafficSimulator.ReportFormat.BINARY, 16);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        controller.run(TICKS);
+        controller.closeOutput();
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        BinaryReportReader.toIni(new ByteArrayInputStream(out.toByteArray()), text);
+        byte[] expected = simulate(events, 1);
+        assertArrayEquals("Binary reports should be converted to the same text",
+                expected, text.toByteArray());
+        assertTrue("Binary reports should be smaller",
+                out.size() < expected.length / 4);
+    }
+
+    @Test
+    /**
+     * Checks that the full reports are rebuilt from the delta reports.
+     */
+    public void deltaReportsTest() throws Exception {
+        String events = generateNetwork();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Controller controller = new Controller(out);
+        controller.setDeltaReports(25);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        controller.run(TICKS);
+        byte[] expected = simulate(events, 1);
+        assertTrue("Delta reports should be smaller", out.size() < expected.length);
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        DeltaReportReader.toFull(new ByteArrayInputStream(out.toByteArray()), full);
+        assertArrayEquals("The full reports should be rebuilt", expected,
+                full.toByteArray());
+        List<IniSection> state = DeltaReportReader.stateAt(
+                new ByteArrayInputStream(out.toByteArray()), 30);
+        List<IniSection> reports = new ArrayList<>();
+        for (IniSection sec : new Ini(new ByteArrayInputStream(expected)).getSections()) {
+            if (sec.getValue("time").equals("30")) {
+                reports.add(sec);
+            }
+        }
+        assertEquals("The state of a tick should be rebuilt", reports, state);
+    }
+
+    @Test
+    /**
+     * Checks that the reports compressed by the simulator are decompressed to
+     * the same text.
+     */
+    public void compressedReportsTest() throws Exception {
+        String events = generateNetwork();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Controller controller = new Controller(out);
+        controller.setCompressedReports(true, 9);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        controller.run(TICKS);
+        controller.closeOutput();
+        assertArrayEquals("Compressed reports should be decompressed",
+                simulate(events, 1), readAll(CompressedReportStream.open(
+                        new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    /**
+     * @param in
+     * @return every byte of the stream
+     * @throws IOException
+     */
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    /**
+     * Checks that the index of the simulator finds the reports of every tick,
+     * also when the writer of the reports changes between runs.
+     */
+    public void reportIndexTest() throws Exception {
+        String events = generateNetwork();
+        Path report = Files.createTempFile("report", ".ini");
+        Path index = IndexedReportReader.indexPath(report);
+        try {
+            try (OutputStream out = Files.newOutputStream(report);
+                    OutputStream indexOut = Files.newOutputStream(index)) {
+                Controller controller = new Controller(out);
+                controller.setReportIndex(indexOut);
+                controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+                controller.run(TICKS / 2);
+                controller.setAsyncReports(2);
+                controller.run(TICKS - TICKS / 2);
+                controller.closeOutput();
+            }
+            List<IniSection> all = new Ini(new ByteArrayInputStream(
+                    simulate(events, 1))).getSections();
+            try (IndexedReportReader reader = new IndexedReportReader(report)) {
+                assertEquals("Every tick should be indexed", TICKS,
+                        reader.getTickCount());
+                for (int time = 1; time <= TICKS; time++) {
+                    List<IniSection> tick = new ArrayList<>();
+                    for (IniSection sec : all) {
+                        if (sec.getValue("time").equals(Integer.toString(time))) {
+                            tick.add(sec);
+                        }
+                    }
+                    assertEquals("The reports of the tick should be read", tick,
+                            reader.readTick(time));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(report);
+            Files.deleteIfExists(index);
+        }
+    }
+
+    @Test
+    /**
+     * Checks that the time series extracted through the index of the
+     * simulator are the ones extracted reading the whole report.
+     */
+    public void timeSeriesTest() throws Exception {
+        String events = generateNetwork();
+        Path dir = Files.createTempDirectory("series");
+        Path report = dir.resolve("report.ini");
+        Path index = IndexedReportReader.indexPath(report);
+        Path streamed = Files.createDirectory(dir.resolve("streamed"));
+        Path indexed = Files.createDirectory(dir.resolve("indexed"));
+        List<String> ids = Arrays.asList("j1", "r1_2", "v3", "none");
+        try {
+            try (OutputStream out = Files.newOutputStream(report);
+                    OutputStream indexOut = Files.newOutputStream(index)) {
+                Controller controller = new Controller(out);
+                controller.setReportIndex(indexOut);
+                controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+                controller.run(TICKS);
+                controller.closeOutput();
+            }
+            try (TimeSeriesExtractor extractor = new TimeSeriesExtractor(streamed, ids);
+                    InputStream in = Files.newInputStream(report)) {
+                extractor.extract(in);
+                assertEquals("Every tick should be extracted", TICKS,
+                        extractor.getRows("j1"));
+            }
+            try (TimeSeriesExtractor extractor = new TimeSeriesExtractor(indexed, ids);
+                    IndexedReportReader reader = new IndexedReportReader(report)) {
+                extractor.extract(reader);
+            }
+            for (String id : ids.subList(0, 3)) {
+                String file = id + TimeSeriesExtractor.EXTENSION;
+                assertArrayEquals("The index should give the same series",
+                        Files.readAllBytes(streamed.resolve(file)),
+                        Files.readAllBytes(indexed.resolve(file)));
+            }
+        } finally {
+            for (Path sub : Arrays.asList(streamed, indexed)) {
+                for (String id : ids) {
+                    Files.deleteIfExists(sub.resolve(id + TimeSeriesExtractor.EXTENSION));
+                }
+                Files.deleteIfExists(sub);
+            }
+            Files.deleteIfExists(report);
+            Files.deleteIfExists(index);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    /**
+     * Checks that the filtered reports are the ones of the full output for
+     * the ticks and objects selected, also in delta mode.
+     */
+    public void reportFilterTest() throws Exception {
+        String events = generateNetwork();
+        List<IniSection> reports = new ArrayList<>();
+        for (IniSection sec : new Ini(new ByteArrayInputStream(
+                simulate(events, 1))).getSections()) {
+            int time = Integer.parseInt(sec.getValue("time"));
+            String id = sec.getValue("id");
+            if (time % 7 == 0 && time >= 10 && time <= 40
+                    && (id.equals("j1") || id.startsWith("v1"))) {
+                reports.add(sec);
+            }
+        }
+        ReportFilter filter = new ReportFilter().every(7).window(10, 40)
+                .kinds(true, false, true)
+                .ids(Arrays.asList("j1", "v1*", "r1_*"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Controller controller = new Controller(out);
+        controller.setReportFilter(filter);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        controller.run(TICKS);
+        assertEquals("Only the objects selected should be reported", reports,
+                new Ini(new ByteArrayInputStream(out.toByteArray())).getSections());
+
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        controller = new Controller(delta);
+        controller.setDeltaReports(3);
+        controller.setReportFilter(filter);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        controller.run(TICKS);
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        DeltaReportReader.toFull(new ByteArrayInputStream(delta.toByteArray()), full);
+        assertArrayEquals("Delta reports should be filtered the same way",
+                out.toByteArray(), full.toByteArray());
+    }
+
+    @Test
+    /**
+     * Checks that skipping the ticks without traffic writes the same reports,
+     * either for every tick or only for the ticks before an event.
+     */
+    public void fastForwardTest() throws Exception {
+        String events = "[new_junction]\ntime = 0\nid = j1\n\n"
+                + "[new_junction]\ntime = 0\nid = j2\ntype = rr\n"
+                + "min_time_slice = 1\nmax_time_slice = 3\n\n"
+                + "[new_road]\ntime = 0\nid = r1\nsrc = j1\ndest = j2\n"
+                + "max_speed = 20\nlength = 30\n\n"
+                + "[new_vehicle]\ntime = 0\nid = v1\nmax_speed = 10\n"
+                + "itinerary = j1,j2\n\n"
+                + "[new_vehicle]\ntime = 25\nid = v2\nmax_speed = 10\n"
+                + "itinerary = j1,j2\n\n";
+        byte[] reports = simulate(events, 1);
+        assertArrayEquals("Skipped ticks should have the same reports", reports,
+                simulate(events, 1, TrafficSimulator.FastForward.REPORTS));
+        List<IniSection> all = new Ini(new ByteArrayInputStream(reports)).getSections();
+        List<IniSection> skipped = new Ini(new ByteArrayInputStream(
+                simulate(events, 1, TrafficSimulator.FastForward.MARKERS))).getSections();
+        int i = 0;
+        for (IniSection sec : skipped) {
+            while (!sec.getValue("time").equals(all.get(i).getValue("time"))) {
+                i++;
+            }
+            assertEquals("The reports written should not change", all.get(i), sec);
+            i++;
+        }
+        assertTrue("Some reports should be skipped", skipped.size() < all.size());
+        assertEquals("The last reports should be written",
+                all.get(all.size() - 1), skipped.get(skipped.size() - 1));
+
+        ReportFilter filter = new ReportFilter().every(4).window(0, 20);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Controller controller = new Controller(out);
+        controller.setFastForward(TrafficSimulator.FastForward.MARKERS);
+        controller.setReportFilter(filter);
+        controller.loadEvents(new ByteArrayInputStream(events.getBytes()));
+        controller.run(TICKS);
+        int markers = 0;
+        for (String line : out.toString().split("\n")) {
+            if (line.startsWith(";")) {
+                String[] range = line.substring(line.indexOf("time ") + 5).split(" to ");
+                assertTrue("Only the reported ticks should be marked: " + line,
+                        filter.reportsTick(Integer.parseInt(range[0]))
+                        && filter.reportsTick(Integer.parseInt(range[1])));
+                markers++;
+            }
+        }
+        assertEquals("The ticks out of the window should not be marked", 1, markers);
+    }
+
+    /**
+     * Listener recording the times it is notified of advances and new events.
+     */
+    private static class RecordingListener
+            implements TrafficSimulator.TrafficSimulatorListener {
+
+        private final List<Integer> advances = new ArrayList<>();
+        private int newEvents = 0;
+        private int errors = 0;
+
+        @Override
+        public void registered(TrafficSimulator.UpdateEvent updateEvent) {
+        }
+
+        @Override
+        public void reset(TrafficSimulator.UpdateEvent updateEvent) {
+        }
+
+        @Override
+        public void newEvent(TrafficSimulator.UpdateEvent updateEvent) {
+            newEvents++;
+        }
+
+        @Override
+        public void advanced(TrafficSimulator.UpdateEvent updateEvent) {
+            advances.add(updateEvent.getCurrentTime());
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void error(TrafficSimulator.UpdateEvent updateEvent, Exception e) {
+            errors++;
+        }
+    }
+
+    @Test
+    /**
+     * Checks that streaming the events of a file, sorted or not, writes
+     * exactly the same reports as loading all of them first.
+     */
+    public void streamEventsTest() throws Exception {
+        String events = generateNetwork();
+        byte[] expected = simulate(events, 1);
+        // stable sort by decreasing time
+        List<String> sections = new ArrayList<>(Arrays.asList(events.split("\n\n")));
+        sections.sort((x, y) -> Integer.compare(time(y), time(x)));
+        for (String input : Arrays.asList(events, String.join("\n\n", sections) + "\n\n")) {
+            Path file = Files.createTempFile("events", ".ini");
+            try {
+                Files.write(file, input.getBytes());
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                Controller controller = new Controller(out);
+                controller.streamEvents(file.toString());
+                controller.run(TICKS);
+                controller.closeEvents();
+                assertArrayEquals("Streamed events should write the same reports",
+                        expected, out.toByteArray());
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * @param section Text of an event section
+     * @return time of the event
+     */
+    private static int time(String section) {
+        int start = section.indexOf("time = ") + "time = ".length();
+        return Integer.parseInt(section.substring(start, section.indexOf('\n', start)));
+    }
+
+    @Test
+    /**
+     * Checks the notification interval and the coalescing of the
+     * notifications of asynchronous listeners.
+     */
+    public void listenerTest() throws Exception {
+        RecordingListener sync = new RecordingListener();
+        RecordingListener async = new RecordingListener();
+        Controller controller = new Controller(new ByteArrayOutputStream());
+        controller.addSimulatorListener(sync);
+        controller.addAsyncSimulatorListener(async);
+        controller.setNotificationInterval(7, 0);
+        controller.loadEvents(new ByteArrayInputStream(generateNetwork().getBytes()));
+        controller.run(TICKS);
+        List<Integer> expected = new ArrayList<>();
+        for (int t = 7; t < TICKS; t += 7) {
+            expected.add(t);
+        }
+        expected.add(TICKS);
+        assertEquals("Advances should be notified every interval", expected, sync.advances);
+        assertTrue("Notifications should be coalesced",
+                async.advances.size() <= expected.size()
+                && async.newEvents <= sync.newEvents);
+        assertEquals("The last advance should be notified", (Integer) TICKS,
+                async.advances.get(async.advances.size() - 1));
+    }
+}
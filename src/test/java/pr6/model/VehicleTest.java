@@ -2,6 +2,7 @@ package pr6.model;
 
 import java.util.ArrayList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import pr6.ini.IniSection;
 
@@ -18,9 +19,10 @@ public class VehicleTest {
         sourceJunction.addOutGoingRoad(road, destinationJunction);
         destinationJunction.addIncomingRoad(road);
         ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
         itinerary.add(sourceJunction);
         itinerary.add(destinationJunction);
-        Vehicle vehicle = new Vehicle("v1", 15, itinerary);
+        Vehicle vehicle = new Vehicle(table, "v1", 15, itinerary);
         IniSection result = vehicle.generateReport(0);
         IniSection correct = new IniSection("vehicle_report");
 
@@ -56,10 +58,11 @@ public class VehicleTest {
         sourceJunction.addOutGoingRoad(road, destinationJunction);
         destinationJunction.addIncomingRoad(road);
         ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
         itinerary.add(sourceJunction);
         itinerary.add(destinationJunction);
-        Vehicle v1 = new Vehicle("v1", 15, itinerary);
-        Vehicle v2 = new Vehicle("v2", 20, itinerary);
+        Vehicle v1 = new Vehicle(table, "v1", 15, itinerary);
+        Vehicle v2 = new Vehicle(table, "v2", 20, itinerary);
         IniSection correct1 = new IniSection("vehicle_report");
         IniSection correct2 = new IniSection("vehicle_report");
 
@@ -93,13 +96,14 @@ public class VehicleTest {
         Junction sourceJunction = new Junction("j1");
         Junction destinationJunction = new Junction("j2");
         ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
         itinerary.add(sourceJunction);
         itinerary.add(destinationJunction);
         Road road = new Road("r1", 30, 20, sourceJunction, destinationJunction);
         sourceJunction.addOutGoingRoad(road, destinationJunction);
         destinationJunction.addIncomingRoad(road);
 
-        Vehicle vehicle = new Vehicle("v1", 10, itinerary);
+        Vehicle vehicle = new Vehicle(table, "v1", 10, itinerary);
         road.advance();
         IniSection result = vehicle.generateReport(1);
         IniSection correct = new IniSection("vehicle_report");
@@ -150,6 +154,7 @@ public class VehicleTest {
         Junction middleJunction = new Junction("j2");
         Junction destinationJunction = new Junction("j3");
         ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
         Road r1 = new Road("r1", 20, 20, sourceJunction, middleJunction);
         Road r2 = new Road("r2", 40, 30, middleJunction, destinationJunction);
 
@@ -162,7 +167,7 @@ public class VehicleTest {
         itinerary.add(middleJunction);
         itinerary.add(destinationJunction);
 
-        Vehicle vehicle = new Vehicle("v1", 20, itinerary);
+        Vehicle vehicle = new Vehicle(table, "v1", 20, itinerary);
         r1.advance();
         IniSection result = vehicle.generateReport(1);
         IniSection correct = new IniSection("vehicle_report");
@@ -195,9 +200,10 @@ public class VehicleTest {
         sourceJunction.addOutGoingRoad(road, destinationJunction);
         destinationJunction.addIncomingRoad(road);
         ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
         itinerary.add(sourceJunction);
         itinerary.add(destinationJunction);
-        Bike bike = new Bike("b1", 10, itinerary);
+        Bike bike = new Bike(table, "b1", 10, itinerary);
         IniSection result = bike.generateReport(0);
         IniSection correct = new IniSection("vehicle_report");
 
@@ -232,9 +238,10 @@ public class VehicleTest {
         sourceJunction.addOutGoingRoad(road, destinationJunction);
         destinationJunction.addIncomingRoad(road);
         ArrayList<Junction> itinerary = new ArrayList<>();
+        VehicleTable table = new VehicleTable();
         itinerary.add(sourceJunction);
         itinerary.add(destinationJunction);
-        Car car = new Car("c1", 10, itinerary, 15, 1.0, 2, 0);
+        Car car = new Car(table, "c1", 10, itinerary, 15, 1.0, 2, 0);
 
         IniSection result = car.generateReport(0);
         IniSection correct = new IniSection("vehicle_report");
@@ -257,4 +264,78 @@ public class VehicleTest {
 
         assertEquals("Car's state should be ", correct, result);
     }
+
+    @Test
+    /**
+     * Checks that vehicles sharing a table keep their own state when the table
+     * grows.
+     */
+    public void sharedTableTest() {
+        Junction sourceJunction = new Junction("j1");
+        Junction destinationJunction = new Junction("j2");
+        Road road = new Road("r1", 100, 50, sourceJunction, destinationJunction);
+        sourceJunction.addOutGoingRoad(road, destinationJunction);
+        destinationJunction.addIncomingRoad(road);
+        ArrayList<Junction> itinerary = new ArrayList<>();
+        itinerary.add(sourceJunction);
+        itinerary.add(destinationJunction);
+        VehicleTable table = new VehicleTable(1);
+        Vehicle v1 = new Vehicle(table, "v1", 5, itinerary);
+        Vehicle v2 = new Bike(table, "v2", 7, itinerary);
+        Vehicle v3 = new Car(table, "v3", 9, itinerary, 1000, 0, 1, 0);
+        assertEquals("The table should store every vehicle", 3, table.size());
+
+        road.advance();
+        assertEquals("v1 should move at its own speed", 5, v1.getLocation());
+        assertEquals("v2 should move at its own speed", 7, v2.getLocation());
+        assertEquals("v3 should move at its own speed", 9, v3.getLocation());
+        assertEquals("v3 should keep its kilometrage", 9, v3.getKilometrage());
+    }
+
+    @Test
+    /**
+     * Checks that cars using the counter based generator break down the same
+     * way no matter the table, the road or the vehicles added after them, and
+     * that their faults only depend on the tick.
+     */
+    public void counterRandomTest() {
+        Junction sourceJunction = new Junction("j1");
+        Junction destinationJunction = new Junction("j2");
+        Road road1 = new Road("r1", 1000, 50, sourceJunction, destinationJunction);
+        sourceJunction.addOutGoingRoad(road1, destinationJunction);
+        destinationJunction.addIncomingRoad(road1);
+        ArrayList<Junction> itinerary1 = new ArrayList<>();
+        itinerary1.add(sourceJunction);
+        itinerary1.add(destinationJunction);
+        Junction otherSource = new Junction("j3");
+        Junction otherDestination = new Junction("j4");
+        Road road2 = new Road("r2", 1000, 50, otherSource, otherDestination);
+        otherSource.addOutGoingRoad(road2, otherDestination);
+        otherDestination.addIncomingRoad(road2);
+        ArrayList<Junction> itinerary2 = new ArrayList<>();
+        itinerary2.add(otherSource);
+        itinerary2.add(otherDestination);
+        VehicleTable table1 = new VehicleTable();
+        Car car1 = new Car(table1, "c1", 10, itinerary2, 5, 0.5, 3, 42,
+                Car.RandomMode.COUNTER);
+        VehicleTable table = new VehicleTable();
+        Car car2 = new Car(table, "c1", 10, itinerary1, 5, 0.5, 3, 42,
+                Car.RandomMode.COUNTER);
+        new Car(table, "c2", 10, itinerary1, 5, 0.5, 3, 42, Car.RandomMode.COUNTER);
+        int faults = 0;
+        for (int i = 0; i < 40; i++) {
+            table1.time = i;
+            table.time = i;
+            road1.advance();
+            road2.advance();
+            assertEquals("Both cars should break down at the same time",
+                    car1.getFaultyTime(), car2.getFaultyTime());
+            assertEquals("Both cars should be at the same location",
+                    car1.getLocation(), car2.getLocation());
+            if (car1.getFaultyTime() > 0) {
+                faults++;
+            }
+        }
+        assertTrue("The cars should break down", faults > 0);
+    }
 }
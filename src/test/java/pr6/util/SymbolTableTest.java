@@ -0,0 +1,72 @@
+package pr6.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Unit tests for SymbolTable
+ */
+public class SymbolTableTest {
+
+    @Test
+    /**
+     * Checks that strings get consecutive handles and are kept once.
+     */
+    public void internTest() {
+        SymbolTable table = new SymbolTable();
+        String a = new String("a");
+        assertEquals("The first string should have handle 0", 0, table.intern(a));
+        assertEquals("A new string should have the next handle", 1, table.intern("b"));
+        assertEquals("Equal strings should have the same handle", 0,
+                table.intern(new String("a")));
+        assertSame("Equal strings should share the instance kept", a,
+                table.internString(new String("a")));
+        assertEquals("Strings not interned should have no handle", -1, table.lookup("c"));
+        assertEquals("The handle should give the string", "b", table.symbol(1));
+        assertEquals("The size should be the number of strings", 2, table.size());
+    }
+
+    @Test
+    /**
+     * Checks that strings interned by several threads get a single handle.
+     */
+    public void concurrentInternTest() throws Exception {
+        SymbolTable table = new SymbolTable();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    int[] handles = new int[1000];
+                    for (int i = 0; i < handles.length; i++) {
+                        handles[i] = table.intern("id" + i);
+                    }
+                    return handles;
+                }));
+            }
+            int[] first = results.get(0).get();
+            for (Future<int[]> result : results) {
+                int[] handles = result.get();
+                for (int i = 0; i < handles.length; i++) {
+                    assertEquals("Every thread should get the same handle",
+                            first[i], handles[i]);
+                    assertEquals("The handle should give the string", "id" + i,
+                            table.symbol(handles[i]));
+                }
+            }
+            assertEquals("Every string should be kept once", 1000, table.size());
+            for (int h = 0; h < 1000; h++) {
+                assertTrue("Handles should be consecutive", table.lookup(table.symbol(h)) == h);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}